@@ -0,0 +1,121 @@
+package imageLineExtractor.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import imageLineExtractor.GaussianFilter;
+import imageLineExtractor.GrayScale;
+import imageLineExtractor.GrayScaleFunction;
+
+/**
+ * Inputs shared by the benchmarks: the images in {@code input/} and synthetic
+ * grids of fixed sizes, plus lookups from benchmark parameters to the
+ * library's constants.
+ */
+final class BenchmarkImages {
+
+    static final String INPUT_DIRECTORY_PROPERTY = "benchmark.input";
+    private static final String SYNTHETIC_PREFIX = "synthetic-";
+    private static final int SYNTHETIC_SQUARE = 120;
+    private static final int SYNTHETIC_SEED = 42;
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Loads a benchmark image by name. Names of the form
+     * {@code synthetic-<width>x<height>} generate a grid image of that size;
+     * every other name is read from the input directory, which defaults to
+     * {@code ../input} and can be changed with {@code -Dbenchmark.input=<dir>}.
+     */
+    static BufferedImage load(String name) {
+        if (name.startsWith(SYNTHETIC_PREFIX)) {
+            String[] size = name.substring(SYNTHETIC_PREFIX.length()).split("x");
+            return synthetic(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        }
+        File file = new File(System.getProperty(INPUT_DIRECTORY_PROPERTY, "../input"), name);
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IllegalArgumentException("Unsupported image format: " + file);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read benchmark image " + file, e);
+        }
+    }
+
+    /**
+     * Draws a noisy grid of light lines on a dark background, like the images in
+     * {@code input/}, so every stage has realistic work at any size.
+     */
+    static BufferedImage synthetic(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x181410));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(0x5A5048));
+        for (int i = SYNTHETIC_SQUARE / 2; i < height; i += SYNTHETIC_SQUARE) {
+            graphics.fillRect(0, i, width, 3);
+        }
+        for (int j = SYNTHETIC_SQUARE / 2; j < width; j += SYNTHETIC_SQUARE) {
+            graphics.fillRect(j, 0, 3, height);
+        }
+        graphics.dispose();
+        Random random = new Random(SYNTHETIC_SEED);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int noise = random.nextInt(17) - 8;
+                int rgb = image.getRGB(j, i);
+                int red = clamp(((rgb >> 16) & 0xFF) + noise);
+                int green = clamp(((rgb >> 8) & 0xFF) + noise);
+                int blue = clamp((rgb & 0xFF) + noise);
+                image.setRGB(j, i, (red << 16) | (green << 8) | blue);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    static GrayScaleFunction grayScaleFunction(String name) {
+        switch (name) {
+            case "AVERAGE":
+                return GrayScale.AVERAGE;
+            case "LUMINOSITY":
+                return GrayScale.LUMINOSITY;
+            case "LIGHTNESS":
+                return GrayScale.LIGHTNESS;
+            case "RED_CHANNEL_ONLY":
+                return GrayScale.RED_CHANNEL_ONLY;
+            case "GREEN_CHANNEL_ONLY":
+                return GrayScale.GREEN_CHANNEL_ONLY;
+            case "BLUE_CHANNEL_ONLY":
+                return GrayScale.BLUE_CHANNEL_ONLY;
+            default:
+                throw new IllegalArgumentException("Unknown grayscale function " + name);
+        }
+    }
+
+    static int[][] kernel(String name) {
+        switch (name) {
+            case "KERNEL3x3":
+                return GaussianFilter.KERNEL3x3;
+            case "KERNEL5x5":
+                return GaussianFilter.KERNEL5x5;
+            case "KERNEL7x7":
+                return GaussianFilter.KERNEL7x7;
+            default:
+                throw new IllegalArgumentException("Unknown kernel " + name);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import imageLineExtractor.EdgeDetection;
+import imageLineExtractor.GrayPlane;
+
+@State(Scope.Benchmark)
+public class EdgeDetectionBenchmark extends StageBenchmark {
+
+    @Param({ "SOBEL", "SCHARR" })
+    public String filter;
+
+    private int[][] gradientFilter;
+
+    @Setup
+    public void setUp() {
+        gradientFilter = "SCHARR".equals(filter) ? EdgeDetection.SCHARR : EdgeDetection.SOBEL;
+    }
+
+    @Benchmark
+    public GrayPlane getThresholdGradient(ImageState state) {
+        return EdgeDetection.getThresholdGradient(state.blurred, gradientFilter, EdgeDetection.PRESET_ALPHA,
+                EdgeDetection.PRESET_BETA, false);
+    }
+}
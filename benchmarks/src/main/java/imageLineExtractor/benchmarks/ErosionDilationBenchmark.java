@@ -0,0 +1,20 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import imageLineExtractor.BinaryPlane;
+import imageLineExtractor.ErosionDilation;
+import imageLineExtractor.GrayPlane;
+
+public class ErosionDilationBenchmark extends StageBenchmark {
+
+    @Benchmark
+    public GrayPlane erosionAndDilation(ImageState state) {
+        return ErosionDilation.erosionAndDilation(state.thresholdGradient, false);
+    }
+
+    @Benchmark
+    public BinaryPlane binaryErosionAndDilation(ImageState state) {
+        return ErosionDilation.erosionAndDilation(state.binaryThresholdGradient, false);
+    }
+}
@@ -0,0 +1,36 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import imageLineExtractor.GaussianFilter;
+import imageLineExtractor.GrayPlane;
+import imageLineExtractor.HoughLineTransform;
+
+@State(Scope.Benchmark)
+public class GaussianFilterBenchmark extends StageBenchmark {
+
+    @Param({ "KERNEL3x3", "KERNEL5x5", "KERNEL7x7" })
+    public String kernel;
+
+    private int[][] blurKernel;
+
+    @Setup
+    public void setUp() {
+        blurKernel = BenchmarkImages.kernel(kernel);
+    }
+
+    @Benchmark
+    public GrayPlane applyGaussianFilter(ImageState state) {
+        return GaussianFilter.applyGaussianFilter(state.gray, blurKernel, false);
+    }
+
+    @Benchmark
+    public GrayPlane applySeparableGaussianFilter(ImageState state) {
+        return GaussianFilter.applySeparableGaussianFilter(state.gray, blurKernel, HoughLineTransform.SEQUENTIAL,
+                false);
+    }
+}
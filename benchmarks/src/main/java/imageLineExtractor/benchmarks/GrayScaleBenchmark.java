@@ -0,0 +1,30 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import imageLineExtractor.GrayPlane;
+import imageLineExtractor.GrayScale;
+import imageLineExtractor.GrayScaleFunction;
+
+@State(Scope.Benchmark)
+public class GrayScaleBenchmark extends StageBenchmark {
+
+    @Param({ "AVERAGE", "LUMINOSITY", "LIGHTNESS", "RED_CHANNEL_ONLY", "GREEN_CHANNEL_ONLY", "BLUE_CHANNEL_ONLY" })
+    public String function;
+
+    private GrayScaleFunction grayScaleFunction;
+
+    @Setup
+    public void setUp() {
+        grayScaleFunction = BenchmarkImages.grayScaleFunction(function);
+    }
+
+    @Benchmark
+    public GrayPlane applyGrayScale(ImageState state) {
+        return GrayScale.applyGrayScale(state.source, grayScaleFunction, false);
+    }
+}
@@ -0,0 +1,23 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import imageLineExtractor.HoughLineTransform;
+
+public class HoughLineTransformBenchmark extends StageBenchmark {
+
+    @Benchmark
+    public int[][] getLines(ImageState state) {
+        return HoughLineTransform.getLines(state.erodedAndDilated, 1, false);
+    }
+
+    @Benchmark
+    public int[][] getLinesFullSweep(ImageState state) {
+        return HoughLineTransform.getLines(state.erodedAndDilated, 1, HoughLineTransform.FULL_SWEEP, false);
+    }
+
+    @Benchmark
+    public int[][] getLinesBinary(ImageState state) {
+        return HoughLineTransform.getLines(state.binaryErodedAndDilated, 1, false);
+    }
+}
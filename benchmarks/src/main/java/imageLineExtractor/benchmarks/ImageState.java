@@ -0,0 +1,48 @@
+package imageLineExtractor.benchmarks;
+
+import java.awt.image.BufferedImage;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import imageLineExtractor.BinaryPlane;
+import imageLineExtractor.EdgeDetection;
+import imageLineExtractor.ErosionDilation;
+import imageLineExtractor.GaussianFilter;
+import imageLineExtractor.GrayPlane;
+import imageLineExtractor.GrayScale;
+
+/**
+ * One benchmark image together with the output of every default stage, so each
+ * stage benchmark measures only its own stage on realistic input.
+ */
+@State(Scope.Benchmark)
+public class ImageState {
+
+    @Param({ "input1.png", "input2.png", "input3.png", "input4.png", "input5.png", "input6.png", "input7.png",
+            "synthetic-640x480", "synthetic-1920x1080", "synthetic-4000x3000" })
+    public String image;
+
+    BufferedImage source;
+    GrayPlane gray;
+    GrayPlane blurred;
+    GrayPlane thresholdGradient;
+    GrayPlane erodedAndDilated;
+    BinaryPlane binaryThresholdGradient;
+    BinaryPlane binaryErodedAndDilated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = BenchmarkImages.load(image);
+        gray = GrayScale.applyGrayScale(source, GrayScale.AVERAGE, false);
+        blurred = GaussianFilter.applyGaussianFilter(gray, GaussianFilter.KERNEL3x3, false);
+        thresholdGradient = EdgeDetection.getThresholdGradient(blurred, EdgeDetection.SOBEL,
+                EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, false);
+        erodedAndDilated = ErosionDilation.erosionAndDilation(thresholdGradient, false);
+        binaryThresholdGradient = BinaryPlane.fromGrayPlane(thresholdGradient);
+        binaryErodedAndDilated = BinaryPlane.fromGrayPlane(erodedAndDilated);
+    }
+}
@@ -0,0 +1,20 @@
+package imageLineExtractor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import imageLineExtractor.LineCalculator;
+
+@State(Scope.Benchmark)
+public class LineCalculatorBenchmark extends StageBenchmark {
+
+    @Param({ "1", "2" })
+    public int scale;
+
+    @Benchmark
+    public int[][] calculateLines(ImageState state) {
+        return LineCalculator.calculateLines(state.source, scale, false);
+    }
+}
@@ -1,14 +1,27 @@
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import javax.imageio.ImageIO;
 
+import imageLineExtractor.BatchProcessor;
+import imageLineExtractor.DetectionServer;
 import imageLineExtractor.LineCalculator;
+import imageLineExtractor.LineDetector;
+import imageLineExtractor.ResultCache;
 import imageLineExtractor.SaveImage;
+import imageLineExtractor.ScalingMethod;
+import imageLineExtractor.ThresholdRule;
 
 public class Main {
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0) {
+            runBatch(args);
+            return;
+        }
         final long startTime = System.currentTimeMillis();
         String input = "input/input1.png";
         BufferedImage image = ImageIO.read(new File(input));
@@ -28,4 +41,73 @@ public class Main {
         final long endTime = System.currentTimeMillis();
         System.out.println("Total execution time: " + ((float) (endTime - startTime)) / 1000);
     }
+
+    private static void runBatch(String[] args) throws IOException, InterruptedException {
+        LineDetector detector = new LineDetector();
+        BatchProcessor processor = new BatchProcessor(detector);
+        DetectionServer server = new DetectionServer(detector);
+        int port = -1;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scale":
+                    detector.setScale(Integer.parseInt(args[++i]));
+                    break;
+                case "--subsample":
+                    detector.setScalingMethod(ScalingMethod.DECODE_SUBSAMPLING);
+                    break;
+                case "--area-average":
+                    detector.setScalingMethod(ScalingMethod.AREA_AVERAGE);
+                    break;
+                case "--threshold":
+                    detector.setThresholdRule(ThresholdRule.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+                    break;
+                case "--serve":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--decoders":
+                    processor.setDecoderThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "--detectors":
+                    int detectors = Integer.parseInt(args[++i]);
+                    processor.setDetectorThreads(detectors);
+                    server.setWorkerThreads(detectors);
+                    break;
+                case "--writers":
+                    processor.setWriterThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "--queue":
+                    int queueCapacity = Integer.parseInt(args[++i]);
+                    processor.setQueueCapacity(queueCapacity);
+                    server.setQueueCapacity(queueCapacity);
+                    break;
+                case "--cache":
+                    detector.setResultCache(new ResultCache().setDirectory(new File(args[++i])));
+                    break;
+                case "--overlays":
+                    File overlayDirectory = new File(args[++i]);
+                    overlayDirectory.mkdirs();
+                    processor.setOverlayDirectory(overlayDirectory);
+                    break;
+                default:
+                    paths.add(args[i]);
+            }
+        }
+        if (port >= 0) {
+            // The server threads keep the JVM running after main returns.
+            server.start(port);
+            System.err.println("Listening on " + server.getAddress());
+            return;
+        }
+        final long startTime = System.currentTimeMillis();
+        List<File> files = BatchProcessor.collectFiles(paths);
+        processor.process(files, result -> System.out.println(result.toJson()));
+        final long endTime = System.currentTimeMillis();
+        System.err.println("Processed " + files.size() + " images in " + ((float) (endTime - startTime)) / 1000 + "s");
+        ResultCache cache = detector.getResultCache();
+        if (cache != null) {
+            System.err.println("Cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+                    + cache.getEvictions() + " evictions");
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package imageLineExtractor;
+
+/**
+ * The file formats {@link DebugArtifactWriter} can write intermediate images in.
+ */
+public enum ArtifactFormat {
+
+    /**
+     * Compressed PNG files with the {@code .png} extension. Small, but slow to
+     * write for large images.
+     */
+    PNG,
+
+    /**
+     * Uncompressed binary Netpbm files: PGM ({@code .pgm}) for grayscale images
+     * and PPM ({@code .ppm}) for color images. Large, but written at disk speed.
+     */
+    PNM
+}
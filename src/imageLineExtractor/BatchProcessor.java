@@ -0,0 +1,324 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+
+public class BatchProcessor {
+
+    private static final int COLOR_RED = 0xFFFF0000;
+
+    private final LineDetector detector;
+    private int decoderThreads = 1;
+    private int detectorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int writerThreads = 1;
+    private int queueCapacity = 4;
+    private File overlayDirectory;
+
+    /**
+     * Creates a batch processor that detects lines with the given detector.
+     *
+     * Images go through three stages, each with its own pool of worker threads:
+     * decoding, line detection, and writing results. The stages are connected by
+     * bounded queues, so when decoding is faster than detection the decoders
+     * wait instead of filling memory with decoded images.
+     *
+     * @param detector The {@code LineDetector} used for every image. Its
+     *                 configuration (scale, kernels, thresholds) applies to the
+     *                 whole batch.
+     */
+    public BatchProcessor(LineDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Lists the image files to process from a list of paths.
+     *
+     * Directories are expanded to the image files they contain (by file
+     * extension, sorted by name), and a path starting with {@code @} is read as a
+     * text file with one path per line. Other paths are used as they are.
+     *
+     * @param paths The {@code String} paths given on the command line.
+     * @return the image files to process, in order.
+     * @throws IOException if a file list cannot be read.
+     */
+    public static List<File> collectFiles(List<String> paths) throws IOException {
+        List<String> suffixes = Arrays.asList(ImageIO.getReaderFileSuffixes());
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            if (path.startsWith("@")) {
+                List<String> listed = new ArrayList<>();
+                for (String line : Files.readAllLines(new File(path.substring(1)).toPath())) {
+                    if (!line.isBlank()) {
+                        listed.add(line.trim());
+                    }
+                }
+                files.addAll(collectFiles(listed));
+                continue;
+            }
+            File file = new File(path);
+            if (!file.isDirectory()) {
+                files.add(file);
+                continue;
+            }
+            File[] children = file.listFiles();
+            if (children == null) {
+                continue;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                String name = child.getName();
+                int dot = name.lastIndexOf('.');
+                if (child.isFile() && dot >= 0
+                        && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                    files.add(child);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Processes every file and reports one result per file.
+     *
+     * Results are reported from the writer threads in completion order, which
+     * can differ from the order of {@code files}; the consumer is never called
+     * concurrently. Images that cannot be decoded or processed, whatever the
+     * decoder or detector throws, are reported with an error instead of stopping
+     * the batch, so there is exactly one result per file. The method returns once
+     * every file has been reported.
+     *
+     * @param files   The image files to process.
+     * @param results The {@code Consumer} receiving a {@code BatchResult} per
+     *                file.
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for the batch to finish.
+     */
+    public void process(List<File> files, Consumer<BatchResult> results) throws InterruptedException {
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Job> detected = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger nextFile = new AtomicInteger();
+
+        List<Thread> decoders = start("decoder", decoderThreads, () -> {
+            for (int i = nextFile.getAndIncrement(); i < files.size(); i = nextFile.getAndIncrement()) {
+                decoded.put(decode(files.get(i)));
+            }
+        });
+        List<Thread> detectors = start("detector", detectorThreads, () -> {
+            for (Job job = decoded.take(); job != Job.END; job = decoded.take()) {
+                detected.put(detect(job));
+            }
+        });
+        List<Thread> writers = start("writer", writerThreads, () -> {
+            for (Job job = detected.take(); job != Job.END; job = detected.take()) {
+                BatchResult result = write(job);
+                synchronized (results) {
+                    results.accept(result);
+                }
+            }
+        });
+
+        join(decoders);
+        for (int i = 0; i < detectorThreads; i++) {
+            decoded.put(Job.END);
+        }
+        join(detectors);
+        for (int i = 0; i < writerThreads; i++) {
+            detected.put(Job.END);
+        }
+        join(writers);
+    }
+
+    private Job decode(File file) {
+        Job job = new Job(file);
+        long start = System.nanoTime();
+        try {
+            job.subsampling = detector.getSubsampling();
+            job.image = ImageInput.read(file, null, job.subsampling);
+            if (job.image == null) {
+                job.error = "Unsupported image format";
+            }
+        } catch (IOException e) {
+            job.error = "Cannot read image: " + e.getMessage();
+        } catch (Throwable e) {
+            job.error = "Cannot decode image: " + e;
+        }
+        job.decodeMillis = (System.nanoTime() - start) / 1_000_000;
+        return job;
+    }
+
+    private Job detect(Job job) {
+        if (job.error != null) {
+            return job;
+        }
+        long start = System.nanoTime();
+        try {
+            job.linesCoords = detector.calculateLines(job.image, job.subsampling, false);
+        } catch (Throwable e) {
+            job.error = "Detection failed: " + e;
+        }
+        if (overlayDirectory == null) {
+            job.image = null;
+        }
+        job.detectMillis = (System.nanoTime() - start) / 1_000_000;
+        return job;
+    }
+
+    private BatchResult write(Job job) {
+        long start = System.nanoTime();
+        if (job.error == null && overlayDirectory != null) {
+            try {
+                BufferedImage overlay = drawLines(job.image, job.linesCoords, job.subsampling);
+                String name = job.file.getName();
+                int dot = name.lastIndexOf('.');
+                ImageIO.write(overlay, "png",
+                        new File(overlayDirectory, (dot > 0 ? name.substring(0, dot) : name) + ".png"));
+            } catch (IOException e) {
+                job.error = "Cannot write overlay: " + e.getMessage();
+            } catch (Throwable e) {
+                job.error = "Cannot draw overlay: " + e;
+            }
+        }
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BatchResult(job.file, job.error == null ? job.linesCoords : null, job.decodeMillis,
+                job.detectMillis, writeMillis, job.error);
+    }
+
+    // The overlay has the size of the decoded image, so lines of a subsampled
+    // image are drawn at their subsampled position.
+    private static BufferedImage drawLines(BufferedImage image, int[][] linesCoords, int subsampling) {
+        BufferedImage overlay = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        overlay.getGraphics().drawImage(image, 0, 0, null);
+        for (int fullLine : linesCoords[0]) {
+            int line = fullLine / subsampling;
+            for (int j = 0; line >= 0 && line < overlay.getHeight() && j < overlay.getWidth(); j++) {
+                overlay.setRGB(j, line, COLOR_RED);
+            }
+        }
+        for (int fullLine : linesCoords[1]) {
+            int line = fullLine / subsampling;
+            for (int j = 0; line >= 0 && line < overlay.getWidth() && j < overlay.getHeight(); j++) {
+                overlay.setRGB(line, j, COLOR_RED);
+            }
+        }
+        return overlay;
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        void run() throws InterruptedException;
+    }
+
+    private static List<Thread> start(String name, int count, Worker worker) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "batch-" + name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Sets the number of threads decoding images.
+     *
+     * @param decoderThreads The number of decoder threads, at least 1.
+     * @return this processor.
+     */
+    public BatchProcessor setDecoderThreads(int decoderThreads) {
+        this.decoderThreads = Math.max(1, decoderThreads);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads detecting lines.
+     *
+     * @param detectorThreads The number of detector threads, at least 1.
+     * @return this processor.
+     */
+    public BatchProcessor setDetectorThreads(int detectorThreads) {
+        this.detectorThreads = Math.max(1, detectorThreads);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads writing results and overlay images.
+     *
+     * @param writerThreads The number of writer threads, at least 1.
+     * @return this processor.
+     */
+    public BatchProcessor setWriterThreads(int writerThreads) {
+        this.writerThreads = Math.max(1, writerThreads);
+        return this;
+    }
+
+    /**
+     * Sets how many images may wait between two stages.
+     *
+     * Together with the thread counts this bounds the number of decoded images
+     * held in memory at once.
+     *
+     * @param queueCapacity The capacity of each queue, at least 1.
+     * @return this processor.
+     */
+    public BatchProcessor setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        return this;
+    }
+
+    /**
+     * Sets the directory overlay images are written to.
+     *
+     * Each overlay is a PNG copy of the input image with the detected lines drawn
+     * in red, named after the input file.
+     *
+     * @param overlayDirectory The output directory, or {@code null} to write no
+     *                         overlay images.
+     * @return this processor.
+     */
+    public BatchProcessor setOverlayDirectory(File overlayDirectory) {
+        this.overlayDirectory = overlayDirectory;
+        return this;
+    }
+
+    private static class Job {
+
+        static final Job END = new Job(null);
+
+        final File file;
+        BufferedImage image;
+        int subsampling = 1;
+        int[][] linesCoords;
+        String error;
+        long decodeMillis;
+        long detectMillis;
+
+        Job(File file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package imageLineExtractor;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class BatchResult {
+
+    private final File file;
+    private final int[][] linesCoords;
+    private final int squareSize;
+    private final long decodeMillis;
+    private final long detectMillis;
+    private final long writeMillis;
+    private final String error;
+
+    BatchResult(File file, int[][] linesCoords, long decodeMillis, long detectMillis, long writeMillis,
+            String error) {
+        this.file = file;
+        this.linesCoords = linesCoords;
+        this.squareSize = linesCoords == null ? -1 : safeSquareSize(linesCoords);
+        this.decodeMillis = decodeMillis;
+        this.detectMillis = detectMillis;
+        this.writeMillis = writeMillis;
+        this.error = error;
+    }
+
+    static int safeSquareSize(int[][] linesCoords) {
+        if (linesCoords[0].length < 2 && linesCoords[1].length < 2) {
+            return -1;
+        }
+        return LineCalculator.getSquareSize(linesCoords);
+    }
+
+    /**
+     * @return the processed image file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the detected lines in the format of
+     *         {@link LineCalculator#calculateLines}, or {@code null} if the image
+     *         could not be processed.
+     */
+    public int[][] getLinesCoords() {
+        return linesCoords;
+    }
+
+    /**
+     * @return the median square size of the detected grid, or {@code -1} if there
+     *         are not enough lines to calculate it.
+     */
+    public int getSquareSize() {
+        return squareSize;
+    }
+
+    /**
+     * @return the time spent decoding the image, in milliseconds.
+     */
+    public long getDecodeMillis() {
+        return decodeMillis;
+    }
+
+    /**
+     * @return the time spent detecting lines, in milliseconds.
+     */
+    public long getDetectMillis() {
+        return detectMillis;
+    }
+
+    /**
+     * @return the time spent writing the overlay image, in milliseconds.
+     */
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+    /**
+     * @return the error message if the image could not be processed, otherwise
+     *         {@code null}.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Formats this result as a single-line JSON object.
+     *
+     * @return a {@code String} with the file name, the horizontal and vertical
+     *         lines, the square size and the per-stage timings, or the error.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"file\":").append(quote(file.getPath()));
+        if (error != null) {
+            return json.append(",\"error\":").append(quote(error)).append('}').toString();
+        }
+        json.append(",\"horizontal\":").append(Arrays.toString(linesCoords[0]).replace(" ", ""));
+        json.append(",\"vertical\":").append(Arrays.toString(linesCoords[1]).replace(" ", ""));
+        json.append(",\"squareSize\":").append(squareSize);
+        json.append(",\"decodeMs\":").append(decodeMillis);
+        json.append(",\"detectMs\":").append(detectMillis);
+        json.append(",\"writeMs\":").append(writeMillis);
+        return json.append('}').toString();
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,175 @@
+package imageLineExtractor;
+
+import java.util.Arrays;
+
+public class BinaryPlane {
+
+    private static final int COLOR_WHITE = 0xFF;
+    private static final int WORD_BITS = 64;
+
+    private final long[] words;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+
+    /**
+     * Creates an empty (black) binary plane of the given size.
+     *
+     * The plane stores one bit per pixel, 64 pixels to a {@code long}. Every row
+     * starts at a new word, and the pixel at column {@code x} is bit
+     * {@code x % 64} of word {@code x / 64} of its row, so the pixel to the right
+     * of a pixel is the next higher bit. The bits past the last column of a row
+     * are always {@code 0}.
+     *
+     * @param width  The width of the plane in pixels.
+     * @param height The height of the plane in pixels.
+     */
+    public BinaryPlane(int width, int height) {
+        this(new long[wordsPerRow(width) * Math.max(height, 0)], width, height);
+    }
+
+    private BinaryPlane(long[] words, int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid plane geometry " + width + "x" + height);
+        }
+        this.words = words;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow(width);
+    }
+
+    /**
+     * Packs a binary {@code GrayPlane} into a binary plane.
+     *
+     * @param image The binary {@code GrayPlane}; white ({@code 255}) pixels are
+     *              set, all others are cleared.
+     * @return a new {@code BinaryPlane} with the white pixels of the image.
+     */
+    public static BinaryPlane fromGrayPlane(GrayPlane image) {
+        BinaryPlane plane = new BinaryPlane(image.getWidth(), image.getHeight());
+        for (int i = 0; i < image.getHeight(); i++) {
+            plane.setRow(i, image.getData(), i * image.getStride());
+        }
+        return plane;
+    }
+
+    /**
+     * Unpacks this plane into a binary {@code GrayPlane}.
+     *
+     * @return a new {@code GrayPlane} with set pixels white ({@code 255}) and
+     *         cleared pixels black.
+     */
+    public GrayPlane toGrayPlane() {
+        return toGrayPlane(new GrayPlane(width, height));
+    }
+
+    GrayPlane toGrayPlane(GrayPlane target) {
+        byte[] data = target.getData();
+        int stride = target.getStride();
+        for (int i = 0; i < height; i++) {
+            int rowStart = i * stride;
+            for (int j = 0; j < width; j++) {
+                data[rowStart + j] = (byte) ((words[i * wordsPerRow + (j >>> 6)] >>> j & 1) * COLOR_WHITE);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Copies this plane.
+     *
+     * @return a new {@code BinaryPlane} with the same size and pixels.
+     */
+    public BinaryPlane copy() {
+        return new BinaryPlane(Arrays.copyOf(words, words.length), width, height);
+    }
+
+    // Packs one row of a binary gray image, where white pixels are set.
+    void setRow(int row, byte[] pixels, int offset) {
+        int rowStart = row * wordsPerRow;
+        for (int k = 0; k < wordsPerRow; k++) {
+            long word = 0;
+            int from = k * WORD_BITS;
+            int to = Math.min(width, from + WORD_BITS);
+            for (int j = to - 1; j >= from; j--) {
+                word = word << 1 | ((pixels[offset + j] & COLOR_WHITE) == COLOR_WHITE ? 1 : 0);
+            }
+            words[rowStart + k] = word;
+        }
+    }
+
+    /**
+     * Returns whether a pixel is set.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return {@code true} if the pixel is set (white).
+     */
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] >>> x & 1) != 0;
+    }
+
+    /**
+     * Sets or clears a pixel.
+     *
+     * @param x     The column of the pixel.
+     * @param y     The row of the pixel.
+     * @param value {@code true} to set the pixel, {@code false} to clear it.
+     */
+    public void set(int x, int y, boolean value) {
+        int index = y * wordsPerRow + (x >>> 6);
+        if (value) {
+            words[index] |= 1L << x;
+        } else {
+            words[index] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * @return the number of set pixels.
+     */
+    public long count() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the backing array of this plane.
+     *
+     * Stages use this to process 64 pixels at a time instead of going through
+     * {@link #get} and {@link #set} for every pixel.
+     *
+     * @return the {@code long[]} backing this plane.
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * @return the width of this plane in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of this plane in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of {@code long} words of every row.
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    static int wordsPerRow(int width) {
+        return Math.max(width + WORD_BITS - 1, 0) / WORD_BITS;
+    }
+}
@@ -0,0 +1,30 @@
+package imageLineExtractor;
+
+/**
+ * The ways {@link LineDetector} can blur the grayscale image when the stages
+ * run separately.
+ */
+public enum BlurMethod {
+
+    /**
+     * The image is convolved with the blur kernel tap by tap on a single
+     * thread, with {@link GaussianFilter#applyGaussianFilter}.
+     */
+    DIRECT,
+
+    /**
+     * The blur kernel is applied as a horizontal and a vertical pass in
+     * parallel strips, with {@link GaussianFilter#applySeparableGaussianFilter}.
+     * The result is identical to {@link #DIRECT}.
+     */
+    SEPARABLE,
+
+    /**
+     * The blur kernel is replaced by three box filters of the blur sigma in
+     * each direction, in parallel strips, with
+     * {@link GaussianFilter#applyRecursiveGaussianFilter}. The cost does not
+     * grow with the sigma, so large blurs for noisy scans are as cheap as
+     * small ones.
+     */
+    RECURSIVE
+}
@@ -0,0 +1,226 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+public class DebugArtifactWriter {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+    private static final DebugArtifactWriter DEFAULT = new DebugArtifactWriter(new File("output"));
+
+    private final File outputDirectory;
+    private final BlockingQueue<Artifact> queue;
+    private volatile ArtifactFormat format = ArtifactFormat.PNG;
+    private Thread thread;
+    private int pending;
+
+    /**
+     * Creates a writer that writes images to the given directory.
+     *
+     * Images are handed over to a queue and written by a single background
+     * thread, so the stages producing them do not wait for compression or disk
+     * access. When the queue is full, the producing stage waits until there is
+     * room again, which bounds the memory held by pending images. Pending images
+     * are written before the JVM exits.
+     *
+     * @param outputDirectory The directory the images are written to.
+     */
+    public DebugArtifactWriter(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        this.queue = new ArrayBlockingQueue<>(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @return the writer used by {@link SaveImage}, writing to the
+     *         {@code output} directory.
+     */
+    public static DebugArtifactWriter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Queues a {@code BufferedImage} to be written.
+     *
+     * The image is not copied; it is handed over to the writer and must not be
+     * changed afterwards.
+     *
+     * @param fileName The name of the file, without the extension.
+     * @param image    The {@code BufferedImage} to be written.
+     */
+    public void write(String fileName, BufferedImage image) {
+        render(fileName, () -> image);
+    }
+
+    /**
+     * Queues a {@code GrayPlane} to be written.
+     *
+     * The plane is copied, so the caller can reuse it right away.
+     *
+     * @param fileName The name of the file, without the extension.
+     * @param image    The {@code GrayPlane} to be written.
+     */
+    public void write(String fileName, GrayPlane image) {
+        GrayPlane copy = image.copy();
+        render(fileName, copy::toBufferedImage);
+    }
+
+    /**
+     * Queues an image that is rendered on the writer thread.
+     *
+     * This lets visualizations be built from data the producing stage has
+     * already handed over, instead of being drawn while the stage runs. The
+     * renderer must only use data that is not changed after this call.
+     *
+     * @param fileName The name of the file, without the extension.
+     * @param renderer The {@code Supplier} creating the image to be written.
+     */
+    public void render(String fileName, Supplier<BufferedImage> renderer) {
+        Artifact artifact = new Artifact(fileName, format, renderer);
+        synchronized (this) {
+            startThread();
+            pending++;
+        }
+        try {
+            queue.put(artifact);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished();
+        }
+    }
+
+    /**
+     * Waits until every queued image has been written.
+     */
+    public synchronized void flush() {
+        try {
+            while (pending > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startThread() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::writeArtifacts, "debug-artifact-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "debug-artifact-flush"));
+    }
+
+    private void writeArtifacts() {
+        while (true) {
+            Artifact artifact;
+            try {
+                artifact = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                writeArtifact(artifact);
+            } catch (IOException | RuntimeException e) {
+            } finally {
+                finished();
+            }
+        }
+    }
+
+    private synchronized void finished() {
+        pending--;
+        notifyAll();
+    }
+
+    private void writeArtifact(Artifact artifact) throws IOException {
+        BufferedImage image = artifact.renderer.get();
+        if (image == null) {
+            return;
+        }
+        outputDirectory.mkdirs();
+        if (artifact.format == ArtifactFormat.PNG) {
+            ImageIO.write(image, "png", new File(outputDirectory, artifact.fileName + ".png"));
+            return;
+        }
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        File file = new File(outputDirectory, artifact.fileName + (gray ? ".pgm" : ".ppm"));
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writePnm(image, gray, out);
+        }
+    }
+
+    private static void writePnm(BufferedImage image, boolean gray, OutputStream out) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        out.write(((gray ? "P5" : "P6") + "\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+        if (gray) {
+            byte[] row = new byte[width];
+            for (int i = 0; i < height; i++) {
+                image.getRaster().getDataElements(0, i, width, 1, row);
+                out.write(row);
+            }
+            return;
+        }
+        int[] row = new int[width];
+        byte[] rgb = new byte[width * 3];
+        for (int i = 0; i < height; i++) {
+            image.getRGB(0, i, width, 1, row, 0, width);
+            for (int j = 0; j < width; j++) {
+                rgb[j * 3] = (byte) (row[j] >> 16);
+                rgb[j * 3 + 1] = (byte) (row[j] >> 8);
+                rgb[j * 3 + 2] = (byte) row[j];
+            }
+            out.write(rgb);
+        }
+    }
+
+    /**
+     * Sets the format of the images queued from now on.
+     *
+     * @param format The {@code ArtifactFormat}, {@link ArtifactFormat#PNG} by
+     *               default.
+     * @return this writer.
+     */
+    public DebugArtifactWriter setFormat(ArtifactFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * @return the format of the images queued from now on.
+     */
+    public ArtifactFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the directory the images are written to.
+     */
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    private static class Artifact {
+
+        final String fileName;
+        final ArtifactFormat format;
+        final Supplier<BufferedImage> renderer;
+
+        Artifact(String fileName, ArtifactFormat format, Supplier<BufferedImage> renderer) {
+            this.fileName = fileName;
+            this.format = format;
+            this.renderer = renderer;
+        }
+    }
+}
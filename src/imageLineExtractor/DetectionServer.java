@@ -0,0 +1,466 @@
+package imageLineExtractor;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class DetectionServer {
+
+    /**
+     * The default port the server listens on.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The default largest upload accepted, in bytes.
+     */
+    public static final int DEFAULT_MAX_UPLOAD_BYTES = 64 << 20;
+
+    /**
+     * The default largest image accepted, in pixels.
+     */
+    public static final long DEFAULT_MAX_IMAGE_PIXELS = 100_000_000L;
+
+    private static final int LATENCY_WINDOW = 1024;
+
+    private final LineDetector detector;
+    private int workerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int queueCapacity = 16;
+    private int maxUploadBytes = DEFAULT_MAX_UPLOAD_BYTES;
+    private long maxImagePixels = DEFAULT_MAX_IMAGE_PIXELS;
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ThreadPoolExecutor workers;
+    // One permit per worker and queue slot, taken before an upload is read,
+    // so at most that many uploads are ever held in memory.
+    private Semaphore admissions;
+
+    // Counters and the latencies of the last requests, for the metrics.
+    private long startNanos;
+    private long accepted;
+    private long completed;
+    private long rejected;
+    private long failed;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long latencyCount;
+
+    /**
+     * Creates a server that detects lines in uploaded images with the given
+     * detector.
+     *
+     * Every request is handled on its own virtual thread when the JVM has them,
+     * and on a thread of a growing pool otherwise, so slow uploads and slow
+     * clients never hold up detection. Decoding and detection run on a fixed
+     * pool of worker threads, which keeps the working memory of the detector
+     * warm from request to request and never runs more detections than there
+     * are workers. Requests that find every worker busy wait in a bounded
+     * queue, and when that is full too they are rejected right away with
+     * {@code 503 Service Unavailable}. A request takes its place before its
+     * body is read, and an upload whose {@code Content-Length} is above the
+     * limit is rejected without reading it, so only as many uploads as there
+     * are workers and queue slots are ever held in memory. The size of an
+     * image is read from its header before it is handed to a worker, and
+     * images with more pixels than the limit are rejected without decoding
+     * them, since a small compressed upload can decode to a huge image.
+     *
+     * The server answers {@code POST /lines} with the image as the request
+     * body, and {@code GET /metrics} with the request counters, the throughput
+     * and the latency percentiles, all as JSON.
+     *
+     * @param detector The {@code LineDetector} used for every request.
+     */
+    public DetectionServer(LineDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Starts listening on the given port of every interface.
+     *
+     * @param port The port, or {@code 0} for any free port.
+     * @return this server.
+     * @throws IOException if the port cannot be bound.
+     */
+    public DetectionServer start(int port) throws IOException {
+        return start(new InetSocketAddress(port));
+    }
+
+    /**
+     * Starts listening on the given address.
+     *
+     * @param address The {@code InetSocketAddress} to bind.
+     * @return this server.
+     * @throws IOException if the address cannot be bound.
+     */
+    public synchronized DetectionServer start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already running on " + server.getAddress());
+        }
+        HttpServer httpServer = HttpServer.create(address, 0);
+        handlers = newHandlerExecutor();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("detection-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        admissions = new Semaphore(workerThreads + queueCapacity);
+        httpServer.setExecutor(handlers);
+        httpServer.createContext("/lines", this::handleLines);
+        httpServer.createContext("/metrics", this::handleMetrics);
+        startNanos = System.nanoTime();
+        httpServer.start();
+        server = httpServer;
+        return this;
+    }
+
+    /**
+     * Stops the server, letting the requests being handled finish for at most
+     * the given delay.
+     *
+     * @param delaySeconds The longest time to wait for running requests.
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server == null) {
+            return;
+        }
+        server.stop(delaySeconds);
+        workers.shutdownNow();
+        handlers.shutdownNow();
+        server = null;
+    }
+
+    // Virtual threads only exist from Java 21 on, so they are looked up at
+    // run time and the server falls back to a cached pool of platform threads.
+    private static ExecutorService newHandlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads("detection-handler"));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void handleLines(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("Use POST with the image as the body"));
+                return;
+            }
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            try {
+                if (length != null && Long.parseLong(length) > maxUploadBytes) {
+                    send(exchange, 413, error("Image is larger than " + maxUploadBytes + " bytes"));
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                send(exchange, 400, error("Invalid Content-Length " + length));
+                return;
+            }
+            Semaphore permits = admissions;
+            if (!permits.tryAcquire()) {
+                sendTooManyRequests(exchange);
+                return;
+            }
+            try {
+                answer(exchange, start);
+            } finally {
+                permits.release();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Reads the upload and answers it, holding an admission permit.
+    private void answer(HttpExchange exchange, long start) throws IOException {
+        byte[] upload = readUpload(exchange.getRequestBody());
+        if (upload == null) {
+            send(exchange, 413, error("Image is larger than " + maxUploadBytes + " bytes"));
+            return;
+        }
+        Dimension size;
+        try {
+            size = ImageInput.readSize(new ByteArrayInputStream(upload));
+        } catch (IOException e) {
+            // Uploads without a readable header are left to the decoder, which
+            // reports them as bad uploads.
+            size = null;
+        }
+        if (size != null && (long) size.width * size.height > maxImagePixels) {
+            send(exchange, 413, error("Image of " + size.width + "x" + size.height + " pixels is larger than "
+                    + maxImagePixels + " pixels"));
+            return;
+        }
+        Future<String> result;
+        try {
+            result = workers.submit(() -> detect(upload, start));
+        } catch (RejectedExecutionException e) {
+            sendTooManyRequests(exchange);
+            return;
+        }
+        synchronized (this) {
+            accepted++;
+        }
+        String json;
+        try {
+            json = result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            synchronized (this) {
+                failed++;
+            }
+            if (cause instanceof IOException) {
+                send(exchange, 400, error(cause.getMessage()));
+            } else {
+                send(exchange, 500, error("Detection failed: " + cause));
+            }
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            return;
+        }
+        send(exchange, 200, json);
+        recordLatency(System.nanoTime() - start);
+    }
+
+    private void sendTooManyRequests(HttpExchange exchange) throws IOException {
+        synchronized (this) {
+            rejected++;
+        }
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        send(exchange, 503, error("Too many requests waiting"));
+    }
+
+    // Reads the whole body, or returns null when it is larger than the limit.
+    private byte[] readUpload(InputStream body) throws IOException {
+        byte[] upload = body.readNBytes(maxUploadBytes + 1);
+        return upload.length > maxUploadBytes ? null : upload;
+    }
+
+    private String detect(byte[] upload, long start) throws IOException {
+        long detectStart = System.nanoTime();
+        int subsampling = detector.getSubsampling();
+        BufferedImage image;
+        try {
+            image = ImageInput.read(new ByteArrayInputStream(upload), null, subsampling);
+        } catch (IllegalArgumentException e) {
+            // An image too small to subsample is a bad upload, not a failure of
+            // the server.
+            throw new IOException("Cannot decode image: " + e.getMessage(), e);
+        }
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int[][] linesCoords = detector.calculateLines(image, subsampling, false);
+        long detectEnd = System.nanoTime();
+        StringBuilder json = new StringBuilder("{\"horizontal\":")
+                .append(Arrays.toString(linesCoords[0]).replace(" ", ""));
+        json.append(",\"vertical\":").append(Arrays.toString(linesCoords[1]).replace(" ", ""));
+        json.append(",\"squareSize\":").append(BatchResult.safeSquareSize(linesCoords));
+        json.append(",\"queueMs\":").append((detectStart - start) / 1_000_000);
+        json.append(",\"detectMs\":").append((detectEnd - detectStart) / 1_000_000);
+        return json.append('}').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + BatchResult.quote(String.valueOf(message)) + "}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        completed++;
+        latencies[(int) (latencyCount++ % LATENCY_WINDOW)] = nanos;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, metricsJson());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Formats the metrics of the server as a single-line JSON object.
+     *
+     * The latencies are measured from the moment a request is handled to the
+     * moment its answer is sent, over the last 1024 successful requests, and
+     * the throughput is the number of successful requests per second since the
+     * server was started.
+     *
+     * @return a {@code String} with the request counters, the number of
+     *         requests running and waiting, the throughput and the latency
+     *         percentiles in milliseconds.
+     */
+    public synchronized String metricsJson() {
+        double uptimeSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long[] window = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_WINDOW));
+        Arrays.sort(window);
+        StringBuilder json = new StringBuilder("{\"uptimeSeconds\":").append(format(uptimeSeconds));
+        json.append(",\"accepted\":").append(accepted);
+        json.append(",\"completed\":").append(completed);
+        json.append(",\"failed\":").append(failed);
+        json.append(",\"rejected\":").append(rejected);
+        json.append(",\"running\":").append(workers == null ? 0 : workers.getActiveCount());
+        json.append(",\"waiting\":").append(workers == null ? 0 : workers.getQueue().size());
+        json.append(",\"throughputPerSecond\":").append(format(uptimeSeconds > 0 ? completed / uptimeSeconds : 0));
+        json.append(",\"latencyMs\":{\"p50\":").append(format(percentile(window, 0.5)));
+        json.append(",\"p90\":").append(format(percentile(window, 0.9)));
+        json.append(",\"p99\":").append(format(percentile(window, 0.99)));
+        json.append(",\"max\":").append(format(percentile(window, 1)));
+        json.append('}');
+        ResultCache cache = detector.getResultCache();
+        if (cache != null) {
+            json.append(",\"cache\":{\"hits\":").append(cache.getHits());
+            json.append(",\"misses\":").append(cache.getMisses());
+            json.append(",\"evictions\":").append(cache.getEvictions()).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    // The nearest-rank percentile of sorted latencies, in milliseconds.
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Sets the number of threads decoding images and detecting lines.
+     *
+     * @param workerThreads The number of worker threads, at least 1. Takes
+     *                      effect the next time the server is started.
+     * @return this server.
+     */
+    public DetectionServer setWorkerThreads(int workerThreads) {
+        this.workerThreads = Math.max(1, workerThreads);
+        return this;
+    }
+
+    /**
+     * Sets how many requests may wait for a worker before new requests are
+     * rejected.
+     *
+     * @param queueCapacity The capacity of the queue, at least 1. Takes effect
+     *                      the next time the server is started.
+     * @return this server.
+     */
+    public DetectionServer setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        return this;
+    }
+
+    /**
+     * Sets the largest upload accepted; larger uploads are rejected with
+     * {@code 413 Payload Too Large}.
+     *
+     * @param maxUploadBytes The largest upload in bytes.
+     * @return this server.
+     */
+    public DetectionServer setMaxUploadBytes(int maxUploadBytes) {
+        this.maxUploadBytes = maxUploadBytes;
+        return this;
+    }
+
+    /**
+     * Sets the largest image accepted, read from the header of the upload;
+     * larger images are rejected with {@code 413 Payload Too Large} before
+     * they are decoded.
+     *
+     * @param maxImagePixels The largest width times height, at least 1.
+     * @return this server.
+     */
+    public DetectionServer setMaxImagePixels(long maxImagePixels) {
+        if (maxImagePixels < 1) {
+            throw new IllegalArgumentException("Largest image must be at least 1 pixel, was " + maxImagePixels);
+        }
+        this.maxImagePixels = maxImagePixels;
+        return this;
+    }
+
+    /**
+     * @return the detector used for every request.
+     */
+    public LineDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * @return the number of threads decoding images and detecting lines.
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * @return how many requests may wait for a worker.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return the largest upload accepted, in bytes.
+     */
+    public int getMaxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    /**
+     * @return the largest image accepted, in pixels.
+     */
+    public long getMaxImagePixels() {
+        return maxImagePixels;
+    }
+
+    /**
+     * @return the address the server listens on, or {@code null} if it is not
+     *         running.
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return server == null ? null : server.getAddress();
+    }
+}
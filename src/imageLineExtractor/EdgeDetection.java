@@ -1,14 +1,15 @@
 package imageLineExtractor;
 
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Arrays;
 
 public class EdgeDetection {
 
     private static final int GRAY_MASK = 0xFF;
-    private static final int COLOR_WHITE = 0xFFFFFF;
+    private static final int COLOR_WHITE = 0xFF;
     private static final int COLOR_BLACK = 0;
+    // Marks a pixel between the hysteresis thresholds that is not linked to an
+    // edge yet.
+    private static final byte WEAK_EDGE = 1;
 
     /**
      * The Sobel operator kernel for edge detection.
@@ -55,7 +56,15 @@ public class EdgeDetection {
     public static final double PRESET_BETA = 0.5;
 
     /**
-     * Converts a grayscaled {@code BufferedImage} to a thresholded gradient image.
+     * The default percentile for {@link ThresholdRule#PERCENTILE}.
+     *
+     * With this value ({@code 0.95}), the pixels with the strongest five percent
+     * of the gradients are classified as edges.
+     */
+    public static final double PRESET_PERCENTILE = 0.95;
+
+    /**
+     * Converts a grayscaled {@code GrayPlane} to a thresholded gradient image.
      * 
      * This method computes the gradient of a grayscaled image using the specified
      * filter and applies thresholding based on the provided alpha (upper threshold)
@@ -64,7 +73,7 @@ public class EdgeDetection {
      * The result is a binary image highlighting edges or significant features based
      * on the gradient and thresholding criteria.
      *
-     * @param image     The {@code BufferedImage} to be processed.
+     * @param image     The {@code GrayPlane} to be processed.
      * @param filter    The {@code int[][]} filter to be used for gradient
      *                  calculation.
      * @param alpha     The upper threshold value for the gradient. Pixels with a
@@ -75,200 +84,410 @@ public class EdgeDetection {
      *                  considered as background.
      * @param saveImage A {@code boolean} flag that determines whether the processed
      *                  image should be saved.
-     * @return a binary {@code BufferedImage} that has been thresholded based on the
+     * @return a binary {@code GrayPlane} that has been thresholded based on the
      *         gradient.
      */
-    public static BufferedImage getThresholdGradient(BufferedImage image, int[][] filter, double alpha, double beta,
+    public static GrayPlane getThresholdGradient(GrayPlane image, int[][] filter, double alpha, double beta,
             boolean saveImage) {
-        AtomicInteger maxGradient = new AtomicInteger(-1);
-        BufferedImage gradientImage = calculateGradientAndAngle(image, filter, null, maxGradient, saveImage);
-        BufferedImage thresholdGradient = thresholdGradient(gradientImage, maxGradient, alpha, beta, saveImage);
+        return getThresholdGradient(image, filter, ThresholdRule.ALPHA_BETA, alpha, beta, PRESET_PERCENTILE,
+                saveImage);
+    }
+
+    /**
+     * Converts a grayscaled {@code GrayPlane} to a thresholded gradient image,
+     * with the threshold chosen by the given rule.
+     *
+     * While the gradient is computed, every strip counts the gradient magnitudes
+     * of its rows in its own histogram. The histograms are merged once the
+     * gradient is complete and the threshold is chosen from them, so neither the
+     * largest gradient nor the threshold needs another pass over the image.
+     *
+     * @param image      The {@code GrayPlane} to be processed.
+     * @param filter     The {@code int[][]} filter to be used for gradient
+     *                   calculation.
+     * @param rule       The {@code ThresholdRule} choosing the threshold.
+     * @param alpha      The upper threshold value for
+     *                   {@link ThresholdRule#ALPHA_BETA}.
+     * @param beta       The lower threshold value for
+     *                   {@link ThresholdRule#ALPHA_BETA}.
+     * @param percentile The share of pixels, from {@code 0} to {@code 1}, whose
+     *                   gradient is at most the threshold for
+     *                   {@link ThresholdRule#PERCENTILE}.
+     * @param saveImage  A {@code boolean} flag that determines whether the
+     *                   processed image should be saved.
+     * @return a binary {@code GrayPlane} that has been thresholded based on the
+     *         gradient.
+     */
+    public static GrayPlane getThresholdGradient(GrayPlane image, int[][] filter, ThresholdRule rule, double alpha,
+            double beta, double percentile, boolean saveImage) {
+        return getThresholdGradient(image, filter, rule, alpha, beta, percentile,
+                HoughLineTransform.DEFAULT_PARALLELISM, null, (GrayPlane) null, saveImage);
+    }
+
+    static GrayPlane getThresholdGradient(GrayPlane image, int[][] filter, double alpha, double beta,
+            int parallelism, GrayPlane gradientTarget, GrayPlane target, boolean saveImage) {
+        return getThresholdGradient(image, filter, ThresholdRule.ALPHA_BETA, alpha, beta, PRESET_PERCENTILE,
+                parallelism, gradientTarget, target, saveImage);
+    }
+
+    // The target may be the gradient image itself, which is then thresholded in
+    // place.
+    static GrayPlane getThresholdGradient(GrayPlane image, int[][] filter, ThresholdRule rule, double alpha,
+            double beta, double percentile, int parallelism, GrayPlane gradientTarget, GrayPlane target,
+            boolean saveImage) {
+        GrayPlane gradientImage = gradientTarget != null ? gradientTarget
+                : new GrayPlane(image.getWidth(), image.getHeight());
+        GradientHistogram histogram = calculateGradient(image, filter, parallelism, gradientImage);
+        SaveImage.saveImage(gradientImage, "gradient", saveImage);
+        int threshold = histogram.threshold(rule, alpha, beta, percentile);
+        GrayPlane thresholdGradient = thresholdGradient(gradientImage, threshold, parallelism, target, saveImage);
         return thresholdGradient;
     }
 
-    private static BufferedImage calculateGradientAndAngle(BufferedImage image, int[][] filter, double[][] angleTable,
-            AtomicInteger maxGradient, boolean saveImage) {
+    // The same, packing the binary image into bits as it is thresholded instead
+    // of writing a byte per pixel first.
+    static BinaryPlane getThresholdGradient(GrayPlane image, int[][] filter, ThresholdRule rule, double alpha,
+            double beta, double percentile, int parallelism, GrayPlane gradientTarget, BinaryPlane target,
+            boolean saveImage) {
+        GradientHistogram histogram = calculateGradient(image, filter, parallelism, gradientTarget);
+        SaveImage.saveImage(gradientTarget, "gradient", saveImage);
+        int threshold = histogram.threshold(rule, alpha, beta, percentile);
         int width = image.getWidth();
-        int height = image.getHeight();
-
-        BufferedImage gradientImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        for (int i = 1; i < height - 1; i++) {
-            outer: for (int j = 1; j < width - 1; j++) {
-                int Gx = 0;
-                int Gy = 0;
-                for (int y = 0; y < filter.length; y++) {
-                    for (int x = 0; x < filter.length; x++) {
-                        if ((image.getRGB(j + y - 1, i + x - 1) & GRAY_MASK) > 100) {
-                            gradientImage.setRGB(j, i, 0);
-                            if (angleTable != null) {
-                                angleTable[i][j] = 0;
+        int wordsPerRow = target.getWordsPerRow();
+        long[] words = target.getWords();
+        byte[] source = gradientTarget.getData();
+        int stride = gradientTarget.getStride();
+        ParallelStrips.run(image.getHeight(), ParallelStrips.stripCount(image.getHeight(), parallelism),
+                (strip, fromRow, toRow) -> {
+                    for (int i = fromRow; i < toRow; i++) {
+                        int rowStart = i * stride;
+                        for (int k = 0; k < wordsPerRow; k++) {
+                            long word = 0;
+                            for (int j = Math.min(width, (k + 1) * 64) - 1; j >= k * 64; j--) {
+                                word = word << 1 | ((source[rowStart + j] & GRAY_MASK) > threshold ? 1 : 0);
                             }
-                            continue outer;
+                            words[i * wordsPerRow + k] = word;
                         }
-                        Gx += filter[y][x] * (image.getRGB(j + y - 1, i + x - 1) & GRAY_MASK);
-                        Gy += filter[x][y] * (image.getRGB(j + y - 1, i + x - 1) & GRAY_MASK);
+                    }
+                });
+        if (saveImage) {
+            SaveImage.saveImage(target.toGrayPlane(), "threshold-gradient", true);
+        }
+        return target;
+    }
+
+    // Writes the stored gradient magnitudes and counts them. Every strip keeps
+    // its own histogram and maximum, so no shared counter is updated per pixel.
+    private static GradientHistogram calculateGradient(GrayPlane image, int[][] filter, int parallelism,
+            GrayPlane target) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stride = image.getStride();
+        byte[] source = image.getData();
+        byte[] gradient = target.getData();
+        int gradientStride = target.getStride();
+        int[] coefficients = SquaredGradient.coefficients(filter);
+        target.clearBorder();
+        int rows = Math.max(0, height - 2);
+        int strips = ParallelStrips.stripCount(rows, parallelism);
+        GradientHistogram[] stripHistograms = new GradientHistogram[strips];
+        ParallelStrips.run(rows, strips, (strip, fromRow, toRow) -> {
+            int[][] window = new int[3][width];
+            int[] squared = new int[width];
+            boolean[] bright = new boolean[width];
+            GradientHistogram histogram = new GradientHistogram();
+            int[] counts = histogram.getCounts();
+            for (int i = fromRow + 1; i <= toRow; i++) {
+                for (int k = i == fromRow + 1 ? -1 : 1; k <= 1; k++) {
+                    int[] row = window[(i + k + 3) % 3];
+                    int rowStart = (i + k) * stride;
+                    for (int j = 0; j < width; j++) {
+                        row[j] = source[rowStart + j] & GRAY_MASK;
                     }
                 }
-                double G = Math.sqrt(Math.pow(Gx, 2) + Math.pow(Gy, 2));
-                int roundedG = (int) Math.round(G);
-                if (roundedG > maxGradient.get()) {
-                    maxGradient.set(roundedG);
-                }
-                int gradientRgb = roundedG << 16 | roundedG << 8 | roundedG;
-                gradientImage.setRGB(j, i, gradientRgb);
-                if (angleTable == null) {
-                    continue;
-                }
-                double angle = Math.atan2(Gy, Gx) * 180 / Math.PI;
-                if (angle < 0) {
-                    angle += 180;
+                histogram.addMaximum(SquaredGradient.row(window[(i + 2) % 3], window[i % 3],
+                        window[(i + 1) % 3], width, coefficients, bright, squared, null));
+                int rowStart = i * gradientStride;
+                for (int j = 1; j < width - 1; j++) {
+                    int magnitude = SquaredGradient.magnitude(squared[j]);
+                    gradient[rowStart + j] = (byte) magnitude;
+                    counts[magnitude]++;
                 }
-                angleTable[i][j] = angle;
             }
+            stripHistograms[strip] = histogram;
+        });
+        GradientHistogram histogram = new GradientHistogram();
+        for (GradientHistogram stripHistogram : stripHistograms) {
+            histogram.merge(stripHistogram);
         }
-        SaveImage.saveImage(gradientImage, "gradient", saveImage);
-        return gradientImage;
+        return histogram;
     }
 
-    private static BufferedImage thresholdGradient(BufferedImage image, AtomicInteger maxGradient, double alpha,
-            double beta, boolean saveImage) {
+    private static GrayPlane thresholdGradient(GrayPlane image, int threshold, int parallelism, GrayPlane target,
+            boolean saveImage) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage thresholdGradient = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        int minThreshold = (int) Math.round(beta * alpha * maxGradient.get());
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int amplitude = image.getRGB(j, i) & GRAY_MASK;
-                if (amplitude > minThreshold) {
-                    thresholdGradient.setRGB(j, i, COLOR_WHITE);
+        int stride = image.getStride();
+        byte[] source = image.getData();
+        GrayPlane thresholdGradient = target != null ? target : new GrayPlane(width, height);
+        byte[] result = thresholdGradient.getData();
+        int thresholdStride = thresholdGradient.getStride();
+        ParallelStrips.run(height, ParallelStrips.stripCount(height, parallelism), (strip, fromRow, toRow) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int j = 0; j < width; j++) {
+                    int amplitude = source[i * stride + j] & GRAY_MASK;
+                    result[i * thresholdStride + j] = (byte) (amplitude > threshold ? COLOR_WHITE : COLOR_BLACK);
                 }
             }
-        }
+        });
         SaveImage.saveImage(thresholdGradient, "threshold-gradient", saveImage);
         return thresholdGradient;
     }
 
     /**
-     * Converts a grayscaled {@code BufferedImage} to a Canny edge image.
-     * 
-     * This method applies a gradient calculation and thresholds the image using the
-     * Canny edge detection algorithm, based on the provided filter and threshold
-     * values (alpha and beta). The result is a binary image highlighting the edges
-     * of significant features. Note that this function is deprecated, and it is
-     * recommended to use the {@link #getThresholdGradient} method for a more
-     * efficient implementation.
+     * Converts a grayscaled {@code GrayPlane} to a Canny edge image.
      *
-     * @param image     The {@code BufferedImage} to be processed.
+     * This method computes the gradient with the specified filter, keeps only
+     * the pixels whose gradient is a maximum along the gradient direction, and
+     * links them with hysteresis thresholding. A pixel with a gradient of at least
+     * {@code alpha} times the maximum gradient is an edge, and so is every pixel
+     * over {@code beta} times that threshold that is connected to such an edge
+     * through other pixels over it. Very bright pixels (which correspond to
+     * symbols) are excluded as in {@link #getThresholdGradient}.
+     *
+     * The gradient directions are quantized to horizontal, vertical and the two
+     * diagonals in the same pass that computes the gradient, and the
+     * non-maximum suppression runs in that pass as well, a row behind the
+     * gradient. The resulting edges are a single pixel wide, with well under
+     * half the pixels of the thresholded gradient, so they need no erosion and
+     * dilation before the Hough transform.
+     *
+     * @param image     The {@code GrayPlane} to be processed.
      * @param filter    The {@code int[][]} filter to be used for gradient
      *                  calculation.
-     * @param alpha     The upper threshold value for the gradient. Pixels with a
-     *                  gradient value above this threshold are considered part of
-     *                  the significant features.
-     * @param beta      The lower threshold value for the gradient. Pixels with a
-     *                  gradient value below this threshold are ignored or
-     *                  considered as background.
+     * @param alpha     The upper threshold value for the gradient, relative to the
+     *                  maximum gradient.
+     * @param beta      The lower threshold value for the gradient, relative to the
+     *                  upper threshold.
      * @param saveImage A {@code boolean} flag that determines whether the processed
      *                  image should be saved.
-     * @return a binary {@code BufferedImage} that has been thresholded based on the
-     *         gradient.
-     * @deprecated Use {@link #getThresholdGradient} instead for improved
-     *             performance.
+     * @return a binary {@code GrayPlane} with the Canny edges.
      */
-    @Deprecated
-    public static BufferedImage getCannyEdge(BufferedImage image, int[][] filter, double alpha, double beta,
+    public static GrayPlane getCannyEdge(GrayPlane image, int[][] filter, double alpha, double beta,
             boolean saveImage) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        double[][] angleTable = new double[height][width];
-        AtomicInteger maxGradient = new AtomicInteger(-1);
-        BufferedImage gradientImage = calculateGradientAndAngle(image, filter, angleTable, maxGradient, saveImage);
-        BufferedImage cannyEdge = makeCannyEdge(gradientImage, angleTable, saveImage);
-        BufferedImage hysteresisThreshold = hysteresisThreshold(cannyEdge, maxGradient, alpha, beta, saveImage);
-        return hysteresisThreshold;
+        return getCannyEdge(image, filter, alpha, beta, HoughLineTransform.DEFAULT_PARALLELISM, null, null,
+                saveImage);
     }
 
-    @Deprecated
-    private static BufferedImage makeCannyEdge(BufferedImage image, double[][] angleTable, boolean saveImage) {
+    static GrayPlane getCannyEdge(GrayPlane image, int[][] filter, double alpha, double beta, int parallelism,
+            GrayPlane suppressedTarget, GrayPlane target, boolean saveImage) {
+        GrayPlane suppressedImage = suppressedTarget != null ? suppressedTarget
+                : new GrayPlane(image.getWidth(), image.getHeight());
+        int maxGradient = SquaredGradient.maxGradient(suppressNonMaxima(image, filter, parallelism,
+                suppressedImage));
+        SaveImage.saveImage(suppressedImage, "canny-edge", saveImage);
+        GrayPlane hysteresisThreshold = hysteresisThreshold(suppressedImage, maxGradient, alpha, beta, parallelism,
+                target, saveImage);
+        return hysteresisThreshold;
+    }
 
+    // Writes the gradient magnitude of the pixels that are a maximum along their
+    // gradient direction, and 0 for all others, and returns the largest squared
+    // gradient. Each strip computes the gradient rows just outside it as well,
+    // so it can suppress its first and last row on its own.
+    private static int suppressNonMaxima(GrayPlane image, int[][] filter, int parallelism, GrayPlane target) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage cannyEdge = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int i = 1; i < height - 1; i++) {
-            for (int j = 1; j < width - 1; j++) {
-                int q = -1;
-                int r = -1;
-
-                if (0 <= angleTable[i][j] || angleTable[i][j] < 22.5 || 157.5 <= angleTable[i][j]
-                        || angleTable[i][j] < 180) {
-                    q = image.getRGB(j, i + 1) & GRAY_MASK;
-                    r = image.getRGB(j, i - 1) & GRAY_MASK;
-                } else if (22.5 <= angleTable[i][j] || angleTable[i][j] < 67.5) {
-                    q = image.getRGB(j + 1, i - 1) & GRAY_MASK;
-                    r = image.getRGB(j - 1, i + 1) & GRAY_MASK;
-                } else if (67.5 <= angleTable[i][j] || angleTable[i][j] < 112.5) {
-                    q = image.getRGB(j + 1, i) & GRAY_MASK;
-                    r = image.getRGB(j - 1, i) & GRAY_MASK;
-                } else if (122.5 <= angleTable[i][j] || angleTable[i][j] < 157.5) {
-                    q = image.getRGB(j - 1, i - 1) & GRAY_MASK;
-                    r = image.getRGB(j + 1, i + 1) & GRAY_MASK;
+        int stride = image.getStride();
+        byte[] source = image.getData();
+        byte[] suppressed = target.getData();
+        int suppressedStride = target.getStride();
+        int[] coefficients = SquaredGradient.coefficients(filter);
+        target.clearBorder();
+        int rows = Math.max(0, height - 2);
+        int strips = ParallelStrips.stripCount(rows, parallelism);
+        int[] stripMaxima = new int[strips];
+        ParallelStrips.run(rows, strips, (strip, fromRow, toRow) -> {
+            int[][] window = new int[3][width];
+            int[][] squared = new int[3][width];
+            byte[] directions = new byte[width];
+            byte[] nextDirections = new byte[width];
+            boolean[] bright = new boolean[width];
+            int max = -1;
+            int nextRow = Math.max(0, fromRow - 1);
+            for (int r = fromRow; r <= toRow + 1; r++) {
+                int[] gradientRow = squared[r % 3];
+                byte[] swap = directions;
+                directions = nextDirections;
+                nextDirections = swap;
+                Arrays.fill(gradientRow, 0);
+                if (r > 0 && r < height - 1) {
+                    for (; nextRow <= r + 1; nextRow++) {
+                        int[] row = window[nextRow % 3];
+                        int rowStart = nextRow * stride;
+                        for (int j = 0; j < width; j++) {
+                            row[j] = source[rowStart + j] & GRAY_MASK;
+                        }
+                    }
+                    max = Math.max(max, SquaredGradient.row(window[(r + 2) % 3], window[r % 3],
+                            window[(r + 1) % 3], width, coefficients, bright, gradientRow, nextDirections));
                 }
-
-                if ((image.getRGB(j, i) & GRAY_MASK) >= q && (image.getRGB(j, i) & GRAY_MASK) >= r) {
-                    cannyEdge.setRGB(j, i, image.getRGB(j, i));
-                } else {
-                    cannyEdge.setRGB(j, i, COLOR_BLACK);
+                if (r >= fromRow + 2) {
+                    suppressRow(squared[(r + 1) % 3], squared[(r + 2) % 3], gradientRow, directions, width,
+                            suppressed, (r - 1) * suppressedStride);
                 }
             }
+            stripMaxima[strip] = max;
+        });
+        int max = -1;
+        for (int stripMax : stripMaxima) {
+            max = Math.max(max, stripMax);
         }
-        SaveImage.saveImage(cannyEdge, "canny-edge", saveImage);
-        return cannyEdge;
+        return max;
     }
 
-    @Deprecated
-    private static BufferedImage hysteresisThreshold(BufferedImage image, AtomicInteger maxGradient, double alpha,
-            double beta, boolean saveImage) {
+    private static void suppressRow(int[] above, int[] middle, int[] below, byte[] directions, int width,
+            byte[] target, int rowStart) {
+        for (int j = 1; j < width - 1; j++) {
+            int before;
+            int after;
+            switch (directions[j]) {
+                case SquaredGradient.DIAGONAL_DOWN:
+                    before = above[j - 1];
+                    after = below[j + 1];
+                    break;
+                case SquaredGradient.VERTICAL:
+                    before = above[j];
+                    after = below[j];
+                    break;
+                case SquaredGradient.DIAGONAL_UP:
+                    before = above[j + 1];
+                    after = below[j - 1];
+                    break;
+                default:
+                    before = middle[j - 1];
+                    after = middle[j + 1];
+                    break;
+            }
+            int value = middle[j];
+            // Strictly greater on one side only, so a plateau two pixels wide
+            // keeps one of them.
+            target[rowStart + j] = (byte) (value > before && value >= after ? SquaredGradient.magnitude(value)
+                    : COLOR_BLACK);
+        }
+    }
+
+    // Marks the strong pixels as edges and grows them into the connected weak
+    // pixels with a flood fill. Every strip fills within its own rows first;
+    // the weak pixels that touch an edge across a strip boundary then seed one
+    // more fill over the whole image. Each pixel is pushed at most once.
+    private static GrayPlane hysteresisThreshold(GrayPlane image, int maxGradient, double alpha, double beta,
+            int parallelism, GrayPlane target, boolean saveImage) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage hysteresisThreshold = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        int maxThreshold = (int) Math.round(alpha * maxGradient.get());
+        int stride = image.getStride();
+        byte[] source = image.getData();
+        GrayPlane hysteresisThreshold = target != null ? target : new GrayPlane(width, height);
+        byte[] edges = hysteresisThreshold.getData();
+        int edgesStride = hysteresisThreshold.getStride();
+        int maxThreshold = (int) Math.round(alpha * maxGradient);
         int minThreshold = (int) Math.round(beta * maxThreshold);
-        ArrayList<int[]> weakPixels = new ArrayList<>();
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int amplitude = image.getRGB(j, i) & GRAY_MASK;
-                if (amplitude <= minThreshold) {
-                    hysteresisThreshold.setRGB(j, i, COLOR_BLACK);
-                } else if (amplitude >= maxThreshold) {
-                    hysteresisThreshold.setRGB(j, i, COLOR_WHITE);
-                } else {
-                    weakPixels.add(new int[] { j, i });
+        int strips = ParallelStrips.stripCount(height, parallelism);
+        int[] stripStarts = new int[strips];
+        ParallelStrips.run(height, strips, (strip, fromRow, toRow) -> {
+            stripStarts[strip] = fromRow;
+            PixelStack stack = new PixelStack();
+            for (int i = fromRow; i < toRow; i++) {
+                for (int j = 0; j < width; j++) {
+                    int amplitude = source[i * stride + j] & GRAY_MASK;
+                    byte edge;
+                    if (amplitude <= minThreshold) {
+                        edge = COLOR_BLACK;
+                    } else if (amplitude >= maxThreshold) {
+                        edge = (byte) COLOR_WHITE;
+                        stack.push(i * edgesStride + j);
+                    } else {
+                        edge = WEAK_EDGE;
+                    }
+                    edges[i * edgesStride + j] = edge;
                 }
             }
+            fill(edges, width, edgesStride, fromRow, toRow, stack);
+        });
+        if (strips > 1) {
+            PixelStack stack = new PixelStack();
+            for (int strip = 1; strip < strips; strip++) {
+                int row = stripStarts[strip];
+                seedAcross(edges, width, edgesStride, row - 1, row, stack);
+                seedAcross(edges, width, edgesStride, row, row - 1, stack);
+            }
+            fill(edges, width, edgesStride, 0, height, stack);
         }
-
-        for (int[] weakPixel : weakPixels) {
-            int y = weakPixel[0];
-            int x = weakPixel[1];
-            int a = y != 0 ? -1 : 0;
-            int b = y != height ? 1 : 0;
-            int c = x != 0 ? -1 : 0;
-            int d = x != width ? 1 : 0;
-            outer: for (int i = a; i < b; i++) {
-                for (int j = c; j < d; j++) {
-                    if (i == 0 && j == 0) {
-                        continue;
-                    }
-                    if (hysteresisThreshold.getRGB(y + i, x + j) == 255) {
-                        hysteresisThreshold.setRGB(y, x, COLOR_WHITE);
-                        break outer;
+        ParallelStrips.run(height, strips, (strip, fromRow, toRow) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int j = 0; j < width; j++) {
+                    if (edges[i * edgesStride + j] == WEAK_EDGE) {
+                        edges[i * edgesStride + j] = COLOR_BLACK;
                     }
                 }
-                hysteresisThreshold.setRGB(y, x, COLOR_BLACK);
             }
-        }
+        });
         SaveImage.saveImage(hysteresisThreshold, "hysteresis-threshold", saveImage);
         return hysteresisThreshold;
     }
+
+    // Turns the weak pixels of one row that touch an edge in the next row into
+    // edges and pushes them.
+    private static void seedAcross(byte[] edges, int width, int stride, int row, int edgeRow, PixelStack stack) {
+        for (int j = 0; j < width; j++) {
+            if (edges[row * stride + j] != WEAK_EDGE) {
+                continue;
+            }
+            for (int k = Math.max(0, j - 1); k <= Math.min(width - 1, j + 1); k++) {
+                if (edges[edgeRow * stride + k] == (byte) COLOR_WHITE) {
+                    edges[row * stride + j] = (byte) COLOR_WHITE;
+                    stack.push(row * stride + j);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void fill(byte[] edges, int width, int stride, int fromRow, int toRow, PixelStack stack) {
+        while (!stack.isEmpty()) {
+            int pixel = stack.pop();
+            int i = pixel / stride;
+            int j = pixel % stride;
+            for (int y = Math.max(fromRow, i - 1); y <= Math.min(toRow - 1, i + 1); y++) {
+                for (int x = Math.max(0, j - 1); x <= Math.min(width - 1, j + 1); x++) {
+                    int neighbour = y * stride + x;
+                    if (edges[neighbour] == WEAK_EDGE) {
+                        edges[neighbour] = (byte) COLOR_WHITE;
+                        stack.push(neighbour);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class PixelStack {
+
+        private int[] pixels = new int[256];
+        private int size;
+
+        void push(int pixel) {
+            if (size == pixels.length) {
+                pixels = Arrays.copyOf(pixels, 2 * size);
+            }
+            pixels[size++] = pixel;
+        }
+
+        int pop() {
+            return pixels[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package imageLineExtractor;
+
+import java.util.Arrays;
+
+public class EdgePoints {
+
+    private static final int COLOR_WHITE = 0xFF;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] coordinates = new int[2 * INITIAL_CAPACITY];
+    private int size;
+    private int width;
+    private int height;
+
+    /**
+     * Creates an empty list of the edge pixels of an image of the given size.
+     *
+     * The points are stored as {@code int} pairs in a single array, {@code x}
+     * followed by {@code y}, which grows as points are added. Typically only a
+     * few percent of the pixels of an edge image are edges, so voting over the
+     * list visits far fewer pixels than scanning the image.
+     *
+     * @param width  The width of the image the points belong to.
+     * @param height The height of the image the points belong to.
+     */
+    public EdgePoints(int width, int height) {
+        reset(width, height, 0);
+    }
+
+    /**
+     * Lists the white pixels of a binary {@code GrayPlane}, row by row.
+     *
+     * @param image The binary {@code GrayPlane}.
+     * @return a new {@code EdgePoints} with the white ({@code 255}) pixels.
+     */
+    public static EdgePoints fromGrayPlane(GrayPlane image) {
+        return fromGrayPlane(image, new EdgePoints(0, 0));
+    }
+
+    static EdgePoints fromGrayPlane(GrayPlane image, EdgePoints points) {
+        points.reset(image.getWidth(), image.getHeight(), 0);
+        byte[] pixels = image.getData();
+        for (int i = 0; i < image.getHeight(); i++) {
+            for (int j = 0; j < image.getWidth(); j++) {
+                if ((pixels[i * image.getStride() + j] & COLOR_WHITE) == COLOR_WHITE) {
+                    points.add(j, i);
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Lists the set pixels of a {@code BinaryPlane}, row by row.
+     *
+     * @param image The {@code BinaryPlane}.
+     * @return a new {@code EdgePoints} with the set pixels.
+     */
+    public static EdgePoints fromBinaryPlane(BinaryPlane image) {
+        return fromBinaryPlane(image, new EdgePoints(0, 0), HoughLineTransform.DEFAULT_PARALLELISM);
+    }
+
+    // Counts the set pixels of every strip first, so every strip knows where
+    // its points go and the strips fill the list in parallel, still row by row.
+    static EdgePoints fromBinaryPlane(BinaryPlane image, EdgePoints target, int parallelism) {
+        int height = image.getHeight();
+        int wordsPerRow = image.getWordsPerRow();
+        long[] words = image.getWords();
+        int strips = ParallelStrips.stripCount(height, parallelism);
+        int[] offsets = new int[strips + 1];
+        ParallelStrips.run(height, strips, (strip, fromRow, toRow) -> {
+            int count = 0;
+            for (int k = fromRow * wordsPerRow; k < toRow * wordsPerRow; k++) {
+                count += Long.bitCount(words[k]);
+            }
+            offsets[strip + 1] = count;
+        });
+        for (int strip = 0; strip < strips; strip++) {
+            offsets[strip + 1] += offsets[strip];
+        }
+        target.reset(image.getWidth(), height, offsets[strips]);
+        int[] coordinates = target.coordinates;
+        ParallelStrips.run(height, strips, (strip, fromRow, toRow) -> {
+            int index = 2 * offsets[strip];
+            for (int i = fromRow; i < toRow; i++) {
+                for (int k = 0; k < wordsPerRow; k++) {
+                    for (long word = words[i * wordsPerRow + k]; word != 0; word &= word - 1) {
+                        coordinates[index++] = k * 64 + Long.numberOfTrailingZeros(word);
+                        coordinates[index++] = i;
+                    }
+                }
+            }
+        });
+        return target;
+    }
+
+    // Empties the list for an image of the given size and makes room for size
+    // points, which the caller fills in.
+    void reset(int width, int height, int size) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        }
+        if (coordinates.length < 2 * size) {
+            coordinates = new int[2 * size];
+        }
+        this.width = width;
+        this.height = height;
+        this.size = size;
+    }
+
+    /**
+     * Adds a point to the end of the list.
+     *
+     * @param x The column of the edge pixel.
+     * @param y The row of the edge pixel.
+     */
+    public void add(int x, int y) {
+        if (2 * size == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, Math.max(2 * INITIAL_CAPACITY, 2 * coordinates.length));
+        }
+        coordinates[2 * size] = x;
+        coordinates[2 * size + 1] = y;
+        size++;
+    }
+
+    /**
+     * Draws the points into a binary {@code GrayPlane}.
+     *
+     * @return a new {@code GrayPlane} of the image size with the points white
+     *         ({@code 255}) and every other pixel black.
+     */
+    public GrayPlane toGrayPlane() {
+        return toGrayPlane(new GrayPlane(width, height));
+    }
+
+    GrayPlane toGrayPlane(GrayPlane image) {
+        byte[] pixels = image.getData();
+        for (int i = 0; i < height; i++) {
+            Arrays.fill(pixels, i * image.getStride(), i * image.getStride() + width, (byte) 0);
+        }
+        for (int i = 0; i < size; i++) {
+            pixels[coordinates[2 * i + 1] * image.getStride() + coordinates[2 * i]] = (byte) COLOR_WHITE;
+        }
+        return image;
+    }
+
+    /**
+     * @param index The index of the point.
+     * @return the column of the point.
+     */
+    public int getX(int index) {
+        return coordinates[2 * index];
+    }
+
+    /**
+     * @param index The index of the point.
+     * @return the row of the point.
+     */
+    public int getY(int index) {
+        return coordinates[2 * index + 1];
+    }
+
+    /**
+     * @return the number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the backing array of this list.
+     *
+     * Point {@code i} is stored at indices {@code 2 * i} ({@code x}) and
+     * {@code 2 * i + 1} ({@code y}); entries past {@code 2 * size()} are unused.
+     * The array is replaced when the list grows.
+     *
+     * @return the {@code int[]} backing this list.
+     */
+    public int[] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * @return the width of the image the points belong to.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image the points belong to.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,26 @@
+package imageLineExtractor;
+
+/**
+ * Receives the rows of a binary edge image one at a time, as
+ * {@link FusedEdgeDetection#streamThresholdGradient} produces them.
+ *
+ * Rows arrive in order, top to bottom, on the thread running the detection.
+ */
+@FunctionalInterface
+public interface EdgeRowConsumer {
+
+    /**
+     * Called with every row of the edge image.
+     *
+     * @param row   The index of the row in the edge image, which is the blurred
+     *              image, starting at {@code 0}.
+     * @param edges The pixels of the row, {@code 0} for background and
+     *              {@code (byte) 0xFF} for edges. The array is reused for the
+     *              next row once this method returns, so pixels that are kept
+     *              must be copied.
+     * @param width The number of pixels of the row, the width of the edge
+     *              image. Only the first {@code width} elements of
+     *              {@code edges} belong to the row.
+     */
+    void accept(int row, byte[] edges, int width);
+}
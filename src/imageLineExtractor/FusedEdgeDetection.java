@@ -0,0 +1,298 @@
+package imageLineExtractor;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+public class FusedEdgeDetection {
+
+    private static final int GRAY_MASK = 0xFF;
+    private static final byte COLOR_WHITE = (byte) 0xFF;
+
+    /**
+     * Computes the thresholded gradient of a color {@code BufferedImage} in a
+     * single fused, row-streaming pass.
+     *
+     * This method produces the same binary image as calling
+     * {@link GrayScale#applyGrayScale}, {@link GaussianFilter#applyGaussianFilter}
+     * and {@link EdgeDetection#getThresholdGradient} one after another, but never
+     * materializes the grayscale, blurred or gradient images. Rows are pushed
+     * through small rolling buffers (as deep as the blur kernel) instead, so only
+     * the resulting binary image is allocated at full size.
+     *
+     * @param image    The {@code BufferedImage} to be processed.
+     * @param function The {@code GrayScaleFunction} used for the grayscale
+     *                 conversion.
+     * @param kernel   The {@code int[][]} Gaussian kernel used for blurring.
+     * @param filter   The {@code int[][]} filter used for gradient calculation.
+     * @param alpha    The upper threshold value for the gradient.
+     * @param beta     The lower threshold value for the gradient.
+     * @return a binary {@code GrayPlane} that has been thresholded based on the
+     *         gradient, the size of the blurred image.
+     */
+    public static GrayPlane getThresholdGradient(BufferedImage image, GrayScaleFunction function, int[][] kernel,
+            int[][] filter, double alpha, double beta) {
+        return getThresholdGradient(image, function, kernel, filter, alpha, beta, null);
+    }
+
+    static GrayPlane getThresholdGradient(BufferedImage image, GrayScaleFunction function, int[][] kernel,
+            int[][] filter, double alpha, double beta, GrayPlane target) {
+        int offset = kernel.length / 2;
+        GrayPlane thresholdGradient = target != null ? target
+                : new GrayPlane(image.getWidth() - 2 * offset, image.getHeight() - 2 * offset);
+        byte[] data = thresholdGradient.getData();
+        int stride = thresholdGradient.getStride();
+        streamThresholdGradient(image, function, kernel, filter, alpha, beta,
+                (row, edges, width) -> System.arraycopy(edges, 0, data, row * stride, width));
+        return thresholdGradient;
+    }
+
+    /**
+     * Streams the thresholded gradient of a color {@code BufferedImage} row by row
+     * to a consumer.
+     *
+     * The threshold depends on the maximum gradient of the whole image, so the
+     * rows are swept twice: the first sweep only finds the maximum gradient, the
+     * second one recomputes every row and hands the binary result to the
+     * consumer. Both sweeps keep just a few rows in memory, so peak memory is
+     * proportional to the image width times the kernel size. The row array passed
+     * to the consumer is reused for the next row.
+     *
+     * @param image    The {@code BufferedImage} to be processed.
+     * @param function The {@code GrayScaleFunction} used for the grayscale
+     *                 conversion.
+     * @param kernel   The {@code int[][]} Gaussian kernel used for blurring.
+     * @param filter   The {@code int[][]} filter used for gradient calculation.
+     * @param alpha    The upper threshold value for the gradient.
+     * @param beta     The lower threshold value for the gradient.
+     * @param consumer The {@code EdgeRowConsumer} receiving every row of the
+     *                 binary image, top to bottom.
+     */
+    public static void streamThresholdGradient(BufferedImage image, GrayScaleFunction function, int[][] kernel,
+            int[][] filter, double alpha, double beta, EdgeRowConsumer consumer) {
+        streamThresholdGradient(image, function, kernel, filter, ThresholdRule.ALPHA_BETA, alpha, beta,
+                EdgeDetection.PRESET_PERCENTILE, HoughLineTransform.SEQUENTIAL, consumer);
+    }
+
+    // With a parallelism above 1 the rows are split into strips, and the rows
+    // of different strips reach the consumer from several threads at once, in
+    // order within every strip.
+    static void streamThresholdGradient(BufferedImage image, GrayScaleFunction function, int[][] kernel,
+            int[][] filter, ThresholdRule rule, double alpha, double beta, double percentile, int parallelism,
+            EdgeRowConsumer consumer) {
+        streamThresholdGradient(() -> new RowPipeline(image, function, null, kernel, filter), rule, alpha, beta,
+                percentile, parallelism, consumer);
+    }
+
+    // The same for an image that is already gray, such as the output of the
+    // scaled grayscale conversion.
+    static void streamThresholdGradient(GrayPlane grayImage, int[][] kernel, int[][] filter, ThresholdRule rule,
+            double alpha, double beta, double percentile, int parallelism, EdgeRowConsumer consumer) {
+        streamThresholdGradient(() -> new RowPipeline(null, null, grayImage, kernel, filter), rule, alpha, beta,
+                percentile, parallelism, consumer);
+    }
+
+    // Every strip is swept by its own pipeline, which starts a blurred row and
+    // a kernel of gray rows above the strip, so the strips compute exactly the
+    // rows of a single pipeline. The first sweep only counts the magnitudes
+    // when the rule needs more than the largest gradient.
+    private static void streamThresholdGradient(Supplier<RowPipeline> pipelines, ThresholdRule rule, double alpha,
+            double beta, double percentile, int parallelism, EdgeRowConsumer consumer) {
+        RowPipeline first = pipelines.get();
+        int strips = ParallelStrips.stripCount(first.blurredHeight, parallelism);
+        RowPipeline[] stripPipelines = new RowPipeline[strips];
+        GradientHistogram[] histograms = new GradientHistogram[strips];
+        boolean counting = rule != ThresholdRule.ALPHA_BETA;
+        ParallelStrips.run(first.blurredHeight, strips, (strip, fromRow, toRow) -> {
+            RowPipeline pipeline = strip == 0 ? first : pipelines.get();
+            pipeline.setRows(fromRow, toRow);
+            GradientHistogram histogram = new GradientHistogram();
+            for (int row = fromRow; pipeline.advance(); row++) {
+                histogram.addMaximum(pipeline.rowMaximum);
+                // The first and last row have no gradient, as in EdgeDetection.
+                if (counting && row > 0 && row < pipeline.blurredHeight - 1) {
+                    histogram.addRow(pipeline.gradientRow, pipeline.blurredWidth);
+                }
+            }
+            stripPipelines[strip] = pipeline;
+            histograms[strip] = histogram;
+        });
+        for (int strip = 1; strip < strips; strip++) {
+            histograms[0].merge(histograms[strip]);
+        }
+        int threshold = histograms[0].threshold(rule, alpha, beta, percentile);
+        ParallelStrips.run(first.blurredHeight, strips, (strip, fromRow, toRow) -> {
+            stripPipelines[strip].reset();
+            streamEdges(stripPipelines[strip], threshold, consumer);
+        });
+    }
+
+    // Counts the gradients of a tile of a larger gray image, only those in the
+    // window of the tile's blurred image, so overlapping tiles count every
+    // pixel of the image once. Only the largest gradient is taken unless
+    // counting is set.
+    static void countGradients(GrayPlane grayImage, int[][] kernel, int[][] filter, Rectangle window,
+            boolean counting, GradientHistogram histogram) {
+        RowPipeline pipeline = new RowPipeline(null, null, grayImage, kernel, filter);
+        // The first and last row and column have no gradient, as in EdgeDetection.
+        int fromColumn = Math.max(window.x, 1);
+        int toColumn = Math.min(window.x + window.width, pipeline.blurredWidth - 1);
+        int[] counts = histogram.getCounts();
+        int toRow = Math.min(window.y + window.height, pipeline.blurredHeight - 1);
+        for (int row = 0; row < toRow && pipeline.advance(); row++) {
+            if (row < Math.max(window.y, 1)) {
+                continue;
+            }
+            int[] squared = pipeline.gradientRow;
+            int maximum = -1;
+            for (int j = fromColumn; j < toColumn; j++) {
+                maximum = Math.max(maximum, squared[j]);
+                if (counting) {
+                    counts[SquaredGradient.magnitude(squared[j])]++;
+                }
+            }
+            // Rows that are too bright to have any gradient have no maximum.
+            if (pipeline.rowMaximum >= 0) {
+                histogram.addMaximum(maximum);
+            }
+        }
+    }
+
+    // Streams the edges of a tile of a larger gray image, at a threshold that
+    // was chosen for the whole image.
+    static void streamThresholdGradient(GrayPlane grayImage, int[][] kernel, int[][] filter, int threshold,
+            EdgeRowConsumer consumer) {
+        streamEdges(new RowPipeline(null, null, grayImage, kernel, filter), threshold, consumer);
+    }
+
+    private static void streamEdges(RowPipeline pipeline, int threshold, EdgeRowConsumer consumer) {
+        int width = pipeline.blurredWidth;
+        byte[] edges = new byte[Math.max(width, 0)];
+        int row = pipeline.fromRow;
+        while (pipeline.advance()) {
+            for (int j = 0; j < width; j++) {
+                edges[j] = SquaredGradient.magnitude(pipeline.gradientRow[j]) > threshold ? COLOR_WHITE : 0;
+            }
+            consumer.accept(row++, edges, width);
+        }
+    }
+
+    private static class RowPipeline {
+
+        private final BufferedImage image;
+        private final GrayScaleFunction function;
+        private final GrayPlane grayImage;
+        private final int[][] kernel;
+        private final int offset;
+        private final int kernelSum;
+        private final int width;
+        private final int blurredWidth;
+        private final int blurredHeight;
+        private final int[] packed;
+        private final int[] rgbRow;
+        private final byte[][] grayRows;
+        private final int[][] blurredRows;
+        private final int[] gradientRow;
+        private final int[] coefficients;
+        private final boolean[] bright;
+        private int fromRow;
+        private int toRow;
+        private int nextGrayRow;
+        private int nextBlurredRow;
+        private int nextGradientRow;
+        private int rowMaximum;
+
+        // Gray rows come from the image converted with the function, or are
+        // copied from grayImage when there is no image.
+        RowPipeline(BufferedImage image, GrayScaleFunction function, GrayPlane grayImage, int[][] kernel,
+                int[][] filter) {
+            this.image = image;
+            this.function = function;
+            this.grayImage = grayImage;
+            this.kernel = kernel;
+            offset = kernel.length / 2;
+            int sum = 0;
+            for (int[] kernelRow : kernel) {
+                for (int value : kernelRow) {
+                    sum += value;
+                }
+            }
+            kernelSum = sum;
+            width = image != null ? image.getWidth() : grayImage.getWidth();
+            blurredWidth = width - 2 * offset;
+            blurredHeight = (image != null ? image.getHeight() : grayImage.getHeight()) - 2 * offset;
+            packed = image != null ? GrayScale.packedPixels(image) : null;
+            rgbRow = image != null && packed == null ? new int[width] : null;
+            grayRows = new byte[kernel.length][width];
+            blurredRows = new int[3][Math.max(blurredWidth, 0)];
+            gradientRow = new int[Math.max(blurredWidth, 0)];
+            coefficients = SquaredGradient.coefficients(filter);
+            bright = new boolean[Math.max(blurredWidth, 0)];
+            toRow = blurredHeight;
+        }
+
+        // Limits the pipeline to the gradient rows from fromRow to toRow.
+        void setRows(int fromRow, int toRow) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            reset();
+        }
+
+        void reset() {
+            nextGradientRow = fromRow;
+            // The gradient of the first row needs the blurred row above it.
+            nextBlurredRow = Math.max(fromRow - 1, 0);
+            nextGrayRow = nextBlurredRow;
+        }
+
+        // Produces the next gradient row, pulling as many gray and blurred rows
+        // through the rolling buffers as it needs.
+        boolean advance() {
+            if (nextGradientRow >= toRow) {
+                return false;
+            }
+            int row = nextGradientRow++;
+            rowMaximum = -1;
+            Arrays.fill(gradientRow, 0);
+            if (row == 0 || row == blurredHeight - 1) {
+                return true;
+            }
+            while (nextBlurredRow <= row + 1) {
+                pullBlurredRow();
+            }
+            computeGradientRow(row);
+            return true;
+        }
+
+        private void pullBlurredRow() {
+            int blurredRow = nextBlurredRow++;
+            while (nextGrayRow < blurredRow + kernel.length) {
+                if (image != null) {
+                    GrayScale.convertRow(image, packed, nextGrayRow, function, rgbRow,
+                            grayRows[nextGrayRow % kernel.length], 0);
+                } else {
+                    System.arraycopy(grayImage.getData(), nextGrayRow * grayImage.getStride(),
+                            grayRows[nextGrayRow % kernel.length], 0, width);
+                }
+                nextGrayRow++;
+            }
+            int[] target = blurredRows[blurredRow % 3];
+            for (int j = offset; j < width - offset; j++) {
+                int gaussianSum = 0;
+                for (int y = 0; y < kernel.length; y++) {
+                    byte[] source = grayRows[(blurredRow + y) % kernel.length];
+                    for (int x = -offset; x <= offset; x++) {
+                        gaussianSum += (source[j + x] & GRAY_MASK) * kernel[y][x + offset];
+                    }
+                }
+                target[j - offset] = GrayLevels.stored(gaussianSum / kernelSum);
+            }
+        }
+
+        private void computeGradientRow(int row) {
+            rowMaximum = SquaredGradient.row(blurredRows[(row - 1) % 3], blurredRows[row % 3],
+                    blurredRows[(row + 1) % 3], blurredWidth, coefficients, bright, gradientRow, null);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package imageLineExtractor;
+
+/**
+ * Counts the gradient magnitudes of an image, as they are stored, together
+ * with its largest squared gradient, so a threshold can be chosen by any
+ * {@link ThresholdRule} without reading the gradients again. Every strip of a
+ * parallel stage fills its own histogram, and the histograms are merged
+ * afterwards.
+ */
+final class GradientHistogram {
+
+    static final int BINS = 256;
+
+    private final int[] counts = new int[BINS];
+    private int maxSquared = -1;
+
+    /**
+     * The counts per magnitude, which the stages increment directly.
+     */
+    int[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * Counts the computed columns {@code 1} to {@code width - 2} of a row of
+     * squared gradients.
+     */
+    void addRow(int[] squared, int width) {
+        for (int j = 1; j < width - 1; j++) {
+            counts[SquaredGradient.magnitude(squared[j])]++;
+        }
+    }
+
+    void addMaximum(int squared) {
+        maxSquared = Math.max(maxSquared, squared);
+    }
+
+    void merge(GradientHistogram other) {
+        for (int bin = 0; bin < BINS; bin++) {
+            counts[bin] += other.counts[bin];
+        }
+        addMaximum(other.maxSquared);
+    }
+
+    int getMaxSquared() {
+        return maxSquared;
+    }
+
+    /**
+     * Chooses the threshold of a rule. A pixel is an edge when its rounded
+     * magnitude, as it is stored, is greater than the threshold.
+     *
+     * {@link ThresholdRule#ALPHA_BETA} only needs the largest gradient, so it
+     * also works when no magnitude was counted.
+     */
+    int threshold(ThresholdRule rule, double alpha, double beta, double percentile) {
+        switch (rule) {
+            case PERCENTILE:
+                return percentile(percentile);
+            case OTSU:
+                return otsu();
+            default:
+                return (int) Math.round(beta * alpha * SquaredGradient.maxGradient(maxSquared));
+        }
+    }
+
+    // The smallest magnitude that at least the given fraction of the pixels do
+    // not exceed.
+    private int percentile(double fraction) {
+        long total = total();
+        long needed = (long) Math.ceil(fraction * total);
+        long below = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            below += counts[bin];
+            if (below >= needed && below > 0) {
+                return bin;
+            }
+        }
+        return BINS - 1;
+    }
+
+    // The magnitude that splits the pixels into the two classes with the largest
+    // variance between them, the first one on a tie.
+    private int otsu() {
+        long total = total();
+        if (total == 0) {
+            return BINS - 1;
+        }
+        double sum = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            sum += (double) bin * counts[bin];
+        }
+        double sumBelow = 0;
+        long below = 0;
+        double bestVariance = -1;
+        int best = 0;
+        for (int bin = 0; bin < BINS - 1; bin++) {
+            below += counts[bin];
+            sumBelow += (double) bin * counts[bin];
+            long above = total - below;
+            if (below == 0 || above == 0) {
+                continue;
+            }
+            double meanDifference = sumBelow / below - (sum - sumBelow) / above;
+            double variance = (double) below * above * meanDifference * meanDifference;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = bin;
+            }
+        }
+        return best;
+    }
+
+    private long total() {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
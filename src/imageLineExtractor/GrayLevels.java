@@ -0,0 +1,85 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * The gray levels the stages store, as a {@code TYPE_BYTE_GRAY} image keeps
+ * them.
+ *
+ * The stages were written storing every intermediate image in a
+ * {@code TYPE_BYTE_GRAY} image with {@code setRGB} and reading it back with
+ * {@code getRGB}. That image has a linear gray color space, so every value goes
+ * to linear light and back, which merges the dark levels: values from
+ * {@code 124} up are kept, lower ones come back up to {@code 6} levels off
+ * ({@code 0} to {@code 6} all read back as {@code 0}). The gradient was stored
+ * the same way without clamping, so a magnitude over {@code 255} spills into
+ * the green and red channels before the conversion and reads back as an
+ * unrelated level. The stages store their values through {@link #stored} so
+ * that they keep finding the lines the original {@link LineCalculator} found.
+ *
+ * A {@link GrayPlane} holds the levels as {@code getRGB} reads them. When it
+ * becomes an image again, {@link #raster} gives the raster byte such an image
+ * holds for a level, so saved images are the ones the stages always wrote.
+ */
+final class GrayLevels {
+
+    private static final int GRAY_MASK = 0xFF;
+    // Covers every gradient magnitude of the preset filters, whose pixels are
+    // at most 100.
+    private static final int[] STORED = new int[4096];
+    private static final byte[] RASTER = new byte[256];
+    private static final byte[] LEVELS = new byte[256];
+
+    static {
+        BufferedImage pixel = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+        for (int value = 0; value < STORED.length; value++) {
+            STORED[value] = roundTrip(pixel, value);
+        }
+        byte[] data = ((DataBufferByte) pixel.getRaster().getDataBuffer()).getData();
+        for (int level = 0; level < RASTER.length; level++) {
+            pixel.setRGB(0, 0, level << 16 | level << 8 | level);
+            RASTER[level] = data[0];
+        }
+        for (int raster = 0; raster < LEVELS.length; raster++) {
+            data[0] = (byte) raster;
+            LEVELS[raster] = (byte) pixel.getRGB(0, 0);
+        }
+    }
+
+    private GrayLevels() {
+    }
+
+    /**
+     * @return the gray level a {@code TYPE_BYTE_GRAY} image reads back after
+     *         {@code value} was written to all three channels with
+     *         {@code setRGB}, for a {@code value} of {@code 0} or greater.
+     */
+    static int stored(int value) {
+        if (value < STORED.length) {
+            return STORED[value];
+        }
+        return roundTrip(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY), value);
+    }
+
+    /**
+     * @return the raster byte of a {@code TYPE_BYTE_GRAY} image after the gray
+     *         {@code level} was written to it with {@code setRGB}.
+     */
+    static byte raster(int level) {
+        return RASTER[level & GRAY_MASK];
+    }
+
+    /**
+     * @return the gray level {@code getRGB} reads from a {@code TYPE_BYTE_GRAY}
+     *         image whose raster holds {@code raster}.
+     */
+    static int level(byte raster) {
+        return LEVELS[raster & GRAY_MASK] & GRAY_MASK;
+    }
+
+    private static int roundTrip(BufferedImage pixel, int value) {
+        pixel.setRGB(0, 0, value << 16 | value << 8 | value);
+        return pixel.getRGB(0, 0) & GRAY_MASK;
+    }
+}
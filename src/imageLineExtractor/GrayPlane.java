@@ -0,0 +1,190 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+public class GrayPlane {
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    /**
+     * Creates an empty (black) gray plane of the given size.
+     *
+     * The plane stores one unsigned byte per pixel in a flat row-major array,
+     * where consecutive rows are {@code width} bytes apart.
+     *
+     * @param width  The width of the plane in pixels.
+     * @param height The height of the plane in pixels.
+     */
+    public GrayPlane(int width, int height) {
+        this(new byte[width * height], width, height, width);
+    }
+
+    /**
+     * Wraps an existing byte array as a gray plane.
+     *
+     * The pixel at column {@code x} and row {@code y} is stored at index
+     * {@code y * stride + x}. The array is used directly, not copied.
+     *
+     * @param data   The {@code byte[]} holding the unsigned gray values.
+     * @param width  The width of the plane in pixels.
+     * @param height The height of the plane in pixels.
+     * @param stride The distance in bytes between the starts of two consecutive
+     *               rows. Must be at least {@code width}.
+     */
+    public GrayPlane(byte[] data, int width, int height, int stride) {
+        if (width < 0 || height < 0 || stride < width) {
+            throw new IllegalArgumentException("Invalid plane geometry " + width + "x" + height + ", stride " + stride);
+        }
+        if (height > 0 && data.length < (height - 1) * stride + width) {
+            throw new IllegalArgumentException("Data array too small for plane geometry");
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    /**
+     * Converts a {@code BufferedImage} to a gray plane.
+     *
+     * For {@code TYPE_BYTE_GRAY} images the raster bytes are read as the levels
+     * {@code getRGB} would return for them. For every other type the blue
+     * channel of each pixel is used, which is the gray value for images whose
+     * channels are equal.
+     *
+     * @param image The {@code BufferedImage} to be converted.
+     * @return a new {@code GrayPlane} with the gray values of the image.
+     */
+    public static GrayPlane fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        GrayPlane plane = new GrayPlane(width, height);
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] row = new byte[width];
+            for (int i = 0; i < height; i++) {
+                raster.getDataElements(0, i, width, 1, row);
+                for (int j = 0; j < width; j++) {
+                    plane.data[i * width + j] = (byte) GrayLevels.level(row[j]);
+                }
+            }
+            return plane;
+        }
+        int[] row = new int[width];
+        for (int i = 0; i < height; i++) {
+            image.getRGB(0, i, width, 1, row, 0, width);
+            for (int j = 0; j < width; j++) {
+                plane.data[i * width + j] = (byte) row[j];
+            }
+        }
+        return plane;
+    }
+
+    /**
+     * Converts this plane to a {@code TYPE_BYTE_GRAY} {@code BufferedImage}.
+     *
+     * The raster holds the bytes {@code setRGB} would write for the gray values,
+     * so {@code getRGB} reads the values of this plane back.
+     *
+     * @return a new {@code BufferedImage} holding a copy of this plane.
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] target = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < height; i++) {
+            int rowStart = i * stride;
+            for (int j = 0; j < width; j++) {
+                target[i * width + j] = GrayLevels.raster(data[rowStart + j]);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Copies this plane.
+     *
+     * @return a new {@code GrayPlane} with the same size and gray values, whose
+     *         rows are {@code width} bytes apart.
+     */
+    public GrayPlane copy() {
+        GrayPlane copy = new GrayPlane(width, height);
+        for (int i = 0; i < height; i++) {
+            System.arraycopy(data, i * stride, copy.data, i * width, width);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the gray value of a pixel.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return the unsigned gray value ({@code 0} to {@code 255}) of the pixel.
+     */
+    public int get(int x, int y) {
+        return data[y * stride + x] & 0xFF;
+    }
+
+    /**
+     * Sets the gray value of a pixel.
+     *
+     * @param x     The column of the pixel.
+     * @param y     The row of the pixel.
+     * @param value The gray value; only the lowest 8 bits are stored.
+     */
+    public void set(int x, int y, int value) {
+        data[y * stride + x] = (byte) value;
+    }
+
+    // Zeroes the outermost rows and columns, which the 3x3 stages never write.
+    void clearBorder() {
+        if (width == 0 || height == 0) {
+            return;
+        }
+        Arrays.fill(data, 0, width, (byte) 0);
+        Arrays.fill(data, (height - 1) * stride, (height - 1) * stride + width, (byte) 0);
+        for (int i = 0; i < height; i++) {
+            data[i * stride] = 0;
+            data[i * stride + width - 1] = 0;
+        }
+    }
+
+    /**
+     * Returns the backing array of this plane.
+     *
+     * Stages use this to walk rows directly instead of going through
+     * {@link #get} and {@link #set} for every pixel.
+     *
+     * @return the {@code byte[]} backing this plane.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the width of this plane in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of this plane in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the distance in bytes between the starts of two consecutive rows.
+     */
+    public int getStride() {
+        return stride;
+    }
+}
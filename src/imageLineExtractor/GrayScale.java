@@ -1,6 +1,12 @@
 package imageLineExtractor;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
 
 public class GrayScale {
 
@@ -73,32 +79,239 @@ public class GrayScale {
      * This method processes each pixel in the input image, converting it to
      * grayscale based on the provided {@code GrayScaleFunction}. The grayscale
      * function determines how the red, green, and blue channels are combined to
-     * produce the final intensity value for each pixel.
+     * produce the final intensity value for each pixel. Pixels are read a row at a
+     * time, straight from the data buffer for packed integer images.
      * 
      * @param image     The {@code BufferedImage} to be processed.
      * @param function  The {@code GrayScaleFunction} that defines the grayscale
      *                  conversion logic.
      * @param saveImage A {@code boolean} flag that determines whether the processed
      *                  image should be saved.
-     * @return a {@code BufferedImage} where all pixels have been converted to
-     *         grayscale.
+     * @return a {@code GrayPlane} holding the grayscale value of every pixel.
      */
-    public static BufferedImage applyGrayScale(BufferedImage image, GrayScaleFunction function, boolean saveImage) {
+    public static GrayPlane applyGrayScale(BufferedImage image, GrayScaleFunction function, boolean saveImage) {
+        return applyGrayScale(image, function, null, saveImage);
+    }
+
+    static GrayPlane applyGrayScale(BufferedImage image, GrayScaleFunction function, GrayPlane target,
+            boolean saveImage) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage grayImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        GrayPlane grayPlane = target != null ? target : new GrayPlane(width, height);
+        byte[] gray = grayPlane.getData();
+        int stride = grayPlane.getStride();
+        int[] packed = packedPixels(image);
+        int[] rowBuffer = packed == null ? new int[width] : null;
         for (int i = 0; i < height; i++) {
+            convertRow(image, packed, i, function, rowBuffer, gray, i * stride);
+        }
+        SaveImage.saveImage(grayPlane, "grayscale", saveImage);
+        return grayPlane;
+    }
+
+    /**
+     * Converts a {@code BufferedImage} to grayscale and scales it down by an
+     * integer factor in a single pass.
+     *
+     * Every {@code scale} by {@code scale} block of pixels becomes one gray pixel,
+     * the rounded average of the grayscale values of the block, computed in
+     * integer arithmetic. The pixels are read straight from the data buffer for
+     * packed integer, interleaved byte and byte gray images. The result is
+     * {@code width / scale} by {@code height / scale} pixels; pixels past the last
+     * whole block are ignored. The output rows are split into strips converted in
+     * parallel.
+     *
+     * @param image     The {@code BufferedImage} to be processed.
+     * @param function  The {@code GrayScaleFunction} that defines the grayscale
+     *                  conversion logic.
+     * @param scale     The factor by which the image is scaled down. Must be 1 or
+     *                  greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a {@code GrayPlane} holding the averaged grayscale value of every
+     *         block.
+     */
+    public static GrayPlane applyGrayScale(BufferedImage image, GrayScaleFunction function, int scale,
+            boolean saveImage) {
+        return applyGrayScale(image, function, scale, HoughLineTransform.DEFAULT_PARALLELISM, null, saveImage);
+    }
+
+    static GrayPlane applyGrayScale(BufferedImage image, GrayScaleFunction function, int scale, int parallelism,
+            GrayPlane target, boolean saveImage) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale must be 1 or greater, was " + scale);
+        }
+        int width = image.getWidth() / scale;
+        int height = image.getHeight() / scale;
+        GrayPlane grayPlane = target != null ? target : new GrayPlane(width, height);
+        PixelSource source = new PixelSource(image);
+        ParallelStrips.run(height, ParallelStrips.stripCount(height, parallelism),
+                (strip, fromRow, toRow) -> averageRows(source, function, scale, grayPlane, fromRow, toRow));
+        SaveImage.saveImage(grayPlane, "grayscale", saveImage);
+        return grayPlane;
+    }
+
+    private static void averageRows(PixelSource source, GrayScaleFunction function, int scale, GrayPlane target,
+            int fromRow, int toRow) {
+        int width = target.getWidth();
+        int blockPixels = scale * scale;
+        int[] sums = new int[width];
+        byte[] gray = new byte[width * scale];
+        int[] rowBuffer = source.needsRowBuffer() ? new int[source.width] : null;
+        byte[] data = target.getData();
+        for (int i = fromRow; i < toRow; i++) {
+            Arrays.fill(sums, 0);
+            for (int y = i * scale; y < (i + 1) * scale; y++) {
+                source.grayRow(y, function, rowBuffer, gray);
+                for (int j = 0, x = 0; j < width; j++) {
+                    int sum = 0;
+                    for (int end = x + scale; x < end; x++) {
+                        sum += gray[x] & COLOR_MASK;
+                    }
+                    sums[j] += sum;
+                }
+            }
+            int rowStart = i * target.getStride();
             for (int j = 0; j < width; j++) {
-                int rgb = image.getRGB(j, i);
-                int red = (rgb >> 16) & COLOR_MASK;
-                int green = (rgb >> 8) & COLOR_MASK;
-                int blue = (rgb) & COLOR_MASK;
-                int gray = function.apply(red, green, blue);
-                int pixel = (gray << 16) | (gray << 8) | gray;
-                grayImage.setRGB(j, i, pixel);
+                data[rowStart + j] = (byte) GrayLevels.stored((sums[j] + blockPixels / 2) / blockPixels);
             }
         }
-        SaveImage.saveImage(grayImage, "grayscale", saveImage);
-        return grayImage;
     }
-}
\ No newline at end of file
+
+    // Reads the pixels of a row of an image as gray values, straight from the
+    // data buffer when its layout is known. The image may be a sub-image sharing
+    // the buffer of a larger one, such as a tile.
+    private static final class PixelSource {
+
+        private final BufferedImage image;
+        private final int width;
+        private final int[] packed;
+        private final byte[] bytes;
+        private final int origin;
+        private final int pixelStride;
+        private final int scanlineStride;
+        private final int redOffset;
+        private final int greenOffset;
+        private final int blueOffset;
+        private final boolean grayLevels;
+
+        PixelSource(BufferedImage image) {
+            this.image = image;
+            width = image.getWidth();
+            Raster raster = image.getRaster();
+            int type = image.getType();
+            int bufferOffset = raster.getDataBuffer().getOffset();
+            grayLevels = type == BufferedImage.TYPE_BYTE_GRAY;
+            boolean packedInts = (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+                    && raster.getDataBuffer() instanceof DataBufferInt
+                    && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+            boolean interleaved = (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+                    || type == BufferedImage.TYPE_BYTE_GRAY)
+                    && raster.getDataBuffer() instanceof DataBufferByte
+                    && raster.getSampleModel() instanceof PixelInterleavedSampleModel;
+            if (packedInts) {
+                packed = ((DataBufferInt) raster.getDataBuffer()).getData();
+                bytes = null;
+                pixelStride = 1;
+                scanlineStride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                redOffset = 0;
+                greenOffset = 0;
+                blueOffset = 0;
+            } else if (interleaved) {
+                PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster.getSampleModel();
+                int[] offsets = model.getBandOffsets();
+                packed = null;
+                bytes = ((DataBufferByte) raster.getDataBuffer()).getData();
+                pixelStride = model.getPixelStride();
+                scanlineStride = model.getScanlineStride();
+                // Gray images have a single band, which is used for all three
+                // channels like GrayPlane.fromImage does, read as the level
+                // getRGB returns for it.
+                redOffset = offsets[0];
+                greenOffset = offsets[Math.min(1, offsets.length - 1)];
+                blueOffset = offsets[Math.min(2, offsets.length - 1)];
+            } else {
+                packed = null;
+                bytes = null;
+                pixelStride = 0;
+                scanlineStride = 0;
+                redOffset = 0;
+                greenOffset = 0;
+                blueOffset = 0;
+            }
+            // The translation is negative for a sub-image, and moves the origin
+            // to its first pixel in the shared buffer.
+            origin = bufferOffset - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX() * pixelStride;
+        }
+
+        boolean needsRowBuffer() {
+            return packed == null && bytes == null;
+        }
+
+        void grayRow(int row, GrayScaleFunction function, int[] rowBuffer, byte[] target) {
+            int count = target.length;
+            if (grayLevels) {
+                for (int j = 0, index = origin + row * scanlineStride; j < count; j++, index += pixelStride) {
+                    int level = GrayLevels.level(bytes[index]);
+                    target[j] = (byte) function.apply(level, level, level);
+                }
+                return;
+            }
+            if (bytes != null) {
+                for (int j = 0, index = origin + row * scanlineStride; j < count; j++, index += pixelStride) {
+                    target[j] = (byte) function.apply(bytes[index + redOffset] & COLOR_MASK,
+                            bytes[index + greenOffset] & COLOR_MASK, bytes[index + blueOffset] & COLOR_MASK);
+                }
+                return;
+            }
+            int[] pixels = packed;
+            int rowStart = origin + row * scanlineStride;
+            if (packed == null) {
+                image.getRGB(0, row, count, 1, rowBuffer, 0, width);
+                pixels = rowBuffer;
+                rowStart = 0;
+            }
+            for (int j = 0; j < count; j++) {
+                int rgb = pixels[rowStart + j];
+                target[j] = (byte) function.apply((rgb >> 16) & COLOR_MASK, (rgb >> 8) & COLOR_MASK,
+                        rgb & COLOR_MASK);
+            }
+        }
+    }
+
+    static void convertRow(BufferedImage image, int[] packed, int row, GrayScaleFunction function, int[] rowBuffer,
+            byte[] target, int targetOffset) {
+        int width = image.getWidth();
+        int[] pixels = packed;
+        int rowStart = row * width;
+        if (packed == null) {
+            image.getRGB(0, row, width, 1, rowBuffer, 0, width);
+            pixels = rowBuffer;
+            rowStart = 0;
+        }
+        for (int j = 0; j < width; j++) {
+            int rgb = pixels[rowStart + j];
+            int red = (rgb >> 16) & COLOR_MASK;
+            int green = (rgb >> 8) & COLOR_MASK;
+            int blue = (rgb) & COLOR_MASK;
+            target[targetOffset + j] = (byte) GrayLevels.stored(function.apply(red, green, blue));
+        }
+    }
+
+    static int[] packedPixels(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+        Raster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != image.getWidth()
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getOffset() != 0) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+}
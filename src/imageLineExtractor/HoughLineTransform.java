@@ -2,23 +2,75 @@ package imageLineExtractor;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class HoughLineTransform {
 
-    private static final int GREY_MASK = 0xFF;
     private static final int COLOR_RED = 0xFF0000;
-    private static final int COLOR_WHITE = 0xFFFFFFFF;
-    private static int upDownLeftRight = 60;
+    private static final int COLOR_WHITE = 0xFF;
+    private static final int THETA_STEPS = (int) (200 * Math.PI) + 1;
+    private static final int HORIZONTAL_THETA = (int) Math.round(50 * Math.PI);
+    private static final double[] COS = new double[THETA_STEPS];
+    private static final double[] SIN = new double[THETA_STEPS];
+    // Peaks kept per possible line and candidate column when suppressing
+    // non-maxima; weaker peaks are dropped before the spacing check.
+    private static final int MAX_PEAKS_PER_LINE = 4;
+
+    static {
+        for (int theta = 0; theta < THETA_STEPS; theta++) {
+            COS[theta] = Math.cos((double) theta / 100);
+            SIN[theta] = Math.sin((double) theta / 100);
+        }
+    }
+
+    /**
+     * Theta band width that makes the transform vote over every angle.
+     *
+     * Passing this value as the theta band to {@link #getLines} sweeps all
+     * {@code 0} to {@code 2 pi} angles in steps of {@code 0.01} radians, which is
+     * needed when the strongest lines of an image are not axis aligned.
+     */
+    public static final int FULL_SWEEP = -1;
+
+    /**
+     * The default theta band width used for voting.
+     *
+     * Votes are only accumulated for angles within this many {@code 0.01} radian
+     * steps of {@code 0} (vertical lines) and {@code pi / 2} (horizontal lines), since
+     * only those lines are extracted.
+     */
+    public static final int DEFAULT_THETA_BAND = 5;
+
+    /**
+     * The default minimum distance in pixels between two extracted lines of the
+     * same orientation, at full image resolution.
+     *
+     * A candidate line closer than this to an already extracted stronger line is
+     * treated as a duplicate of it. When the image is scaled down, the spacing is
+     * divided by the scale factor.
+     */
+    public static final int DEFAULT_LINE_SPACING = 60;
+
+    /**
+     * Parallelism level that votes on the calling thread only.
+     */
+    public static final int SEQUENTIAL = 1;
 
     /**
-     * Extracts horizontal and vertical lines from a {@code BufferedImage}.
+     * The default number of workers used for voting, one per available
+     * processor.
+     */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane}.
      *
      * This method processes an image to detect and extract the coordinates of
      * horizontal and vertical lines. It maps all white pixels onto a polar
      * coordinate system and identifies regions where lines converge. Only the most
      * relevant horizontal and vertical lines are extracted.
      * 
-     * @param image     The {@code BufferedImage} to be processed.
+     * @param image     The binary {@code GrayPlane} to be processed.
      * @param scale     A {@code int} value specifying the scale factor for
      *                  reducing the image size during processing. The scale must
      *                  be 1 or greater.
@@ -28,124 +80,376 @@ public class HoughLineTransform {
      *         - The first sub-array contains the coordinates of horizontal lines.
      *         - The second sub-array contains the coordinates of vertical lines.
      */
-    public static int[][] getLines(BufferedImage image, int scale, boolean saveImage) {
-        upDownLeftRight /= scale;
-        ArrayList<int[]> sortingArray = makePolarCoordinatesGraph(findHighestPoint(image), image, saveImage);
-        int[][] horizontalVerticalLines = findHorizontalAndVerticalLines(sortingArray, image, saveImage);
-        return horizontalVerticalLines;
+    public static int[][] getLines(GrayPlane image, int scale, boolean saveImage) {
+        return getLines(image, scale, DEFAULT_THETA_BAND, DEFAULT_PARALLELISM, saveImage);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane},
+     * voting only within the given theta bands.
+     *
+     * Votes are accumulated for angles within {@code thetaBand} steps of
+     * {@code 0.01} radians around {@code 0} and {@code pi / 2}. The other angles can
+     * never produce a horizontal or vertical line, so skipping them only changes
+     * the result if the strongest line of the whole image lies outside the bands,
+     * since the strongest line sets the minimum vote count for the extracted ones.
+     * Use {@link #FULL_SWEEP} to vote over every angle.
+     *
+     * @param image     The binary {@code GrayPlane} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param thetaBand The number of {@code 0.01} radian steps voted on each side
+     *                  of {@code 0} and {@code pi / 2}, or {@link #FULL_SWEEP}.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(GrayPlane image, int scale, int thetaBand, boolean saveImage) {
+        return getLines(image, scale, thetaBand, DEFAULT_PARALLELISM, saveImage);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane},
+     * voting with the given number of workers.
+     *
+     * The image rows are split into one strip per worker, and every worker votes
+     * into its own accumulator on a fork-join pool. The accumulators are summed
+     * afterwards, so the votes, and therefore the returned lines, are exactly the
+     * same as when voting sequentially.
+     *
+     * @param image       The binary {@code GrayPlane} to be processed.
+     * @param scale       A {@code int} value specifying the scale factor for
+     *                    reducing the image size during processing. The scale
+     *                    must be 1 or greater.
+     * @param thetaBand   The number of {@code 0.01} radian steps voted on each
+     *                    side of {@code 0} and {@code pi / 2}, or
+     *                    {@link #FULL_SWEEP}.
+     * @param parallelism The number of workers voting in parallel, or
+     *                    {@link #SEQUENTIAL} to vote on the calling thread.
+     * @param saveImage   A {@code boolean} flag that determines whether the
+     *                    processed image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(GrayPlane image, int scale, int thetaBand, int parallelism, boolean saveImage) {
+        return findLines(image, DEFAULT_LINE_SPACING / scale, thetaBand, parallelism, false, null, saveImage);
+    }
+
+    static int[][] findLines(GrayPlane image, int lineSpacing, int thetaBand, int parallelism,
+            boolean suppressNonMaxima, ScratchBuffers scratch, boolean saveImage) {
+        int width = image.getWidth();
+        int stride = image.getStride();
+        int height = image.getHeight();
+        byte[] pixels = image.getData();
+        return findLines(width, height, height, (fromRow, toRow, thetas, accumulator) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int j = 0; j < width; j++) {
+                    if ((pixels[i * stride + j] & COLOR_WHITE) == COLOR_WHITE) {
+                        plotOnArray(j, i, thetas, accumulator);
+                    }
+                }
+            }
+        }, lineSpacing, thetaBand, parallelism, suppressNonMaxima, scratch, saveImage ? image.copy() : null);
     }
 
-    private static int findHighestPoint(BufferedImage image) {
-        int highestPoint = -1;
-        for (int i = 0; i < image.getHeight(); i++) {
-            for (int j = 0; j < image.getWidth(); j++) {
-                if (image.getRGB(j, i) == COLOR_WHITE) {
-                    for (double theta = 0; theta < 200 * Math.PI; theta++) {
-                        long r = Math.round(i * Math.cos((double) theta / 100) + j * Math.sin((double) theta / 100));
-                        if (r > highestPoint) {
-                            highestPoint = (int) r;
-                        }
+    /**
+     * Extracts horizontal and vertical lines from a {@code BinaryPlane}.
+     *
+     * This method finds the same lines as {@link #getLines(GrayPlane, int,
+     * boolean)} for the same pixels. The set pixels are found a word at a time,
+     * so empty stretches of 64 pixels are skipped with a single comparison.
+     *
+     * @param image     The {@code BinaryPlane} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(BinaryPlane image, int scale, boolean saveImage) {
+        return findLines(image, DEFAULT_LINE_SPACING / scale, DEFAULT_THETA_BAND, DEFAULT_PARALLELISM, false, null,
+                saveImage);
+    }
+
+    static int[][] findLines(BinaryPlane image, int lineSpacing, int thetaBand, int parallelism,
+            boolean suppressNonMaxima, ScratchBuffers scratch, boolean saveImage) {
+        int wordsPerRow = image.getWordsPerRow();
+        long[] words = image.getWords();
+        int height = image.getHeight();
+        return findLines(image.getWidth(), height, height, (fromRow, toRow, thetas, accumulator) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int k = 0; k < wordsPerRow; k++) {
+                    for (long word = words[i * wordsPerRow + k]; word != 0; word &= word - 1) {
+                        plotOnArray(k * 64 + Long.numberOfTrailingZeros(word), i, thetas, accumulator);
                     }
                 }
             }
+        }, lineSpacing, thetaBand, parallelism, suppressNonMaxima, scratch,
+                saveImage ? image.toGrayPlane() : null);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a list of edge points.
+     *
+     * This method finds the same lines as {@link #getLines(GrayPlane, int,
+     * boolean)} for an image with the same white pixels, but only visits the
+     * points instead of every pixel of the image. The points are split evenly
+     * between the workers, however they are spread over the image.
+     *
+     * @param points    The {@code EdgePoints} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(EdgePoints points, int scale, boolean saveImage) {
+        return findLines(points, DEFAULT_LINE_SPACING / scale, DEFAULT_THETA_BAND, DEFAULT_PARALLELISM, false, null,
+                saveImage);
+    }
+
+    static int[][] findLines(EdgePoints points, int lineSpacing, int thetaBand, int parallelism,
+            boolean suppressNonMaxima, ScratchBuffers scratch, boolean saveImage) {
+        int[] coordinates = points.getCoordinates();
+        return findLines(points.getWidth(), points.getHeight(), points.size(),
+                (fromPoint, toPoint, thetas, accumulator) -> {
+                    for (int i = 2 * fromPoint; i < 2 * toPoint; i += 2) {
+                        plotOnArray(coordinates[i], coordinates[i + 1], thetas, accumulator);
+                    }
+                }, lineSpacing, thetaBand, parallelism, suppressNonMaxima, scratch,
+                saveImage ? points.toGrayPlane() : null);
+    }
+
+    // Votes the pixels of a range of units, rows of an image or points of a
+    // list, into an accumulator.
+    @FunctionalInterface
+    private interface Voter {
+        void vote(int fromUnit, int toUnit, int[] thetas, int[] accumulator);
+    }
+
+    private static int[][] findLines(int width, int height, int units, Voter voter, int lineSpacing,
+            int thetaBand, int parallelism, boolean suppressNonMaxima, ScratchBuffers scratch,
+            GrayPlane savedImage) {
+        boolean saveImage = savedImage != null;
+        int highestPoint = findHighestPoint(width, height);
+        int[] thetas = thetas(thetaBand);
+        int[] coordinateSystemArray = makePolarCoordinatesGraph(highestPoint, thetas, units, voter, parallelism,
+                scratch, saveImage);
+        int[][] horizontalVerticalLines = findHorizontalAndVerticalLines(coordinateSystemArray, highestPoint + 1,
+                thetas, savedImage, lineSpacing, suppressNonMaxima, saveImage);
+        return horizontalVerticalLines;
+    }
+
+    // Extracts the lines of an accumulator that was voted elsewhere, such as by
+    // the tiles of a TiledLineDetector, with rhoCount rows of thetas columns.
+    static int[][] findLines(int[] accumulator, int rhoCount, int[] thetas, int lineSpacing,
+            boolean suppressNonMaxima) {
+        return findHorizontalAndVerticalLines(accumulator, rhoCount, thetas, null, lineSpacing, suppressNonMaxima,
+                false);
+    }
+
+    static long accumulatorCells(int width, int height, int thetaBand) {
+        return (long) (findHighestPoint(width, height) + 1) * thetas(thetaBand).length;
+    }
+
+    static int[] thetas(int thetaBand) {
+        if (thetaBand < 0 || 2 * (2 * thetaBand + 1) >= THETA_STEPS) {
+            int[] thetas = new int[THETA_STEPS];
+            for (int theta = 0; theta < THETA_STEPS; theta++) {
+                thetas[theta] = theta;
+            }
+            return thetas;
+        }
+        boolean[] voted = new boolean[THETA_STEPS];
+        for (int offset = -thetaBand; offset <= thetaBand; offset++) {
+            voted[Math.floorMod(offset, THETA_STEPS)] = true;
+            voted[HORIZONTAL_THETA + offset] = true;
+        }
+        int count = 0;
+        for (boolean isVoted : voted) {
+            count += isVoted ? 1 : 0;
         }
-        return highestPoint;
+        int[] thetas = new int[count];
+        for (int theta = 0, i = 0; theta < THETA_STEPS; theta++) {
+            if (voted[theta]) {
+                thetas[i++] = theta;
+            }
+        }
+        return thetas;
+    }
+
+    // The coordinate a line is extracted at from the cell of rho r and the given
+    // theta: the column of a vertical line, or the row a horizontal line has
+    // at x = 0.
+    static int lineCoordinate(int r, int theta) {
+        return theta == 0 ? r : (int) (r / Math.sin((double) theta / 100));
     }
 
-    private static void plotOnArray(int x, int y, int[][] coordinateSystemArray, BufferedImage image) {
-        for (int theta = 0; theta < 200 * Math.PI; theta++) {
-            int r = (int) Math.round(x * Math.cos((double) theta / 100) + y * Math.sin((double) theta / 100));
+    // No pixel can be further from the origin than the image diagonal, so the
+    // bound follows from the image size instead of from a pass over every pixel.
+    static int findHighestPoint(int width, int height) {
+        int maxX = Math.max(width - 1, 0);
+        int maxY = Math.max(height - 1, 0);
+        return (int) Math.ceil(Math.sqrt((double) maxX * maxX + (double) maxY * maxY));
+    }
+
+    // Returns the highest count among the cells the pixel voted for.
+    static int plotOnArray(int x, int y, int[] thetas, int[] coordinateSystemArray) {
+        int max = 0;
+        for (int column = 0; column < thetas.length; column++) {
+            int theta = thetas[column];
+            int r = (int) Math.round(x * COS[theta] + y * SIN[theta]);
             if (r < 0) {
                 continue;
             }
-            int newColor = (image.getRGB(theta, image.getHeight() - 1 - r) & GREY_MASK) + 1;
-            if (newColor > 255) {
-                newColor = 255;
-            }
-            int newColorPixel = (newColor << 16) | (newColor << 8) | newColor;
-            image.setRGB(theta, image.getHeight() - 1 - r, newColorPixel);
-            coordinateSystemArray[r][theta]++;
+            max = Math.max(max, ++coordinateSystemArray[r * thetas.length + column]);
         }
+        return max;
     }
 
-    private static ArrayList<int[]> makePolarCoordinatesGraph(int highestPoint, BufferedImage image,
-            boolean saveImage) {
-        int[][] coordinateSystemArray = new int[highestPoint + 1][(int) (200 * Math.PI) + 2];
-        BufferedImage graphImage = new BufferedImage(coordinateSystemArray[0].length, coordinateSystemArray.length,
-                BufferedImage.TYPE_INT_RGB);
-        for (int i = 0; i < image.getHeight(); i++) {
-            for (int j = 0; j < image.getWidth(); j++) {
-                if (image.getRGB(j, i) == COLOR_WHITE) {
-                    plotOnArray(j, i, coordinateSystemArray, graphImage);
+    private static int[] vote(Voter voter, int units, int[] thetas, int rhoCount, int parallelism,
+            ScratchBuffers scratch) {
+        int strips = ParallelStrips.stripCount(units, parallelism);
+        int[][] accumulators = scratch != null ? scratch.accumulators(strips, rhoCount * thetas.length)
+                : new int[strips][rhoCount * thetas.length];
+        ParallelStrips.run(units, strips,
+                (strip, fromUnit, toUnit) -> voter.vote(fromUnit, toUnit, thetas, accumulators[strip]));
+        int[] coordinateSystemArray = accumulators[0];
+        if (strips > 1) {
+            ParallelStrips.run(rhoCount, strips, (strip, fromRow, toRow) -> {
+                for (int k = 1; k < accumulators.length; k++) {
+                    int[] accumulator = accumulators[k];
+                    for (int cell = fromRow * thetas.length; cell < toRow * thetas.length; cell++) {
+                        coordinateSystemArray[cell] += accumulator[cell];
+                    }
                 }
+            });
+        }
+        return coordinateSystemArray;
+    }
+
+    private static int[] makePolarCoordinatesGraph(int highestPoint, int[] thetas, int units, Voter voter,
+            int parallelism, ScratchBuffers scratch, boolean saveImage) {
+        int[] coordinateSystemArray = vote(voter, units, thetas, highestPoint + 1, parallelism, scratch);
+        if (saveImage) {
+            int[] counts = Arrays.copyOf(coordinateSystemArray, (highestPoint + 1) * thetas.length);
+            SaveImage.saveImage(() -> renderGraph(counts, thetas, highestPoint), "graph", saveImage);
+        }
+        return coordinateSystemArray;
+    }
+
+    private static BufferedImage renderGraph(int[] counts, int[] thetas, int highestPoint) {
+        GrayPlane graphImage = new GrayPlane(THETA_STEPS, highestPoint + 1);
+        for (int i = 0; i <= highestPoint; i++) {
+            for (int j = 0; j < thetas.length; j++) {
+                graphImage.set(thetas[j], highestPoint - i, Math.min(counts[i * thetas.length + j], 255));
             }
         }
-        SaveImage.saveImage(graphImage, "graph", saveImage);
-        ArrayList<int[]> sortingArray = new ArrayList<>();
-        for (int i = 0; i < coordinateSystemArray.length; i++) {
-            for (int j = 0; j < coordinateSystemArray[i].length; j++) {
-                if (coordinateSystemArray[i][j] > 0) {
-                    sortingArray.add(new int[] { coordinateSystemArray[i][j], i, j });
-                }
+        return graphImage.toBufferedImage();
+    }
+
+    // Only lines at theta 0 (vertical) or with a slope within 0.01 of 0
+    // (horizontal) are extracted, so peaks are only searched in those columns.
+    static int[] candidateColumns(int[] thetas) {
+        int count = 0;
+        int[] columns = new int[thetas.length];
+        for (int column = 0; column < thetas.length; column++) {
+            double rho = (double) thetas[column] / 100;
+            double m = -Math.cos(rho) / Math.sin(rho);
+            if (rho == 0 || m < 0.01 && m > -0.01) {
+                columns[count++] = column;
             }
         }
-        return sortingArray;
+        return Arrays.copyOf(columns, count);
     }
 
-    private static int[][] findHorizontalAndVerticalLines(ArrayList<int[]> sortingArray, BufferedImage image,
-            boolean saveImage) {
+    private static int[][] findHorizontalAndVerticalLines(int[] coordinateSystemArray, int rhoCount, int[] thetas,
+            GrayPlane image, int upDownLeftRight, boolean suppressNonMaxima, boolean saveImage) {
+        int maxVotes = HoughPeaks.maxVotes(coordinateSystemArray, rhoCount * thetas.length);
+        ArrayList<int[]> drawnLines = saveImage ? new ArrayList<>() : null;
+        int[][] horizontalVerticalLines = extractLines(coordinateSystemArray, rhoCount, thetas, maxVotes,
+                upDownLeftRight, suppressNonMaxima, drawnLines);
+        if (saveImage) {
+            SaveImage.saveImage(() -> renderLines(image, drawnLines), "hough-line-transform", saveImage);
+        }
+        return horizontalVerticalLines;
+    }
+
+    // Peaks are visited strongest first, down to an eighth of maxVotes, the
+    // strongest cell of the whole accumulator, and each one becomes a line
+    // unless a line of the same orientation was already accepted closer than
+    // upDownLeftRight. Without suppression every cell is a peak, which gives
+    // exactly the lines of sorting all cells by votes. With suppression, only
+    // local maxima are visited, and only the strongest few per possible line.
+    // The votes, rho and theta of every accepted cell are added to drawnLines
+    // unless it is null.
+    static int[][] extractLines(int[] coordinateSystemArray, int rhoCount, int[] thetas, int maxVotes,
+            int upDownLeftRight, boolean suppressNonMaxima, ArrayList<int[]> drawnLines) {
+        // A neighbour of an accepted line is only guaranteed to be too close to
+        // it when the spacing is at least 2.
+        suppressNonMaxima &= upDownLeftRight > 1;
+        int[] candidateColumns = candidateColumns(thetas);
+        int maxPeaks = suppressNonMaxima
+                ? MAX_PEAKS_PER_LINE * (rhoCount / Math.max(upDownLeftRight, 1) + 1) * candidateColumns.length
+                : Integer.MAX_VALUE;
+        int[] peaks = HoughPeaks.findPeaks(coordinateSystemArray, rhoCount, thetas, candidateColumns, maxVotes / 8,
+                maxPeaks, suppressNonMaxima);
+        HoughPeaks.SortedLines verticalLines = new HoughPeaks.SortedLines();
+        HoughPeaks.SortedLines horizontalLines = new HoughPeaks.SortedLines();
+        for (int cell : peaks) {
+            int r = cell / thetas.length;
+            int theta = thetas[cell % thetas.length];
+            double rho = (double) theta / 100;
+            double m = -Math.cos(rho) / Math.sin(rho);
+            double c = r / Math.sin(rho);
+            HoughPeaks.SortedLines lines = rho == 0 ? verticalLines : horizontalLines;
+            if (lines.isTooClose(r, upDownLeftRight)) {
+                continue;
+            }
+            lines.add(rho == 0 ? r : (int) c);
+            if (drawnLines != null) {
+                drawnLines.add(new int[] { coordinateSystemArray[cell], r, theta });
+            }
+        }
+        return new int[][] { horizontalLines.toArray(), verticalLines.toArray() };
+    }
+
+    static BufferedImage renderLines(GrayPlane image, ArrayList<int[]> drawnLines) {
         int width = image.getWidth();
         int height = image.getHeight();
         BufferedImage houghLineTransformImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
-                houghLineTransformImage.setRGB(j, i, image.getRGB(j, i));
+                houghLineTransformImage.setRGB(j, i, image.get(j, i) * 0x010101);
             }
         }
-        ArrayList<Integer> verticalLines = new ArrayList<>();
-        ArrayList<Integer> horizontalLines = new ArrayList<>();
-        sortingArray.sort((arr1, arr2) -> Integer.compare(arr2[0], arr1[0]));
-        for (int[] values : sortingArray) {
-            if (values[0] < sortingArray.get(0)[0] / 8) {
-                break;
-            }
+        for (int[] values : drawnLines) {
             double rho = (double) values[2] / 100;
             int r = values[1];
             double m = -Math.cos(rho) / Math.sin(rho);
             double c = r / Math.sin(rho);
-            if (rho == 0 || m < 0.01 && m > -0.01) {
-                boolean isTooClose = false;
-                for (int verticalOrHorizontal : rho == 0 ? verticalLines : horizontalLines) {
-                    if (verticalOrHorizontal - upDownLeftRight < r && verticalOrHorizontal + upDownLeftRight > r) {
-                        isTooClose = true;
-                        break;
-                    }
-                }
-                if (isTooClose) {
-                    continue;
-                }
+            for (int j = 0; j < (rho == 0 ? height : width); j++) {
                 if (rho == 0) {
-                    verticalLines.add(r);
+                    houghLineTransformImage.setRGB(r, j, COLOR_RED);
                 } else {
-                    horizontalLines.add((int) c);
-                }
-                for (int j = 0; j < (rho == 0 ? height : width); j++) {
-                    if (rho == 0) {
-                        houghLineTransformImage.setRGB(r, j, COLOR_RED);
-                    } else {
-                        int y = (int) (c + m * j);
-                        if (y >= height || y < 0) {
-                            continue;
-                        }
-                        houghLineTransformImage.setRGB(j, y, COLOR_RED);
+                    int y = (int) (c + m * j);
+                    if (y >= height || y < 0) {
+                        continue;
                     }
+                    houghLineTransformImage.setRGB(j, y, COLOR_RED);
                 }
             }
         }
-        horizontalLines.sort((a, b) -> Integer.compare(a, b));
-        verticalLines.sort((a, b) -> Integer.compare(a, b));
-        SaveImage.saveImage(houghLineTransformImage, "hough-line-transform", saveImage);
-        return new int[][] { horizontalLines.stream().mapToInt(Integer::intValue).toArray(),
-                verticalLines.stream().mapToInt(Integer::intValue).toArray() };
+        return houghLineTransformImage;
     }
 }
@@ -0,0 +1,208 @@
+package imageLineExtractor;
+
+import java.util.Arrays;
+
+/**
+ * Peak extraction on a flat Hough accumulator, where the cell of rho {@code r}
+ * and theta column {@code column} is at {@code r * columns + column}.
+ *
+ * Peaks are ordered by their key, which is the vote count, with ties going to
+ * the cell with the lower index. This is the order in which a stable sort of
+ * all cells by descending votes would list them.
+ */
+final class HoughPeaks {
+
+    private static final int INITIAL_HEAP_CAPACITY = 1024;
+
+    private HoughPeaks() {
+    }
+
+    static int maxVotes(int[] accumulator, int cells) {
+        int max = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            max = Math.max(max, accumulator[cell]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the cells of the strongest peaks in the candidate columns, strongest
+     * first.
+     *
+     * A cell is a peak if it has at least {@code minVotes} (and at least one)
+     * votes. With {@code suppress} set, a cell is also dropped when one of its
+     * neighbours with the next or previous rho, or with the same or an adjacent
+     * rho in a candidate column one theta step away, has a greater key. At most
+     * {@code maxPeaks} peaks are kept, in a min-heap of keys.
+     *
+     * @param accumulator      The vote counts.
+     * @param rhoCount         The number of rho rows in the accumulator.
+     * @param thetas           The theta (in {@code 0.01} radian steps) of every
+     *                         column.
+     * @param candidateColumns The columns peaks are searched in.
+     * @param minVotes         The minimum number of votes of a peak.
+     * @param maxPeaks         The maximum number of peaks returned.
+     * @param suppress         Whether to apply non-maximum suppression.
+     * @return the peak cells, ordered by descending key.
+     */
+    static int[] findPeaks(int[] accumulator, int rhoCount, int[] thetas, int[] candidateColumns, int minVotes,
+            int maxPeaks, boolean suppress) {
+        int columns = thetas.length;
+        int[][] neighbourColumns = new int[candidateColumns.length][];
+        for (int k = 0; k < candidateColumns.length; k++) {
+            neighbourColumns[k] = adjacentColumns(candidateColumns[k], thetas, candidateColumns);
+        }
+        long[] heap = new long[Math.max(1, Math.min(maxPeaks, INITIAL_HEAP_CAPACITY))];
+        int size = 0;
+        int threshold = Math.max(1, minVotes);
+        for (int r = 0; r < rhoCount; r++) {
+            for (int k = 0; k < candidateColumns.length; k++) {
+                int cell = r * columns + candidateColumns[k];
+                int votes = accumulator[cell];
+                if (votes < threshold) {
+                    continue;
+                }
+                long key = key(votes, cell);
+                if (suppress && !isLocalMaximum(accumulator, rhoCount, columns, r, candidateColumns[k],
+                        neighbourColumns[k], key)) {
+                    continue;
+                }
+                if (size < maxPeaks) {
+                    if (size == heap.length) {
+                        heap = Arrays.copyOf(heap, (int) Math.min(maxPeaks, 2L * heap.length));
+                    }
+                    heap[size] = key;
+                    siftUp(heap, size++);
+                } else if (key > heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, 0, size);
+                }
+            }
+        }
+        int[] peaks = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            peaks[i] = cell(heap[0]);
+            heap[0] = heap[i];
+            siftDown(heap, 0, i);
+        }
+        return peaks;
+    }
+
+    // Greater keys come first: more votes, then the lower cell index.
+    private static long key(int votes, int cell) {
+        return ((long) votes << 32) | (Integer.MAX_VALUE - cell);
+    }
+
+    private static int cell(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+
+    private static int[] adjacentColumns(int column, int[] thetas, int[] candidateColumns) {
+        int count = 0;
+        int[] adjacent = new int[2];
+        for (int candidate : candidateColumns) {
+            if (Math.abs(thetas[candidate] - thetas[column]) == 1 && count < adjacent.length) {
+                adjacent[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(adjacent, count);
+    }
+
+    private static boolean isLocalMaximum(int[] accumulator, int rhoCount, int columns, int r, int column,
+            int[] adjacentColumns, long key) {
+        for (int neighbour = Math.max(0, r - 1); neighbour <= Math.min(rhoCount - 1, r + 1); neighbour++) {
+            if (neighbour != r && beats(accumulator, neighbour * columns + column, key)) {
+                return false;
+            }
+            for (int adjacent : adjacentColumns) {
+                if (beats(accumulator, neighbour * columns + adjacent, key)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean beats(int[] accumulator, int cell, long key) {
+        return key(accumulator[cell], cell) > key;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private static void siftDown(long[] heap, int i, int size) {
+        long key = heap[i];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+
+    /**
+     * Line coordinates kept sorted in a primitive array, so the spacing check is
+     * a binary search instead of a scan over every accepted line.
+     */
+    static final class SortedLines {
+
+        private int[] values = new int[16];
+        private int size;
+
+        /**
+         * Returns whether a line lies strictly closer than {@code spacing} to
+         * {@code value}.
+         */
+        boolean isTooClose(int value, int spacing) {
+            if (spacing <= 0) {
+                return false;
+            }
+            int index = lowerBound(value - spacing + 1);
+            return index < size && values[index] < value + spacing;
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            int index = lowerBound(value);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        private int lowerBound(int value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package imageLineExtractor;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+public class ImageInput {
+
+    /**
+     * Reads an image file, decoding only a region of it and only every
+     * {@code subsampling}-th pixel.
+     *
+     * The image reader skips the pixels that are not needed while decoding, so
+     * a large image read with a subsampling of {@code 4} only ever takes a
+     * sixteenth of the memory, and no full resolution image is created. Of
+     * every {@code subsampling} by {@code subsampling} block, the pixel nearest
+     * to its center is kept. The region is cut down to a multiple of the
+     * subsampling, so the result is {@code region.width / subsampling} by
+     * {@code region.height / subsampling} pixels, the same size as scaling the
+     * region down.
+     *
+     * @param file        The image {@code File} to be read.
+     * @param region      The {@code Rectangle} of the image to decode, or
+     *                    {@code null} for the whole image. It is clipped to the
+     *                    image.
+     * @param subsampling The factor by which the image is scaled down. Must be
+     *                    1 or greater.
+     * @return the decoded {@code BufferedImage}, or {@code null} if no image
+     *         reader supports the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static BufferedImage read(File file, Rectangle region, int subsampling) throws IOException {
+        if (!file.canRead()) {
+            throw new IOException("Cannot read input file " + file);
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            return read(stream, region, subsampling);
+        }
+    }
+
+    /**
+     * Reads an image from a stream, decoding only a region of it and only every
+     * {@code subsampling}-th pixel, as {@link #read(File, Rectangle, int)} does.
+     *
+     * @param input       The {@code InputStream} to read the image from. It is
+     *                    not closed.
+     * @param region      The {@code Rectangle} of the image to decode, or
+     *                    {@code null} for the whole image. It is clipped to the
+     *                    image.
+     * @param subsampling The factor by which the image is scaled down. Must be
+     *                    1 or greater.
+     * @return the decoded {@code BufferedImage}, or {@code null} if no image
+     *         reader supports the stream.
+     * @throws IOException if the stream cannot be read.
+     */
+    public static BufferedImage read(InputStream input, Rectangle region, int subsampling) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            return read(stream, region, subsampling);
+        }
+    }
+
+    /**
+     * Reads the size of an image file from its header, without decoding any
+     * pixels.
+     *
+     * @param file The image {@code File} to be examined.
+     * @return the {@code Dimension} of the image, or {@code null} if no image
+     *         reader supports the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Dimension readSize(File file) throws IOException {
+        if (!file.canRead()) {
+            throw new IOException("Cannot read input file " + file);
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            return readSize(stream);
+        }
+    }
+
+    /**
+     * Reads the size of an image from the header at the start of a stream,
+     * without decoding any pixels, as {@link #readSize(File)} does.
+     *
+     * @param input The {@code InputStream} to read the header from. It is not
+     *              closed.
+     * @return the {@code Dimension} of the image, or {@code null} if no image
+     *         reader supports the stream.
+     * @throws IOException if the header cannot be read.
+     */
+    public static Dimension readSize(InputStream input) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            return readSize(stream);
+        }
+    }
+
+    private static Dimension readSize(ImageInputStream stream) throws IOException {
+        Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+        if (readers == null || !readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            return new Dimension(reader.getWidth(0), reader.getHeight(0));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static BufferedImage read(ImageInputStream stream, Rectangle region, int subsampling)
+            throws IOException {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("Subsampling must be 1 or greater, was " + subsampling);
+        }
+        if (stream == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            Rectangle bounds = new Rectangle(reader.getWidth(0), reader.getHeight(0));
+            Rectangle source = region == null ? bounds : region.intersection(bounds);
+            source.width -= source.width % subsampling;
+            source.height -= source.height % subsampling;
+            if (source.isEmpty()) {
+                throw new IllegalArgumentException("Region " + region + " leaves no " + subsampling + "x"
+                        + subsampling + " block of the " + bounds.width + "x" + bounds.height + " image");
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(source);
+            int offset = (subsampling - 1) / 2;
+            param.setSourceSubsampling(subsampling, subsampling, offset, offset);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+}
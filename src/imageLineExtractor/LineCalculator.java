@@ -1,7 +1,5 @@
 package imageLineExtractor;
 
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
@@ -23,6 +21,10 @@ public class LineCalculator {
 	 * This method processes an image to detect and extract the coordinates
 	 * of horizontal and vertical lines. The operation can be scaled down for
 	 * performance optimization and optionally saves intermediate step images.
+	 * The image is converted to a {@code GrayPlane} once at the start, and every
+	 * following stage works on primitive gray planes. Unless intermediate images
+	 * are requested, the grayscale, blur and gradient stages run fused in a
+	 * single row-streaming pass.
 	 *
 	 * @param pathname   The file path to the input image as a {@code String}.
 	 * @param scale      A {@code int} value specifying the scale factor for
@@ -35,30 +37,34 @@ public class LineCalculator {
 	 *         - The second sub-array contains the coordinates of vertical lines.
 	 */
 	public static int[][] calculateLines(BufferedImage image, int scale, boolean saveImages) {
+		return calculateLines(image, scale, saveImages, !saveImages);
+	}
 
-		BufferedImage scaledImage = new BufferedImage((image.getWidth() / scale), (image.getHeight() / scale),
-				BufferedImage.TYPE_INT_ARGB);
-		AffineTransform at = AffineTransform.getScaleInstance((double) 1 / scale, (double) 1 / scale);
-		AffineTransformOp ato = new AffineTransformOp(at, AffineTransformOp.TYPE_BICUBIC);
-		scaledImage = ato.filter(image, scaledImage);
-
-		BufferedImage grayImage = GrayScale.applyGrayScale(scaledImage, GrayScale.AVERAGE, saveImages);
-
-		BufferedImage blurredImage = GaussianFilter.applyGaussianFilter(grayImage, GaussianFilter.KERNEL3x3,
-				saveImages);
-
-		BufferedImage thresholdGradientImage = EdgeDetection.getThresholdGradient(blurredImage, EdgeDetection.SOBEL,
-				EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, saveImages);
-
-		BufferedImage erodedAndDilated = ErosionDilation.erosionAndDilation(thresholdGradientImage, saveImages);
-
-		int[][] linesCoords = HoughLineTransform.getLines(erodedAndDilated, scale, saveImages);
-		for (int[] lines : linesCoords) {
-			for (int i = 0; i < lines.length; i++) {
-				lines[i] *= scale;
-			}
-		}
-		return linesCoords;
+	/**
+	 * Extracts horizontal and vertical lines from a {@code BufferedImage},
+	 * choosing between the per-stage and the fused edge detection path.
+	 *
+	 * The per-stage path runs {@link GrayScale}, {@link GaussianFilter} and
+	 * {@link EdgeDetection} one after another and can save every intermediate
+	 * image. The fused path computes the same thresholded gradient with
+	 * {@link FusedEdgeDetection} without materializing the intermediate images,
+	 * so those are never saved. This method runs a {@link LineDetector} with the
+	 * default configuration and the given scale.
+	 *
+	 * @param image      The {@code BufferedImage} to be processed.
+	 * @param scale      A {@code int} value specifying the scale factor for
+	 *                   reducing the image size during processing. The scale must
+	 *                   be 1 or greater.
+	 * @param saveImages A {@code boolean} flag indicating whether intermediate
+	 *                   images generated during processing should be saved.
+	 * @param fused      A {@code boolean} flag selecting the fused row-streaming
+	 *                   path for the grayscale, blur and gradient stages.
+	 * @return a 2D {@code int} array where:
+	 *         - The first sub-array contains the coordinates of horizontal lines.
+	 *         - The second sub-array contains the coordinates of vertical lines.
+	 */
+	public static int[][] calculateLines(BufferedImage image, int scale, boolean saveImages, boolean fused) {
+		return new LineDetector().setScale(scale).setFused(fused).calculateLines(image, saveImages);
 	}
 
 	/**
@@ -0,0 +1,25 @@
+package imageLineExtractor;
+
+/**
+ * The ways {@link LineDetector} can find lines in the cleaned edge image.
+ */
+public enum LineDetectionMode {
+
+    /**
+     * Every edge pixel votes, with {@link HoughLineTransform}.
+     */
+    HOUGH,
+
+    /**
+     * Every edge pixel votes where lines are extracted and a random sample of
+     * them everywhere else, with {@link ProgressiveHoughTransform}.
+     */
+    PROGRESSIVE_HOUGH,
+
+    /**
+     * The white pixels of every row and column are counted, with
+     * {@link ProjectionProfile}, falling back to {@link HoughLineTransform} for
+     * skewed images.
+     */
+    PROJECTION
+}
@@ -0,0 +1,991 @@
+package imageLineExtractor;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class LineDetector {
+
+    private GrayScaleFunction grayScaleFunction = GrayScale.AVERAGE;
+    private int[][] blurKernel = GaussianFilter.KERNEL3x3;
+    private BlurMethod blurMethod = BlurMethod.SEPARABLE;
+    private double blurSigma = GaussianFilter.DEFAULT_SIGMA;
+    private int[][] gradientFilter = EdgeDetection.SOBEL;
+    private double alpha = EdgeDetection.PRESET_ALPHA;
+    private double beta = EdgeDetection.PRESET_BETA;
+    private ThresholdRule thresholdRule = ThresholdRule.ALPHA_BETA;
+    private double percentile = EdgeDetection.PRESET_PERCENTILE;
+    private int scale = LineCalculator.DEFAULT_IMAGE_SCALEDOWN;
+    private int lineSpacing = HoughLineTransform.DEFAULT_LINE_SPACING;
+    private int thetaBand = HoughLineTransform.DEFAULT_THETA_BAND;
+    private int parallelism = HoughLineTransform.DEFAULT_PARALLELISM;
+    private boolean fused = true;
+    private boolean canny;
+    private boolean peakSuppression;
+    private LineDetectionMode mode = LineDetectionMode.HOUGH;
+    private long seed = ProgressiveHoughTransform.DEFAULT_SEED;
+    private double voteBudget = ProgressiveHoughTransform.FULL_BUDGET;
+    private double skewTolerance = ProjectionProfile.DEFAULT_SKEW_TOLERANCE;
+    private boolean refinement;
+    private ScalingMethod scalingMethod = ScalingMethod.BICUBIC;
+    private StageListener stageListener;
+    private ResultCache resultCache;
+
+    /**
+     * Creates a line detector with the default configuration.
+     *
+     * The defaults are the same as those used by
+     * {@link LineCalculator#calculateLines}: average grayscale conversion, the
+     * 3x3 Gaussian kernel, the Sobel filter with the preset thresholds, no
+     * scaling and the default line spacing.
+     *
+     * A detector holds only its configuration. Working memory (image planes and
+     * Hough accumulators) is kept per thread and reused by every detector running
+     * on that thread, so a configured detector can be shared by any number of
+     * threads. The configuration itself should not be changed while detections
+     * are running.
+     */
+    public LineDetector() {
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a {@code BufferedImage} without
+     * saving intermediate images.
+     *
+     * @param image The {@code BufferedImage} to be processed.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public int[][] calculateLines(BufferedImage image) {
+        return calculateLines(image, false);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a {@code BufferedImage}.
+     *
+     * This method runs the same stages as {@link LineCalculator#calculateLines}
+     * with this detector's configuration, writing every intermediate image into
+     * buffers reused from the previous detection on the same thread. When the
+     * fused path is enabled, the grayscale, blurred and gradient images are never
+     * materialized and therefore never saved.
+     *
+     * @param image      The {@code BufferedImage} to be processed.
+     * @param saveImages A {@code boolean} flag indicating whether intermediate
+     *                   images generated during processing should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public int[][] calculateLines(BufferedImage image, boolean saveImages) {
+        return calculateLines(image, 1, saveImages);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from an image file without saving
+     * intermediate images.
+     *
+     * @param file The image {@code File} to be processed.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     * @throws IOException if the file cannot be read or decoded.
+     */
+    public int[][] calculateLines(File file) throws IOException {
+        return calculateLines(file, null, false);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a region of an image file.
+     *
+     * With {@link ScalingMethod#DECODE_SUBSAMPLING}, the region is decoded
+     * directly at the scaled-down size with {@link ImageInput}; otherwise it is
+     * decoded at full resolution and scaled down like any other image. Lines
+     * are not refined when the full resolution image was never decoded.
+     *
+     * @param file       The image {@code File} to be processed.
+     * @param region     The {@code Rectangle} of the image to search, or
+     *                   {@code null} for the whole image.
+     * @param saveImages A {@code boolean} flag indicating whether intermediate
+     *                   images generated during processing should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     *         The coordinates are those of the whole image, not of the region.
+     * @throws IOException if the file cannot be read or decoded.
+     */
+    public int[][] calculateLines(File file, Rectangle region, boolean saveImages) throws IOException {
+        int subsampling = getSubsampling();
+        BufferedImage image = ImageInput.read(file, region, subsampling);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        return offsetLines(calculateLines(image, subsampling, saveImages), region);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a region of an image read from
+     * a stream, as {@link #calculateLines(File, Rectangle, boolean)} does.
+     *
+     * @param input      The {@code InputStream} to read the image from. It is
+     *                   not closed.
+     * @param region     The {@code Rectangle} of the image to search, or
+     *                   {@code null} for the whole image.
+     * @param saveImages A {@code boolean} flag indicating whether intermediate
+     *                   images generated during processing should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     *         The coordinates are those of the whole image, not of the region.
+     * @throws IOException if the stream cannot be read or decoded.
+     */
+    public int[][] calculateLines(InputStream input, Rectangle region, boolean saveImages) throws IOException {
+        int subsampling = getSubsampling();
+        BufferedImage image = ImageInput.read(input, region, subsampling);
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return offsetLines(calculateLines(image, subsampling, saveImages), region);
+    }
+
+    /**
+     * The factor images read from files and streams are subsampled by while
+     * decoding.
+     */
+    int getSubsampling() {
+        return scalingMethod == ScalingMethod.DECODE_SUBSAMPLING ? scale : 1;
+    }
+
+    /**
+     * Extracts the lines of an image that was already scaled down by
+     * {@code decodedScale} while decoding. The lines are in the coordinates of
+     * the full resolution image. Results are looked up in and added to the
+     * result cache, unless the intermediate images are saved.
+     */
+    int[][] calculateLines(BufferedImage image, int decodedScale, boolean saveImages) {
+        if (resultCache == null || saveImages) {
+            return detectLines(image, decodedScale, saveImages);
+        }
+        long key = cacheKey(image, decodedScale);
+        int[][] linesCoords = resultCache.get(key);
+        if (linesCoords == null) {
+            linesCoords = detectLines(image, decodedScale, false);
+            resultCache.put(key, linesCoords);
+        }
+        return linesCoords;
+    }
+
+    // Hashes the pixels together with every setting that changes the lines.
+    // Parallelism, the fused path, the listener and the separable blur give the
+    // same lines, so they are left out.
+    long cacheKey(BufferedImage image, int decodedScale) {
+        long key = ResultCache.hash(image);
+        key = ResultCache.mix(key, decodedScale);
+        key = ResultCache.mix(key, grayScaleFunction);
+        key = ResultCache.mix(key, blurKernel);
+        key = ResultCache.mix(key, blurMethod == BlurMethod.RECURSIVE ? 1 : 0);
+        key = ResultCache.mix(key, blurSigma);
+        key = ResultCache.mix(key, gradientFilter);
+        key = ResultCache.mix(key, alpha);
+        key = ResultCache.mix(key, beta);
+        key = ResultCache.mix(key, thresholdRule.ordinal());
+        key = ResultCache.mix(key, percentile);
+        key = ResultCache.mix(key, scale);
+        key = ResultCache.mix(key, lineSpacing);
+        key = ResultCache.mix(key, thetaBand);
+        key = ResultCache.mix(key, canny ? 1 : 0);
+        key = ResultCache.mix(key, peakSuppression ? 1 : 0);
+        key = ResultCache.mix(key, mode.ordinal());
+        key = ResultCache.mix(key, seed);
+        key = ResultCache.mix(key, voteBudget);
+        key = ResultCache.mix(key, skewTolerance);
+        key = ResultCache.mix(key, refinement ? 1 : 0);
+        return ResultCache.mix(key, scalingMethod.ordinal());
+    }
+
+    private int[][] detectLines(BufferedImage image, int decodedScale, boolean saveImages) {
+        ScratchBuffers scratch = ScratchBuffers.get();
+        StageRecorder recorder = new StageRecorder(stageListener);
+        ScaledInput scaledImage = scale(image, decodedScale, scratch, recorder, saveImages);
+        // Lines can only be refined on the full resolution image.
+        image = decodedScale == 1 ? image : null;
+        if (canny) {
+            GrayPlane edges = findCannyEdges(scaledImage, scratch, recorder, saveImages);
+            return scaleLines(image, findLines(edges, scratch, recorder, saveImages), recorder);
+        }
+        // Both Hough modes vote the edge points, so they are listed while the
+        // strips of the dilated image are still in cache.
+        EdgePoints points = mode == LineDetectionMode.PROJECTION ? null : scratch.edgePoints();
+        BinaryPlane edges = findBinaryEdges(scaledImage, points, scratch, recorder, saveImages);
+        if (points == null) {
+            // The projection profiles are counted from the words of the edges.
+            recorder.start(Stage.HOUGH_TRANSFORM);
+            int[][] linesCoords = ProjectionProfile.findLines(edges, lineSpacing / scale, skewTolerance, thetaBand,
+                    parallelism, scratch, saveImages);
+            finishLines(recorder, edges.getWidth(), edges.getHeight());
+            return scaleLines(image, linesCoords, recorder);
+        }
+        return scaleLines(image, findLines(points, scratch, recorder, saveImages), recorder);
+    }
+
+    /**
+     * Runs the stages up to the cleaned edges on an image, without saving
+     * anything, and lists the edge pixels of the scaled image in the edge point
+     * list of {@code scratch}.
+     */
+    EdgePoints findEdgePoints(BufferedImage image, ScratchBuffers scratch, StageRecorder recorder) {
+        ScaledInput scaledImage = scale(image, 1, scratch, recorder, false);
+        EdgePoints points = scratch.edgePoints();
+        if (canny) {
+            return EdgePoints.fromGrayPlane(findCannyEdges(scaledImage, scratch, recorder, false), points);
+        }
+        findBinaryEdges(scaledImage, points, scratch, recorder, false);
+        return points;
+    }
+
+    /**
+     * Finds the lines of the configured mode in the edge points of the scaled
+     * image, in scaled coordinates.
+     */
+    int[][] findLines(EdgePoints points, ScratchBuffers scratch, StageRecorder recorder, boolean saveImages) {
+        recorder.start(Stage.HOUGH_TRANSFORM);
+        int[][] linesCoords;
+        if (mode == LineDetectionMode.PROGRESSIVE_HOUGH) {
+            linesCoords = ProgressiveHoughTransform.findLines(points, lineSpacing / scale, thetaBand, seed,
+                    voteBudget, saveImages);
+        } else if (mode == LineDetectionMode.PROJECTION) {
+            linesCoords = ProjectionProfile.findLines(points, lineSpacing / scale, skewTolerance, thetaBand,
+                    parallelism, scratch, saveImages);
+        } else {
+            linesCoords = HoughLineTransform.findLines(points, lineSpacing / scale, thetaBand, parallelism,
+                    peakSuppression, scratch, saveImages);
+        }
+        finishLines(recorder, points.getWidth(), points.getHeight());
+        return linesCoords;
+    }
+
+    // Thresholds the gradient and cleans it with erosion and dilation, listing
+    // the edge pixels in points unless it is null.
+    private BinaryPlane findBinaryEdges(ScaledInput scaledImage, EdgePoints points, ScratchBuffers scratch,
+            StageRecorder recorder, boolean saveImages) {
+        int offset = blurOffset();
+        int width = scaledImage.getWidth() - 2 * offset;
+        int height = scaledImage.getHeight() - 2 * offset;
+        long pixels = (long) width * height;
+        BinaryPlane thresholdGradientImage = scratch.binaryPlane(ScratchBuffers.BINARY_THRESHOLD, width, height);
+        if (fused && blurMethod != BlurMethod.RECURSIVE) {
+            recorder.start(Stage.FUSED_EDGE_DETECTION);
+            EdgeRowConsumer consumer = (row, edges, rowWidth) -> thresholdGradientImage.setRow(row, edges, 0);
+            if (scaledImage.gray != null) {
+                FusedEdgeDetection.streamThresholdGradient(scaledImage.gray, blurKernel, gradientFilter,
+                        thresholdRule, alpha, beta, percentile, parallelism, consumer);
+            } else {
+                FusedEdgeDetection.streamThresholdGradient(scaledImage.image, grayScaleFunction, blurKernel,
+                        gradientFilter, thresholdRule, alpha, beta, percentile, parallelism, consumer);
+            }
+            recorder.finish((long) scaledImage.getWidth() * scaledImage.getHeight(),
+                    recorder.isRecording() ? thresholdGradientImage.count() : StageMetrics.NOT_AVAILABLE,
+                    StageMetrics.NOT_AVAILABLE);
+            if (saveImages) {
+                SaveImage.saveImage(thresholdGradientImage.toGrayPlane(), "threshold-gradient", true);
+            }
+        } else {
+            GrayPlane blurredImage = blur(scaledImage, width, height, scratch, recorder, saveImages);
+            recorder.start(Stage.THRESHOLD_GRADIENT);
+            EdgeDetection.getThresholdGradient(blurredImage, gradientFilter, thresholdRule, alpha, beta, percentile,
+                    parallelism, scratch.plane(ScratchBuffers.GRADIENT, width, height), thresholdGradientImage,
+                    saveImages);
+            recorder.finish(pixels,
+                    recorder.isRecording() ? thresholdGradientImage.count() : StageMetrics.NOT_AVAILABLE,
+                    StageMetrics.NOT_AVAILABLE);
+        }
+
+        recorder.start(Stage.EROSION_DILATION);
+        BinaryPlane edges = ErosionDilation.erosionAndDilation(thresholdGradientImage,
+                scratch.binaryPlane(ScratchBuffers.BINARY_ERODED, width, height),
+                scratch.binaryPlane(ScratchBuffers.BINARY_DILATED, width, height), points, parallelism, saveImages);
+        recorder.finish(pixels, recorder.isRecording() ? edges.count() : StageMetrics.NOT_AVAILABLE,
+                StageMetrics.NOT_AVAILABLE);
+        return edges;
+    }
+
+    private GrayPlane blur(ScaledInput scaledImage, int width, int height, ScratchBuffers scratch,
+            StageRecorder recorder, boolean saveImages) {
+        GrayPlane grayImage = scaledImage.gray;
+        if (grayImage == null) {
+            recorder.start(Stage.GRAY_SCALE);
+            grayImage = GrayScale.applyGrayScale(scaledImage.image, grayScaleFunction,
+                    scratch.plane(ScratchBuffers.GRAY, scaledImage.getWidth(), scaledImage.getHeight()), saveImages);
+            recorder.finish((long) scaledImage.getWidth() * scaledImage.getHeight(), null,
+                    StageMetrics.NOT_AVAILABLE);
+        }
+        recorder.start(Stage.GAUSSIAN_FILTER);
+        GrayPlane target = scratch.plane(ScratchBuffers.BLURRED, width, height);
+        GrayPlane blurredImage;
+        if (blurMethod == BlurMethod.RECURSIVE) {
+            blurredImage = GaussianFilter.applyRecursiveGaussianFilter(grayImage, blurSigma, parallelism, target,
+                    saveImages);
+        } else if (blurMethod == BlurMethod.SEPARABLE) {
+            blurredImage = GaussianFilter.applySeparableGaussianFilter(grayImage, blurKernel, parallelism, target,
+                    saveImages);
+        } else {
+            blurredImage = GaussianFilter.applyGaussianFilter(grayImage, blurKernel, target, saveImages);
+        }
+        recorder.finish((long) width * height, null, StageMetrics.NOT_AVAILABLE);
+        return blurredImage;
+    }
+
+    private GrayPlane findCannyEdges(ScaledInput scaledImage, ScratchBuffers scratch, StageRecorder recorder,
+            boolean saveImages) {
+        int offset = blurOffset();
+        int width = scaledImage.getWidth() - 2 * offset;
+        int height = scaledImage.getHeight() - 2 * offset;
+        GrayPlane blurredImage = blur(scaledImage, width, height, scratch, recorder, saveImages);
+        recorder.start(Stage.CANNY_EDGE_DETECTION);
+        GrayPlane edges = EdgeDetection.getCannyEdge(blurredImage, gradientFilter, alpha, beta, parallelism,
+                scratch.plane(ScratchBuffers.GRADIENT, width, height),
+                scratch.plane(ScratchBuffers.THRESHOLD, width, height), saveImages);
+        recorder.finish((long) width * height, edges, StageMetrics.NOT_AVAILABLE);
+        return edges;
+    }
+
+    private int[][] findLines(GrayPlane edges, ScratchBuffers scratch, StageRecorder recorder, boolean saveImages) {
+        recorder.start(Stage.HOUGH_TRANSFORM);
+        int[][] linesCoords;
+        if (mode == LineDetectionMode.PROGRESSIVE_HOUGH) {
+            linesCoords = ProgressiveHoughTransform.findLines(edges, lineSpacing / scale, thetaBand, seed,
+                    voteBudget, saveImages);
+        } else if (mode == LineDetectionMode.PROJECTION) {
+            linesCoords = ProjectionProfile.findLines(edges, lineSpacing / scale, skewTolerance, thetaBand,
+                    parallelism, scratch, saveImages);
+        } else {
+            linesCoords = HoughLineTransform.findLines(edges, lineSpacing / scale, thetaBand,
+                    parallelism, peakSuppression, scratch, saveImages);
+        }
+        finishLines(recorder, edges.getWidth(), edges.getHeight());
+        return linesCoords;
+    }
+
+    // The pixels the blur crops from every side of the scaled image.
+    int blurOffset() {
+        return blurMethod == BlurMethod.RECURSIVE ? GaussianFilter.getRecursiveFilterOffset(blurSigma)
+                : blurKernel.length / 2;
+    }
+
+    private void finishLines(StageRecorder recorder, int width, int height) {
+        recorder.finish((long) width * height, null, recorder.isRecording()
+                ? HoughLineTransform.accumulatorCells(width, height, thetaBand)
+                : StageMetrics.NOT_AVAILABLE);
+    }
+
+    // Brings the lines back to full resolution coordinates, refining them on
+    // the full resolution image unless it is null.
+    int[][] scaleLines(BufferedImage image, int[][] linesCoords, StageRecorder recorder) {
+        for (int[] lines : linesCoords) {
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] *= scale;
+            }
+        }
+        if (refinement && scale > 1 && image != null) {
+            recorder.start(Stage.REFINEMENT);
+            linesCoords = LineRefinement.refineLines(image, linesCoords, scale, blurOffset(), grayScaleFunction,
+                    blurKernel, gradientFilter, alpha, beta, parallelism);
+            recorder.finish(StageMetrics.NOT_AVAILABLE, null, StageMetrics.NOT_AVAILABLE);
+        }
+        return linesCoords;
+    }
+
+    private static int[][] offsetLines(int[][] linesCoords, Rectangle region) {
+        if (region != null) {
+            for (int i = 0; i < linesCoords[0].length; i++) {
+                linesCoords[0][i] += Math.max(region.y, 0);
+            }
+            for (int i = 0; i < linesCoords[1].length; i++) {
+                linesCoords[1][i] += Math.max(region.x, 0);
+            }
+        }
+        return linesCoords;
+    }
+
+    // Scales the image down by what is left of the scale factor after decoding.
+    // Area averaging converts to grayscale on the way, so it returns the gray
+    // plane instead of an image.
+    private ScaledInput scale(BufferedImage image, int decodedScale, ScratchBuffers scratch,
+            StageRecorder recorder, boolean saveImages) {
+        recorder.start(Stage.SCALE);
+        int factor = scale / decodedScale;
+        BufferedImage scaledImage = image;
+        if (factor != 1 && scalingMethod == ScalingMethod.AREA_AVERAGE) {
+            GrayPlane grayImage = GrayScale.applyGrayScale(image, grayScaleFunction, factor, parallelism,
+                    scratch.plane(ScratchBuffers.GRAY, image.getWidth() / factor, image.getHeight() / factor),
+                    saveImages);
+            recorder.finish((long) image.getWidth() * image.getHeight(), null, StageMetrics.NOT_AVAILABLE);
+            return new ScaledInput(null, grayImage);
+        }
+        if (factor != 1) {
+            AffineTransform at = AffineTransform.getScaleInstance((double) 1 / factor, (double) 1 / factor);
+            AffineTransformOp ato = new AffineTransformOp(at, AffineTransformOp.TYPE_BICUBIC);
+            scaledImage = ato.filter(image,
+                    scratch.scaledImage(image.getWidth() / factor, image.getHeight() / factor));
+        }
+        recorder.finish((long) image.getWidth() * image.getHeight(), null, StageMetrics.NOT_AVAILABLE);
+        return new ScaledInput(scaledImage, null);
+    }
+
+    // The scaled-down input, either as an image or already as a gray plane.
+    private static final class ScaledInput {
+
+        private final BufferedImage image;
+        private final GrayPlane gray;
+
+        ScaledInput(BufferedImage image, GrayPlane gray) {
+            this.image = image;
+            this.gray = gray;
+        }
+
+        int getWidth() {
+            return gray != null ? gray.getWidth() : image.getWidth();
+        }
+
+        int getHeight() {
+            return gray != null ? gray.getHeight() : image.getHeight();
+        }
+    }
+
+    /**
+     * Sets the function used to convert the input image to grayscale.
+     *
+     * @param grayScaleFunction The {@code GrayScaleFunction}, for example
+     *                          {@link GrayScale#AVERAGE}.
+     * @return this detector.
+     */
+    public LineDetector setGrayScaleFunction(GrayScaleFunction grayScaleFunction) {
+        this.grayScaleFunction = grayScaleFunction;
+        return this;
+    }
+
+    /**
+     * Selects how the grayscale image is blurred when the stages run
+     * separately.
+     *
+     * The fused path convolves with the blur kernel as it streams the rows, so
+     * {@link BlurMethod#RECURSIVE} always runs the stages separately. The lines
+     * are refined with the blur kernel whatever the method.
+     *
+     * @param blurMethod The {@code BlurMethod}, {@link BlurMethod#SEPARABLE}
+     *                   by default.
+     * @return this detector.
+     */
+    public LineDetector setBlurMethod(BlurMethod blurMethod) {
+        this.blurMethod = blurMethod;
+        return this;
+    }
+
+    /**
+     * Sets the standard deviation of the blur with
+     * {@link BlurMethod#RECURSIVE}, which is used instead of the blur kernel.
+     *
+     * The box filters are close to a Gaussian from a sigma of about 2; for
+     * smaller blurs a kernel is the better choice.
+     *
+     * @param blurSigma The standard deviation in pixels of the scaled image,
+     *                  {@link GaussianFilter#DEFAULT_SIGMA} by default. Must be
+     *                  greater than 0.
+     * @return this detector.
+     */
+    public LineDetector setBlurSigma(double blurSigma) {
+        if (!(blurSigma > 0)) {
+            throw new IllegalArgumentException("Blur sigma must be greater than 0, was " + blurSigma);
+        }
+        this.blurSigma = blurSigma;
+        return this;
+    }
+
+    /**
+     * Sets the Gaussian kernel used to blur the grayscale image.
+     *
+     * @param blurKernel The {@code int[][]} kernel, for example
+     *                   {@link GaussianFilter#KERNEL3x3}.
+     * @return this detector.
+     */
+    public LineDetector setBlurKernel(int[][] blurKernel) {
+        this.blurKernel = blurKernel;
+        return this;
+    }
+
+    /**
+     * Sets the filter used to calculate the gradient.
+     *
+     * @param gradientFilter The {@code int[][]} filter, {@link EdgeDetection#SOBEL}
+     *                       or {@link EdgeDetection#SCHARR}.
+     * @return this detector.
+     */
+    public LineDetector setGradientFilter(int[][] gradientFilter) {
+        this.gradientFilter = gradientFilter;
+        return this;
+    }
+
+    /**
+     * Sets the upper and lower gradient thresholds.
+     *
+     * @param alpha The upper threshold value for the gradient.
+     * @param beta  The lower threshold value for the gradient.
+     * @return this detector.
+     */
+    public LineDetector setThresholds(double alpha, double beta) {
+        this.alpha = alpha;
+        this.beta = beta;
+        return this;
+    }
+
+    /**
+     * Selects how the threshold of the gradient is chosen.
+     *
+     * The rule applies to the thresholded gradient of the fused and the
+     * separate stages; the Canny detector keeps its alpha and beta thresholds.
+     *
+     * @param thresholdRule The {@code ThresholdRule},
+     *                      {@link ThresholdRule#ALPHA_BETA} by default.
+     * @return this detector.
+     */
+    public LineDetector setThresholdRule(ThresholdRule thresholdRule) {
+        this.thresholdRule = thresholdRule;
+        return this;
+    }
+
+    /**
+     * Sets the percentile used by {@link ThresholdRule#PERCENTILE}.
+     *
+     * @param percentile The share of pixels, from {@code 0} to {@code 1}, whose
+     *                   gradient is at most the threshold.
+     * @return this detector.
+     */
+    public LineDetector setPercentile(double percentile) {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1, was " + percentile);
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the factor by which the image is scaled down before processing.
+     *
+     * @param scale The scale factor. Must be 1 or greater.
+     * @return this detector.
+     */
+    public LineDetector setScale(int scale) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale must be 1 or greater, was " + scale);
+        }
+        this.scale = scale;
+        return this;
+    }
+
+    /**
+     * Sets the minimum distance between two extracted lines of the same
+     * orientation.
+     *
+     * @param lineSpacing The minimum distance in pixels at full image resolution;
+     *                    it is divided by the scale factor during processing.
+     * @return this detector.
+     */
+    public LineDetector setLineSpacing(int lineSpacing) {
+        this.lineSpacing = lineSpacing;
+        return this;
+    }
+
+    /**
+     * Sets the width of the theta bands voted in the Hough transform.
+     *
+     * @param thetaBand The number of {@code 0.01} radian steps voted around the
+     *                  horizontal and vertical directions, or
+     *                  {@link HoughLineTransform#FULL_SWEEP}.
+     * @return this detector.
+     */
+    public LineDetector setThetaBand(int thetaBand) {
+        this.thetaBand = thetaBand;
+        return this;
+    }
+
+    /**
+     * Sets how many workers the parallel stages use.
+     *
+     * The workers are strips of rows run on a single pool shared by every
+     * detector, with one thread per processor, so a large parallelism does not
+     * start more threads. The strips are capped at four per processor.
+     *
+     * @param parallelism The number of workers, or
+     *                    {@link HoughLineTransform#SEQUENTIAL}.
+     * @return this detector.
+     */
+    public LineDetector setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Selects whether the grayscale, blur and gradient stages run fused in a
+     * single row-streaming pass.
+     *
+     * Both paths split the rows into strips for the parallelism and find the
+     * same edges. The fused path keeps only a few rows per strip instead of
+     * the grayscale, blurred and gradient images, so it needs far less memory,
+     * but it computes the gradient twice, once to choose the threshold and
+     * once to apply it, and every strip blurs the rows it shares with the
+     * strip above again. The separate stages compute every image once, can
+     * save each of them and use the {@link BlurMethod}; the fused path always
+     * convolves with the blur kernel.
+     *
+     * @param fused {@code true} (the default) to use
+     *              {@link FusedEdgeDetection}, {@code false} to run and
+     *              optionally save every stage separately.
+     * @return this detector.
+     */
+    public LineDetector setFused(boolean fused) {
+        this.fused = fused;
+        return this;
+    }
+
+    /**
+     * Selects whether edges are found with the Canny edge detector instead of
+     * the thresholded gradient.
+     *
+     * Canny edges are a single pixel wide, so erosion and dilation are skipped
+     * and the line detection has far fewer edge pixels to process. The
+     * grayscale and blur stages run separately, as the Canny detector needs the
+     * whole blurred image.
+     *
+     * @param canny {@code true} to use {@link EdgeDetection#getCannyEdge},
+     *              {@code false} (the default) to threshold the gradient and
+     *              clean it with {@link ErosionDilation}.
+     * @return this detector.
+     */
+    public LineDetector setCanny(boolean canny) {
+        this.canny = canny;
+        return this;
+    }
+
+    /**
+     * Selects whether the Hough transform only considers local maxima of the
+     * accumulator as lines.
+     *
+     * A strong line also gives many votes to the cells next to it, which are
+     * otherwise all checked against the line spacing one by one. With
+     * suppression, a cell is skipped when a neighbouring cell in rho or theta has
+     * more votes, and only the strongest few peaks per possible line are kept.
+     * This is faster on images with many edges, but a line can come out a pixel
+     * or two off when its strongest cell was rejected for being too close to
+     * another line. At the default line spacing the lines of the bundled
+     * images are the same as without suppression; they start to differ at a
+     * spacing of about 10 pixels of the scaled image.
+     *
+     * @param peakSuppression {@code true} to suppress non-maxima, {@code false}
+     *                        (the default) to check every cell.
+     * @return this detector.
+     */
+    public LineDetector setPeakSuppression(boolean peakSuppression) {
+        this.peakSuppression = peakSuppression;
+        return this;
+    }
+
+    /**
+     * Selects how lines are found in the cleaned edge image.
+     *
+     * @param mode The {@code LineDetectionMode}, {@link LineDetectionMode#HOUGH}
+     *             by default.
+     * @return this detector.
+     */
+    public LineDetector setMode(LineDetectionMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random sampling order in
+     * {@link LineDetectionMode#PROGRESSIVE_HOUGH} mode.
+     *
+     * @param seed The seed; the same seed always gives the same lines for the
+     *             same image.
+     * @return this detector.
+     */
+    public LineDetector setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the largest fraction of edge pixels that vote outside the extracted
+     * theta columns in {@link LineDetectionMode#PROGRESSIVE_HOUGH} mode.
+     *
+     * @param voteBudget The fraction, from {@code 0} to
+     *                   {@link ProgressiveHoughTransform#FULL_BUDGET}.
+     * @return this detector.
+     */
+    public LineDetector setVoteBudget(double voteBudget) {
+        this.voteBudget = voteBudget;
+        return this;
+    }
+
+    /**
+     * Sets how far lines may drift across the image in
+     * {@link LineDetectionMode#PROJECTION} mode before the Hough transform is
+     * used instead.
+     *
+     * @param skewTolerance The largest drift in pixels of the scaled image, or
+     *                      {@link ProjectionProfile#NO_SKEW_CHECK} to always use
+     *                      the profiles.
+     * @return this detector.
+     */
+    public LineDetector setSkewTolerance(double skewTolerance) {
+        this.skewTolerance = skewTolerance;
+        return this;
+    }
+
+    /**
+     * Selects whether lines found on the scaled-down image are refined at full
+     * resolution.
+     *
+     * With refinement, the scale factor only decides where the lines are
+     * searched for: every line is then moved to the strongest row or column of
+     * edges in a thin full resolution band around it with
+     * {@link LineRefinement}, so the coordinates are accurate to the pixel
+     * instead of to the scale factor. It has no effect with a scale of 1.
+     *
+     * @param refinement {@code true} to refine the lines, {@code false} (the
+     *                   default) to return the scaled coordinates.
+     * @return this detector.
+     */
+    public LineDetector setRefinement(boolean refinement) {
+        this.refinement = refinement;
+        return this;
+    }
+
+    /**
+     * Selects how images are scaled down by the scale factor.
+     *
+     * {@link ScalingMethod#DECODE_SUBSAMPLING} only applies to images read from
+     * files and streams by this detector or by a {@link BatchProcessor}, and
+     * saves both the decoding of the full resolution image and the bicubic
+     * scaling, at the cost of keeping single pixels instead of smooth averages.
+     * {@link ScalingMethod#AREA_AVERAGE} scales and converts to grayscale in one
+     * pass, so the grayscale stage does not run separately.
+     *
+     * @param scalingMethod The {@code ScalingMethod},
+     *                      {@link ScalingMethod#BICUBIC} by default.
+     * @return this detector.
+     */
+    public LineDetector setScalingMethod(ScalingMethod scalingMethod) {
+        this.scalingMethod = scalingMethod;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified before and after every stage.
+     *
+     * Every stage is also reported as an {@code imageLineExtractor.Stage} event
+     * to JDK Flight Recorder when a recording has that event enabled. When there
+     * is no listener and no such recording, the stages are not measured at all.
+     *
+     * @param stageListener The {@code StageListener}, or {@code null} to report
+     *                      nothing.
+     * @return this detector.
+     */
+    public LineDetector setStageListener(StageListener stageListener) {
+        this.stageListener = stageListener;
+        return this;
+    }
+
+    /**
+     * Sets the cache results are looked up in before any stage runs.
+     *
+     * The key of a result is a hash of the decoded pixels and of every setting
+     * that changes the lines, so a cache can be shared by detectors with
+     * different configurations. Detections that save intermediate images
+     * bypass the cache.
+     *
+     * @param resultCache The {@code ResultCache}, or {@code null} (the default)
+     *                    to detect every image.
+     * @return this detector.
+     */
+    public LineDetector setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    /**
+     * @return the function used to convert the input image to grayscale.
+     */
+    public GrayScaleFunction getGrayScaleFunction() {
+        return grayScaleFunction;
+    }
+
+    /**
+     * @return how the grayscale image is blurred when the stages run
+     *         separately.
+     */
+    public BlurMethod getBlurMethod() {
+        return blurMethod;
+    }
+
+    /**
+     * @return the standard deviation of the blur with
+     *         {@link BlurMethod#RECURSIVE}.
+     */
+    public double getBlurSigma() {
+        return blurSigma;
+    }
+
+    /**
+     * @return the Gaussian kernel used to blur the grayscale image.
+     */
+    public int[][] getBlurKernel() {
+        return blurKernel;
+    }
+
+    /**
+     * @return the filter used to calculate the gradient.
+     */
+    public int[][] getGradientFilter() {
+        return gradientFilter;
+    }
+
+    /**
+     * @return the upper threshold value for the gradient.
+     */
+    public double getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @return the lower threshold value for the gradient.
+     */
+    public double getBeta() {
+        return beta;
+    }
+
+    /**
+     * @return how the threshold of the gradient is chosen.
+     */
+    public ThresholdRule getThresholdRule() {
+        return thresholdRule;
+    }
+
+    /**
+     * @return the percentile used by {@link ThresholdRule#PERCENTILE}.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @return the factor by which the image is scaled down before processing.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @return the minimum distance between two lines of the same orientation.
+     */
+    public int getLineSpacing() {
+        return lineSpacing;
+    }
+
+    /**
+     * @return the width of the theta bands voted in the Hough transform.
+     */
+    public int getThetaBand() {
+        return thetaBand;
+    }
+
+    /**
+     * @return the number of workers the parallel stages use.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return whether the grayscale, blur and gradient stages run fused.
+     */
+    public boolean isFused() {
+        return fused;
+    }
+
+    /**
+     * @return whether edges are found with the Canny edge detector.
+     */
+    public boolean isCanny() {
+        return canny;
+    }
+
+    /**
+     * @return whether the Hough transform only considers local maxima.
+     */
+    public boolean isPeakSuppression() {
+        return peakSuppression;
+    }
+
+    /**
+     * @return how lines are found in the cleaned edge image.
+     */
+    public LineDetectionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the seed of the random sampling order in progressive mode.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the largest fraction of edge pixels that vote outside the
+     *         extracted theta columns in progressive mode.
+     */
+    public double getVoteBudget() {
+        return voteBudget;
+    }
+
+    /**
+     * @return how far lines may drift across the image in projection mode.
+     */
+    public double getSkewTolerance() {
+        return skewTolerance;
+    }
+
+    /**
+     * @return whether lines found on the scaled-down image are refined at full
+     *         resolution.
+     */
+    public boolean isRefinement() {
+        return refinement;
+    }
+
+    /**
+     * @return how images are scaled down by the scale factor.
+     */
+    public ScalingMethod getScalingMethod() {
+        return scalingMethod;
+    }
+
+    /**
+     * @return the listener notified about every stage, or {@code null}.
+     */
+    public StageListener getStageListener() {
+        return stageListener;
+    }
+
+    /**
+     * @return the cache results are looked up in, or {@code null}.
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+}
@@ -0,0 +1,139 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+public class LineRefinement {
+
+    private static final int COLOR_WHITE = 0xFF;
+    // Rows of the thresholded gradient needed on each side of a searched row:
+    // one for erosion, one for dilation and one for the cleared gradient border.
+    private static final int MARGIN = 3;
+    // Rows searched on each side of a candidate, on top of the scale factor.
+    private static final int SEARCH_SLACK = 2;
+
+    /**
+     * Moves lines found on a scaled-down image to their position at full
+     * resolution.
+     *
+     * Lines found with a scale factor are only accurate to about the scale
+     * factor. For every line this method runs the edge detection stages at full
+     * resolution on a thin band of the original image around the line, counts
+     * the white pixels of every row (or column) of the band, and moves the line
+     * to the strongest one. Only the bands are processed at full resolution, so
+     * the cost grows with the number of lines and the image width, not with the
+     * image area.
+     *
+     * The refined coordinates follow the same convention as lines found with a
+     * scale of 1, so they can be compared to them directly. Lines that move to
+     * the same row (or column) are returned once. The gradient
+     * threshold is relative to the strongest gradient in each band, rather than
+     * in the whole image.
+     *
+     * @param image       The original {@code BufferedImage} the lines were found
+     *                    in.
+     * @param linesCoords The lines found with the given scale, as returned by
+     *                    {@link LineCalculator#calculateLines}.
+     * @param scale       The scale factor the lines were found with.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] refineLines(BufferedImage image, int[][] linesCoords, int scale) {
+        return refineLines(image, linesCoords, scale, GaussianFilter.KERNEL3x3.length / 2, GrayScale.AVERAGE,
+                GaussianFilter.KERNEL3x3, EdgeDetection.SOBEL, EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA,
+                HoughLineTransform.DEFAULT_PARALLELISM);
+    }
+
+    // The lines were found on an image blurred with scaledOffset pixels cropped
+    // from every side, and are refined with the kernel at full resolution.
+    static int[][] refineLines(BufferedImage image, int[][] linesCoords, int scale, int scaledOffset,
+            GrayScaleFunction function, int[][] kernel, int[][] filter, double alpha, double beta, int parallelism) {
+        int offset = kernel.length / 2;
+        int[][] refined = new int[2][];
+        for (int orientation = 0; orientation < 2; orientation++) {
+            boolean horizontal = orientation == 0;
+            int[] lines = linesCoords[orientation];
+            int[] result = new int[lines.length];
+            ParallelStrips.run(lines.length, ParallelStrips.stripCount(lines.length, parallelism),
+                    (strip, from, to) -> {
+                        for (int i = from; i < to; i++) {
+                            // The middle of the rows the scaled pixel covered, without the
+                            // blur offset of the full resolution image.
+                            int candidate = lines[i] + scaledOffset * scale - offset + (scale - 1) / 2;
+                            result[i] = refineLine(image, horizontal, candidate, scale + SEARCH_SLACK, function,
+                                    kernel, filter, alpha, beta);
+                        }
+                    });
+            Arrays.sort(result);
+            // Candidates whose search bands share the strongest row refine to the
+            // same line, which is kept once.
+            int count = 0;
+            for (int line : result) {
+                if (count == 0 || line != result[count - 1]) {
+                    result[count++] = line;
+                }
+            }
+            refined[orientation] = Arrays.copyOf(result, count);
+        }
+        return refined;
+    }
+
+    // Finds the strongest row (or column) of edges within radius of the
+    // candidate, or returns the candidate if the band has no edges.
+    private static int refineLine(BufferedImage image, boolean horizontal, int candidate, int radius,
+            GrayScaleFunction function, int[][] kernel, int[][] filter, double alpha, double beta) {
+        int offset = kernel.length / 2;
+        int length = horizontal ? image.getHeight() : image.getWidth();
+        int from = Math.max(0, candidate - radius - MARGIN);
+        int to = Math.min(length, candidate + radius + MARGIN + 2 * offset + 1);
+        if (to - from <= 2 * offset) {
+            return candidate;
+        }
+        BufferedImage band = horizontal ? copyBand(image, 0, from, image.getWidth(), to - from)
+                : copyBand(image, from, 0, to - from, image.getHeight());
+        GrayPlane edges = ErosionDilation.erosionAndDilation(
+                FusedEdgeDetection.getThresholdGradient(band, function, kernel, filter, alpha, beta), false);
+        int[] counts = countEdges(edges, horizontal);
+        int best = candidate;
+        int bestCount = 0;
+        for (int k = 0; k < counts.length; k++) {
+            int line = from + k;
+            int distance = Math.abs(line - candidate);
+            if (distance > radius) {
+                continue;
+            }
+            if (counts[k] > bestCount
+                    || counts[k] == bestCount && bestCount > 0 && distance < Math.abs(best - candidate)) {
+                best = line;
+                bestCount = counts[k];
+            }
+        }
+        return best;
+    }
+
+    // Copies the band into a packed RGB image, which the edge detection reads
+    // directly instead of converting every pixel on both of its sweeps.
+    private static BufferedImage copyBand(BufferedImage image, int x, int y, int width, int height) {
+        BufferedImage band = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.getRGB(x, y, width, height, ((DataBufferInt) band.getRaster().getDataBuffer()).getData(), 0, width);
+        return band;
+    }
+
+    private static int[] countEdges(GrayPlane edges, boolean horizontal) {
+        int width = edges.getWidth();
+        int height = edges.getHeight();
+        int stride = edges.getStride();
+        byte[] pixels = edges.getData();
+        int[] counts = new int[horizontal ? height : width];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if ((pixels[i * stride + j] & COLOR_WHITE) == COLOR_WHITE) {
+                    counts[horizontal ? i : j]++;
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,324 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public class LineTracker {
+
+    /**
+     * The default distance in pixels at full image resolution that a line may
+     * move between two frames and still be tracked.
+     */
+    public static final int DEFAULT_TRACKING_BAND = 8;
+
+    /**
+     * The default lowest tracking confidence that is accepted before the lines
+     * are detected again from scratch.
+     */
+    public static final double DEFAULT_MIN_CONFIDENCE = 0.5;
+
+    /**
+     * The default number of frames tracked in a row before the lines are
+     * detected again from scratch, so that new lines are picked up.
+     */
+    public static final int DEFAULT_REDETECT_INTERVAL = 30;
+
+    private final LineDetector detector;
+    private int trackingBand = DEFAULT_TRACKING_BAND;
+    private double minConfidence = DEFAULT_MIN_CONFIDENCE;
+    private int redetectInterval = DEFAULT_REDETECT_INTERVAL;
+
+    // The thetas lines are extracted at, and the votes of the current frame
+    // for them, reused from frame to frame.
+    private int thetaBand = Integer.MIN_VALUE;
+    private int[] thetas;
+    private int[] votes = new int[0];
+    private int rhoCount;
+    // The lines of the previous frame in scaled coordinates, and the votes they
+    // had when they were last detected from scratch. The lines of the current
+    // frame are tracked into trackedLines, which then swap with priorLines.
+    private int[][] priorLines;
+    private int[][] priorVotes = { new int[0], new int[0] };
+    private int[][] trackedLines = { new int[0], new int[0] };
+    private StageRecorder recorder;
+    private int frameWidth;
+    private int frameHeight;
+    private int trackedFrames;
+    private boolean tracked;
+    private double confidence;
+
+    /**
+     * Creates a tracker that follows the lines of a sequence of frames.
+     *
+     * The first frame goes through the whole detection of the given detector.
+     * On every following frame the edge stages still run, but instead of
+     * searching the whole image for lines, every edge pixel only votes for the
+     * horizontal line through its row and the vertical line through its column,
+     * and each line of the previous frame is moved to the strongest position
+     * within {@link #DEFAULT_TRACKING_BAND} pixels of where it was. When a line
+     * loses too many of its votes, two lines run into each other, the frame
+     * size changes, or the lines have been tracked for
+     * {@link #DEFAULT_REDETECT_INTERVAL} frames, the frame is detected from
+     * scratch instead.
+     *
+     * The vote and line arrays and the stage recorder are kept by the tracker
+     * and every image buffer comes from the buffers the detector reuses per
+     * thread. After the first frame, the tracking stage allocates nothing, and
+     * a tracked frame only allocates the returned line arrays and the small
+     * per-call tables of the edge stages, such as their gradient histograms.
+     * A tracker keeps the state of one sequence and must not be used by
+     * several threads at once.
+     *
+     * @param detector The {@code LineDetector} whose configuration is used for
+     *                 every frame.
+     */
+    public LineTracker(LineDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Extracts the horizontal and vertical lines of the next frame of the
+     * sequence.
+     *
+     * @param frame The next frame as a {@code BufferedImage}.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public int[][] nextFrame(BufferedImage frame) {
+        ScratchBuffers scratch = ScratchBuffers.get();
+        if (recorder == null || recorder.getListener() != detector.getStageListener()) {
+            recorder = new StageRecorder(detector.getStageListener());
+        }
+        EdgePoints points = detector.findEdgePoints(frame, scratch, recorder);
+        if (priorLines != null && frame.getWidth() == frameWidth && frame.getHeight() == frameHeight
+                && trackedFrames < redetectInterval) {
+            recorder.start(Stage.TRACKING);
+            boolean success = track(points);
+            recorder.finish((long) points.getWidth() * points.getHeight(), null, (long) rhoCount * thetas.length);
+            if (success) {
+                int[][] lines = trackedLines;
+                trackedLines = priorLines;
+                priorLines = lines;
+                trackedFrames++;
+                tracked = true;
+                return detector.scaleLines(frame, new int[][] { lines[0].clone(), lines[1].clone() }, recorder);
+            }
+        }
+        int[][] lines = detector.findLines(points, scratch, recorder, false);
+        countVotes(points);
+        if (lines[0].length + lines[1].length == 0) {
+            // Nothing to follow, so the next frame is detected from scratch too.
+            priorLines = null;
+        } else {
+            if (priorLines == null) {
+                priorLines = new int[][] { new int[0], new int[0] };
+            }
+            for (int orientation = 0; orientation < 2; orientation++) {
+                int length = lines[orientation].length;
+                priorLines[orientation] = fit(priorLines[orientation], length);
+                System.arraycopy(lines[orientation], 0, priorLines[orientation], 0, length);
+                trackedLines[orientation] = fit(trackedLines[orientation], length);
+                priorVotes[orientation] = fit(priorVotes[orientation], length);
+                votesAt(lines[orientation], orientation == 1, priorVotes[orientation]);
+            }
+        }
+        frameWidth = frame.getWidth();
+        frameHeight = frame.getHeight();
+        trackedFrames = 0;
+        tracked = false;
+        confidence = 1;
+        return detector.scaleLines(frame, lines, recorder);
+    }
+
+    /**
+     * Forgets the lines of the previous frame, so the next frame is detected
+     * from scratch. Call this when the sequence cuts to a different scene.
+     */
+    public void reset() {
+        priorLines = null;
+        trackedFrames = 0;
+        tracked = false;
+        confidence = 0;
+    }
+
+    // Moves every prior line to the strongest line in its band, into
+    // trackedLines, and returns whether the confidence is high enough.
+    private boolean track(EdgePoints points) {
+        countVotes(points);
+        int scale = detector.getScale();
+        int band = Math.max(1, trackingBand / scale);
+        int lineSpacing = detector.getLineSpacing() / scale;
+        double lowest = 1;
+        for (int orientation = 0; orientation < 2; orientation++) {
+            int[] prior = priorLines[orientation];
+            int[] result = trackedLines[orientation];
+            for (int i = 0; i < prior.length; i++) {
+                int cell = strongest(prior[i], band, orientation == 1);
+                if (cell < 0) {
+                    lowest = 0;
+                    break;
+                }
+                result[i] = HoughLineTransform.lineCoordinate(cell / thetas.length, thetas[cell % thetas.length]);
+                int priorCount = priorVotes[orientation][i];
+                if (priorCount > 0) {
+                    lowest = Math.min(lowest, (double) votes[cell] / priorCount);
+                }
+                if (i > 0 && result[i] - result[i - 1] < lineSpacing) {
+                    lowest = 0;
+                }
+            }
+        }
+        confidence = lowest;
+        return confidence >= minConfidence;
+    }
+
+    // The cell of the line of the orientation with the most votes within band
+    // of the given line, the closest one on a tie, or -1 if there is none.
+    private int strongest(int line, int band, boolean vertical) {
+        int best = -1;
+        int bestDistance = 0;
+        for (int column = 0; column < thetas.length; column++) {
+            int theta = thetas[column];
+            if ((theta == 0) != vertical) {
+                continue;
+            }
+            // The coordinate is never below rho, and at most one above it.
+            for (int r = Math.max(0, line - band - 1); r <= Math.min(rhoCount - 1, line + band); r++) {
+                int distance = Math.abs(HoughLineTransform.lineCoordinate(r, theta) - line);
+                if (distance > band) {
+                    continue;
+                }
+                int cell = r * thetas.length + column;
+                if (best < 0 || votes[cell] > votes[best] || votes[cell] == votes[best] && distance < bestDistance) {
+                    best = cell;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Every edge pixel votes only in the theta columns lines are extracted from.
+    private void countVotes(EdgePoints points) {
+        if (thetas == null || thetaBand != detector.getThetaBand()) {
+            thetaBand = detector.getThetaBand();
+            int[] allThetas = HoughLineTransform.thetas(thetaBand);
+            int[] columns = HoughLineTransform.candidateColumns(allThetas);
+            thetas = new int[columns.length];
+            for (int k = 0; k < columns.length; k++) {
+                thetas[k] = allThetas[columns[k]];
+            }
+        }
+        rhoCount = HoughLineTransform.findHighestPoint(points.getWidth(), points.getHeight()) + 1;
+        if (votes.length != rhoCount * thetas.length) {
+            votes = new int[rhoCount * thetas.length];
+        } else {
+            Arrays.fill(votes, 0);
+        }
+        int[] coordinates = points.getCoordinates();
+        for (int i = 0; i < 2 * points.size(); i += 2) {
+            HoughLineTransform.plotOnArray(coordinates[i], coordinates[i + 1], thetas, votes);
+        }
+    }
+
+    private void votesAt(int[] lines, boolean vertical, int[] counts) {
+        for (int i = 0; i < lines.length; i++) {
+            int cell = strongest(lines[i], 0, vertical);
+            counts[i] = cell < 0 ? 0 : votes[cell];
+        }
+    }
+
+    // The buffer if it has the length, otherwise a new array of the length.
+    private static int[] fit(int[] buffer, int length) {
+        return buffer.length == length ? buffer : new int[length];
+    }
+
+    /**
+     * Sets how far a line may move between two frames and still be tracked.
+     *
+     * @param trackingBand The distance in pixels at full image resolution; it is
+     *                     divided by the scale factor of the detector, down to
+     *                     one pixel.
+     * @return this tracker.
+     */
+    public LineTracker setTrackingBand(int trackingBand) {
+        this.trackingBand = trackingBand;
+        return this;
+    }
+
+    /**
+     * Sets the lowest tracking confidence that is accepted.
+     *
+     * The confidence of a frame is the smallest fraction of its votes at the
+     * last detection from scratch that any tracked line still has, and
+     * {@code 0} when two tracked lines come closer than the line spacing.
+     *
+     * @param minConfidence The confidence, from {@code 0} (always track) to
+     *                      {@code 1}.
+     * @return this tracker.
+     */
+    public LineTracker setMinConfidence(double minConfidence) {
+        this.minConfidence = minConfidence;
+        return this;
+    }
+
+    /**
+     * Sets how many frames in a row are tracked before the lines are detected
+     * from scratch again.
+     *
+     * @param redetectInterval The number of frames, or {@code 0} to detect every
+     *                         frame from scratch.
+     * @return this tracker.
+     */
+    public LineTracker setRedetectInterval(int redetectInterval) {
+        this.redetectInterval = redetectInterval;
+        return this;
+    }
+
+    /**
+     * @return the detector whose configuration is used for every frame.
+     */
+    public LineDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * @return how far a line may move between two frames and still be tracked.
+     */
+    public int getTrackingBand() {
+        return trackingBand;
+    }
+
+    /**
+     * @return the lowest tracking confidence that is accepted.
+     */
+    public double getMinConfidence() {
+        return minConfidence;
+    }
+
+    /**
+     * @return how many frames in a row are tracked before the lines are
+     *         detected from scratch again.
+     */
+    public int getRedetectInterval() {
+        return redetectInterval;
+    }
+
+    /**
+     * @return whether the lines of the last frame were tracked, rather than
+     *         detected from scratch.
+     */
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    /**
+     * @return the tracking confidence of the last frame that was tracked or
+     *         detected from scratch, which is {@code 1} after a detection from
+     *         scratch.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+}
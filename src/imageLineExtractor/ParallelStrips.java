@@ -0,0 +1,76 @@
+package imageLineExtractor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class ParallelStrips {
+
+    // One pool for every detector, tile and server worker, with a thread per
+    // processor. Its threads are daemons, so it never has to be shut down.
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    // A few strips per thread even out strips that take longer than others;
+    // more would only add per-strip buffers.
+    private static final int MAX_STRIPS = 4 * POOL.getParallelism();
+
+    @FunctionalInterface
+    interface StripTask {
+        void run(int strip, int fromRow, int toRow);
+    }
+
+    private ParallelStrips() {
+    }
+
+    /**
+     * The number of strips {@code rows} are split into for the given
+     * parallelism, at most one per row and at most four per processor.
+     */
+    static int stripCount(int rows, int parallelism) {
+        return Math.max(1, Math.min(rows, Math.min(parallelism, MAX_STRIPS)));
+    }
+
+    /**
+     * Splits {@code rows} into {@code strips} contiguous, nearly equal ranges and
+     * runs the task once per range. Strips are handed to the shared fork-join
+     * pool, or run on the calling thread when there is only one. Strips started
+     * from a task of the pool join the work of its threads, so nested calls
+     * never start more threads.
+     */
+    static void run(int rows, int strips, StripTask task) {
+        if (strips <= 1) {
+            task.run(0, 0, rows);
+            return;
+        }
+        POOL.invoke(new StripAction(rows, strips, 0, strips, task));
+    }
+
+    private static class StripAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int rows;
+        private final int strips;
+        private final int fromStrip;
+        private final int toStrip;
+        private final StripTask task;
+
+        StripAction(int rows, int strips, int fromStrip, int toStrip, StripTask task) {
+            this.rows = rows;
+            this.strips = strips;
+            this.fromStrip = fromStrip;
+            this.toStrip = toStrip;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (toStrip - fromStrip == 1) {
+                task.run(fromStrip, (int) ((long) rows * fromStrip / strips),
+                        (int) ((long) rows * toStrip / strips));
+                return;
+            }
+            int middle = (fromStrip + toStrip) >>> 1;
+            invokeAll(new StripAction(rows, strips, fromStrip, middle, task),
+                    new StripAction(rows, strips, middle, toStrip, task));
+        }
+    }
+}
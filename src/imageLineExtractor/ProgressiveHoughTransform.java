@@ -0,0 +1,232 @@
+package imageLineExtractor;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class ProgressiveHoughTransform {
+
+    // The points vote in the columns lines are not extracted from in rounds of
+    // this fraction of all points, but at least MIN_ROUND_SIZE at a time.
+    private static final int ROUNDS = 64;
+    private static final int MIN_ROUND_SIZE = 256;
+    // The sampled votes only rule out a cell that would change the lines once
+    // such a cell would have fallen this many standard deviations short of the
+    // votes expected from the sample.
+    private static final double CONFIDENCE_DEVIATIONS = 3;
+
+    /**
+     * The default seed of the random order in which edge pixels are sampled.
+     */
+    public static final long DEFAULT_SEED = 0;
+
+    /**
+     * Vote budget that lets every edge pixel vote if the sampled votes do not
+     * settle the lines earlier.
+     */
+    public static final double FULL_BUDGET = 1;
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane},
+     * voting every edge pixel only where lines are extracted and a random sample
+     * of them everywhere else.
+     *
+     * Lines are only extracted from the vertical and horizontal theta columns of
+     * the accumulator, so every edge pixel votes in those and their peaks are
+     * exact. The other columns of the theta band only matter through the
+     * strongest cell of the whole accumulator, an eighth of which is the least
+     * number of votes a line needs. Edge pixels vote in those columns in a random
+     * order, in rounds, until the sampled votes rule out a cell strong enough to
+     * drop the weakest line, or until every edge pixel has voted. The lines are
+     * then the same as those of {@link HoughLineTransform#getLines}, unless a cell
+     * fell {@value #CONFIDENCE_DEVIATIONS} standard deviations short of its
+     * expected sampled votes.
+     *
+     * When the weakest line is well above an eighth of the strongest cell, only
+     * a small fraction of the edge pixels vote outside the extracted columns,
+     * which saves the most time with wide theta bands such as
+     * {@link HoughLineTransform#FULL_SWEEP}.
+     *
+     * @param image     The binary {@code GrayPlane} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(GrayPlane image, int scale, boolean saveImage) {
+        return getLines(image, scale, DEFAULT_SEED, FULL_BUDGET, saveImage);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane} by
+     * voting a random sample of the edge pixels outside the extracted columns,
+     * with the given seed and vote budget.
+     *
+     * @param image      The binary {@code GrayPlane} to be processed.
+     * @param scale      A {@code int} value specifying the scale factor for
+     *                   reducing the image size during processing. The scale must
+     *                   be 1 or greater.
+     * @param seed       The seed of the random sampling order. The same seed
+     *                   always gives the same lines for the same image.
+     * @param voteBudget The largest fraction of the edge pixels that may vote
+     *                   outside the extracted columns, from {@code 0} to
+     *                   {@link #FULL_BUDGET}. When the budget runs out before the
+     *                   lines are settled, the strongest cell is estimated from
+     *                   the sampled votes.
+     * @param saveImage  A {@code boolean} flag that determines whether the
+     *                   processed image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(GrayPlane image, int scale, long seed, double voteBudget, boolean saveImage) {
+        return findLines(image, HoughLineTransform.DEFAULT_LINE_SPACING / scale,
+                HoughLineTransform.DEFAULT_THETA_BAND, seed, voteBudget, saveImage);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a list of edge points by
+     * voting a random sample of the points outside the extracted columns, with
+     * the given seed and vote budget.
+     *
+     * This method finds the same lines as
+     * {@link #getLines(GrayPlane, int, long, double, boolean)} for an image with
+     * the same white pixels listed row by row, without scanning the image for
+     * them.
+     *
+     * @param points     The {@code EdgePoints} to be processed.
+     * @param scale      A {@code int} value specifying the scale factor for
+     *                   reducing the image size during processing. The scale must
+     *                   be 1 or greater.
+     * @param seed       The seed of the random sampling order. The same seed
+     *                   always gives the same lines for the same points.
+     * @param voteBudget The largest fraction of the points that may vote outside
+     *                   the extracted columns, from {@code 0} to
+     *                   {@link #FULL_BUDGET}.
+     * @param saveImage  A {@code boolean} flag that determines whether the
+     *                   processed image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(EdgePoints points, int scale, long seed, double voteBudget, boolean saveImage) {
+        return findLines(points, HoughLineTransform.DEFAULT_LINE_SPACING / scale,
+                HoughLineTransform.DEFAULT_THETA_BAND, seed, voteBudget, saveImage);
+    }
+
+    static int[][] findLines(GrayPlane image, int lineSpacing, int thetaBand, long seed, double voteBudget,
+            boolean saveImage) {
+        return findLines(EdgePoints.fromGrayPlane(image), lineSpacing, thetaBand, seed, voteBudget, saveImage);
+    }
+
+    static int[][] findLines(EdgePoints points, int lineSpacing, int thetaBand, long seed, double voteBudget,
+            boolean saveImage) {
+        Voting voting = new Voting(points, lineSpacing, thetaBand, seed, voteBudget, saveImage);
+        if (saveImage) {
+            GrayPlane edges = points.toGrayPlane();
+            SaveImage.saveImage(() -> HoughLineTransform.renderLines(edges, voting.drawnLines),
+                    "progressive-hough-line-transform", saveImage);
+        }
+        return voting.lines;
+    }
+
+    // The number of votes cast to find the lines, one per point and theta
+    // column it voted in.
+    static long votesCast(EdgePoints points, int lineSpacing, int thetaBand, long seed, double voteBudget) {
+        return new Voting(points, lineSpacing, thetaBand, seed, voteBudget, false).votes;
+    }
+
+    private static class Voting {
+
+        final int[][] lines;
+        final ArrayList<int[]> drawnLines;
+        final long votes;
+
+        Voting(EdgePoints points, int lineSpacing, int thetaBand, long seed, double voteBudget, boolean saveImage) {
+            int rhoCount = HoughLineTransform.findHighestPoint(points.getWidth(), points.getHeight()) + 1;
+            int[] thetas = HoughLineTransform.thetas(thetaBand);
+            int[] candidateColumns = HoughLineTransform.candidateColumns(thetas);
+            int[] lineThetas = new int[candidateColumns.length];
+            int[] otherThetas = new int[thetas.length - candidateColumns.length];
+            for (int column = 0, k = 0; column < thetas.length; column++) {
+                if (k < candidateColumns.length && candidateColumns[k] == column) {
+                    lineThetas[k++] = thetas[column];
+                } else {
+                    otherThetas[column - k] = thetas[column];
+                }
+            }
+            int count = points.size();
+            int[] coordinates = points.getCoordinates();
+            // The extracted columns keep their order, so their peaks are visited
+            // in the same order as in the accumulator of every column.
+            int[] lineVotes = new int[rhoCount * lineThetas.length];
+            int lineMax = 0;
+            for (int i = 0; i < 2 * count; i += 2) {
+                lineMax = Math.max(lineMax,
+                        HoughLineTransform.plotOnArray(coordinates[i], coordinates[i + 1], lineThetas, lineVotes));
+            }
+            ArrayList<int[]> accepted = new ArrayList<>();
+            int[][] found = HoughLineTransform.extractLines(lineVotes, rhoCount, lineThetas, lineMax, lineSpacing,
+                    false, accepted);
+            // The same lines are found with any strongest cell up to settledMax
+            // votes, as long as an eighth of it is not above the weakest line.
+            long settledMax = Long.MAX_VALUE;
+            for (int[] line : accepted) {
+                settledMax = Math.min(settledMax, 8L * line[0] + 7);
+            }
+
+            int budget = (int) Math.min(count, Math.ceil(count * Math.max(0, voteBudget)));
+            int roundSize = Math.max(MIN_ROUND_SIZE, count / ROUNDS);
+            int[] otherVotes = new int[otherThetas.length > 0 && settledMax < count ? rhoCount * otherThetas.length
+                    : 0];
+            int[] order = new int[otherVotes.length > 0 ? count : 0];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Random random = new Random(seed);
+            int sampled = 0;
+            int otherMax = 0;
+            boolean settled = otherVotes.length == 0;
+            while (!settled && sampled < budget) {
+                for (int end = Math.min(budget, sampled + roundSize); sampled < end; sampled++) {
+                    // The order is shuffled as far as it is sampled.
+                    int k = sampled + random.nextInt(count - sampled);
+                    int point = order[k];
+                    order[k] = order[sampled];
+                    order[sampled] = point;
+                    otherMax = Math.max(otherMax, HoughLineTransform.plotOnArray(coordinates[2 * point],
+                            coordinates[2 * point + 1], otherThetas, otherVotes));
+                }
+                settled = isSettled(otherMax, sampled, count, settledMax);
+            }
+            votes = (long) count * lineThetas.length + (long) sampled * otherThetas.length;
+
+            int maxVotes = lineMax;
+            if (!settled && sampled > 0) {
+                maxVotes = Math.max(lineMax, (int) Math.round((double) otherMax * count / sampled));
+            }
+            if (maxVotes > settledMax) {
+                accepted.clear();
+                found = HoughLineTransform.extractLines(lineVotes, rhoCount, lineThetas, maxVotes, lineSpacing,
+                        false, accepted);
+            }
+            lines = found;
+            drawnLines = saveImage ? accepted : null;
+        }
+
+        // Whether the sampled votes rule out a cell with more than settledMax
+        // votes once every point has voted. The sampled votes of such a cell
+        // follow a hypergeometric distribution, whose tails are no wider than
+        // those of the binomial one.
+        private static boolean isSettled(int otherMax, int sampled, int count, long settledMax) {
+            if (sampled == count) {
+                return otherMax <= settledMax;
+            }
+            double expected = (double) sampled * (settledMax + 1) / count;
+            return otherMax < expected - CONFIDENCE_DEVIATIONS * Math.sqrt(expected);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+
+public class ProjectionProfile {
+
+    private static final int COLOR_RED = 0xFF0000;
+    private static final int COLOR_WHITE = 0xFF;
+    // Skew angles tried, in steps of SKEW_STEP radians on each side of 0.
+    private static final double SKEW_STEP = 0.0025;
+    private static final int SKEW_STEPS = 8;
+
+    /**
+     * The default largest drift in pixels that a line may have across the image
+     * before the skew check falls back to the Hough transform.
+     */
+    public static final double DEFAULT_SKEW_TOLERANCE = 2;
+
+    /**
+     * Skew tolerance that turns the skew check off, so the profiles are always
+     * used.
+     */
+    public static final double NO_SKEW_CHECK = Double.POSITIVE_INFINITY;
+
+    /**
+     * Extracts horizontal and vertical lines from a binary {@code GrayPlane} by
+     * counting the white pixels of every row and column.
+     *
+     * The white pixels are counted in a single pass over the image, split into
+     * strips that are counted in parallel, each with its own profiles that are
+     * merged afterwards. Rows and columns are then taken as
+     * lines strongest first, down to an eighth of the strongest row or column,
+     * skipping any that lie closer than the line spacing to a line of the same
+     * orientation that was already taken. This is the rule
+     * {@link HoughLineTransform#getLines} uses, applied to exactly horizontal and
+     * vertical lines only, which is all it extracts.
+     *
+     * The same pass checks the edge pixels for skew. If the lines drift by more
+     * than {@link #DEFAULT_SKEW_TOLERANCE} pixels across the image, the profiles
+     * would smear them, so the lines are found with {@link HoughLineTransform}
+     * instead.
+     *
+     * @param image     The binary {@code GrayPlane} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(GrayPlane image, int scale, boolean saveImage) {
+        return findLines(image, HoughLineTransform.DEFAULT_LINE_SPACING / scale, DEFAULT_SKEW_TOLERANCE,
+                HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.DEFAULT_PARALLELISM, null, saveImage);
+    }
+
+    static int[][] findLines(GrayPlane image, int lineSpacing, double skewTolerance, int thetaBand,
+            int parallelism, ScratchBuffers scratch, boolean saveImage) {
+        int width = image.getWidth();
+        int stride = image.getStride();
+        int height = image.getHeight();
+        byte[] pixels = image.getData();
+        Profiles profiles = countEdges(width, height, height, (fromRow, toRow, stripProfiles) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int j = 0; j < width; j++) {
+                    if ((pixels[i * stride + j] & COLOR_WHITE) == COLOR_WHITE) {
+                        stripProfiles.add(j, i);
+                    }
+                }
+            }
+        }, skewTolerance, parallelism);
+        if (profiles.isSkewed()) {
+            return HoughLineTransform.findLines(image, lineSpacing, thetaBand, parallelism, false, scratch,
+                    saveImage);
+        }
+        return findLines(profiles, lineSpacing, saveImage ? image.copy() : null);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a {@code BinaryPlane} by
+     * counting the set pixels of every row and column.
+     *
+     * This method finds the same lines as {@link #getLines(GrayPlane, int,
+     * boolean)} for the same pixels. The set pixels are found a word at a time,
+     * so empty stretches of 64 pixels are skipped with a single comparison.
+     *
+     * @param image     The {@code BinaryPlane} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(BinaryPlane image, int scale, boolean saveImage) {
+        return findLines(image, HoughLineTransform.DEFAULT_LINE_SPACING / scale, DEFAULT_SKEW_TOLERANCE,
+                HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.DEFAULT_PARALLELISM, null, saveImage);
+    }
+
+    static int[][] findLines(BinaryPlane image, int lineSpacing, double skewTolerance, int thetaBand,
+            int parallelism, ScratchBuffers scratch, boolean saveImage) {
+        int wordsPerRow = image.getWordsPerRow();
+        long[] words = image.getWords();
+        int height = image.getHeight();
+        Profiles profiles = countEdges(image.getWidth(), height, height, (fromRow, toRow, stripProfiles) -> {
+            for (int i = fromRow; i < toRow; i++) {
+                for (int k = 0; k < wordsPerRow; k++) {
+                    for (long word = words[i * wordsPerRow + k]; word != 0; word &= word - 1) {
+                        stripProfiles.add(k * 64 + Long.numberOfTrailingZeros(word), i);
+                    }
+                }
+            }
+        }, skewTolerance, parallelism);
+        if (profiles.isSkewed()) {
+            return HoughLineTransform.findLines(image, lineSpacing, thetaBand, parallelism, false, scratch,
+                    saveImage);
+        }
+        return findLines(profiles, lineSpacing, saveImage ? image.toGrayPlane() : null);
+    }
+
+    /**
+     * Extracts horizontal and vertical lines from a list of edge points by
+     * counting the points of every row and column.
+     *
+     * This method finds the same lines as {@link #getLines(GrayPlane, int,
+     * boolean)} for an image with the same white pixels, but only visits the
+     * points instead of every pixel of the image.
+     *
+     * @param points    The {@code EdgePoints} to be processed.
+     * @param scale     A {@code int} value specifying the scale factor for
+     *                  reducing the image size during processing. The scale must
+     *                  be 1 or greater.
+     * @param saveImage A {@code boolean} flag that determines whether the processed
+     *                  image should be saved.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public static int[][] getLines(EdgePoints points, int scale, boolean saveImage) {
+        return findLines(points, HoughLineTransform.DEFAULT_LINE_SPACING / scale, DEFAULT_SKEW_TOLERANCE,
+                HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.DEFAULT_PARALLELISM, null, saveImage);
+    }
+
+    static int[][] findLines(EdgePoints points, int lineSpacing, double skewTolerance, int thetaBand,
+            int parallelism, ScratchBuffers scratch, boolean saveImage) {
+        int[] coordinates = points.getCoordinates();
+        Profiles profiles = countEdges(points.getWidth(), points.getHeight(), points.size(),
+                (fromPoint, toPoint, stripProfiles) -> {
+                    for (int i = 2 * fromPoint; i < 2 * toPoint; i += 2) {
+                        stripProfiles.add(coordinates[i], coordinates[i + 1]);
+                    }
+                }, skewTolerance, parallelism);
+        if (profiles.isSkewed()) {
+            return HoughLineTransform.findLines(points, lineSpacing, thetaBand, parallelism, false, scratch,
+                    saveImage);
+        }
+        return findLines(profiles, lineSpacing, saveImage ? points.toGrayPlane() : null);
+    }
+
+    // Counts the pixels of a range of units, rows of an image or points of a
+    // list, into the profiles of one strip.
+    @FunctionalInterface
+    private interface Counter {
+        void count(int fromUnit, int toUnit, Profiles profiles);
+    }
+
+    // Counts every strip of units into its own profiles and merges them.
+    private static Profiles countEdges(int width, int height, int units, Counter counter, double skewTolerance,
+            int parallelism) {
+        int strips = ParallelStrips.stripCount(units, parallelism);
+        Profiles[] stripProfiles = new Profiles[strips];
+        ParallelStrips.run(units, strips, (strip, fromUnit, toUnit) -> {
+            Profiles profiles = new Profiles(width, height, skewTolerance);
+            counter.count(fromUnit, toUnit, profiles);
+            stripProfiles[strip] = profiles;
+        });
+        for (int strip = 1; strip < strips; strip++) {
+            stripProfiles[0].merge(stripProfiles[strip]);
+        }
+        return stripProfiles[0];
+    }
+
+    private static int[][] findLines(Profiles profiles, int lineSpacing, GrayPlane savedImage) {
+        int[][] linesCoords = findLines(profiles.rowCounts, profiles.columnCounts, lineSpacing);
+        if (savedImage != null) {
+            SaveImage.saveImage(() -> renderLines(savedImage, linesCoords[0], linesCoords[1]), "projection-profile",
+                    true);
+        }
+        return linesCoords;
+    }
+
+    // Takes the lines from the edge pixel counts of every row and column, which
+    // may also have been counted elsewhere, such as by the tiles of a
+    // TiledLineDetector.
+    static int[][] findLines(int[] rowCounts, int[] columnCounts, int lineSpacing) {
+        int minCount = Math.max(HoughPeaks.maxVotes(rowCounts, rowCounts.length),
+                HoughPeaks.maxVotes(columnCounts, columnCounts.length)) / 8;
+        return new int[][] { findPeaks(rowCounts, minCount, lineSpacing),
+                findPeaks(columnCounts, minCount, lineSpacing) };
+    }
+
+    private static int[] findPeaks(int[] counts, int minCount, int lineSpacing) {
+        int[] column = { 0 };
+        int[] peaks = HoughPeaks.findPeaks(counts, counts.length, column, column, minCount, Integer.MAX_VALUE,
+                false);
+        HoughPeaks.SortedLines lines = new HoughPeaks.SortedLines();
+        for (int peak : peaks) {
+            if (!lines.isTooClose(peak, lineSpacing)) {
+                lines.add(peak);
+            }
+        }
+        return lines.toArray();
+    }
+
+    /**
+     * Estimates the skew of the lines in a binary {@code GrayPlane}.
+     *
+     * Every white pixel is projected onto the rows and columns of the image
+     * sheared by each angle from {@code -0.02} to {@code 0.02} radians, in steps
+     * of {@code 0.0025}. Lines at the right angle fall into few rows and columns,
+     * which makes the sum of the squared counts largest.
+     *
+     * @param image The binary {@code GrayPlane} to be examined.
+     * @return the estimated skew in radians, positive when the lines are rotated
+     *         clockwise.
+     */
+    public static double estimateSkew(GrayPlane image) {
+        // Try 0 first and then alternate sides, so ties keep the smaller skew.
+        double[] skews = new double[2 * SKEW_STEPS + 1];
+        for (int step = 0; step < skews.length; step++) {
+            skews[step] = (step + 1) / 2 * (step % 2 == 0 ? -1 : 1) * SKEW_STEP;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stride = image.getStride();
+        byte[] pixels = image.getData();
+        SkewCheck shears = new SkewCheck(width, height, skews);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if ((pixels[i * stride + j] & COLOR_WHITE) == COLOR_WHITE) {
+                    shears.add(j, i);
+                }
+            }
+        }
+        long bestSharpness = -1;
+        double bestSkew = 0;
+        for (int k = 0; k < skews.length; k++) {
+            long sharpness = shears.sharpness(k);
+            if (sharpness > bestSharpness) {
+                bestSharpness = sharpness;
+                bestSkew = skews[k];
+            }
+        }
+        return bestSkew;
+    }
+
+    // The skew check of an image of the given size, or null when the tolerance
+    // turns it off or is too large for the image to ever fail it.
+    static SkewCheck skewCheck(int width, int height, double skewTolerance) {
+        if (skewTolerance == NO_SKEW_CHECK) {
+            return null;
+        }
+        double probe = 2 * Math.atan(skewTolerance / Math.max(1, Math.max(width, height)));
+        return probe >= Math.PI / 4 ? null : new SkewCheck(width, height, 0, probe, -probe);
+    }
+
+    // The edge pixel counts of every row and column of the pixels added so far,
+    // with their skew check, so that parts of an image can be counted
+    // separately and merged.
+    static class Profiles {
+
+        final int[] rowCounts;
+        final int[] columnCounts;
+        final SkewCheck skewCheck;
+
+        Profiles(int width, int height, double skewTolerance) {
+            rowCounts = new int[height];
+            columnCounts = new int[width];
+            skewCheck = skewCheck(width, height, skewTolerance);
+        }
+
+        void add(int x, int y) {
+            rowCounts[y]++;
+            columnCounts[x]++;
+            if (skewCheck != null) {
+                skewCheck.add(x, y);
+            }
+        }
+
+        void merge(Profiles other) {
+            for (int i = 0; i < rowCounts.length; i++) {
+                rowCounts[i] += other.rowCounts[i];
+            }
+            for (int j = 0; j < columnCounts.length; j++) {
+                columnCounts[j] += other.columnCounts[j];
+            }
+            if (skewCheck != null) {
+                skewCheck.merge(other.skewCheck);
+            }
+        }
+
+        // Compares the projection at 0 with the projections at twice the skew
+        // that makes lines drift by the tolerance. The sharpness peaks at the
+        // skew of the image, so either of them only beats 0 when the skew is
+        // over the tolerance.
+        boolean isSkewed() {
+            return skewCheck != null && skewCheck.isSkewed();
+        }
+    }
+
+    // The rows and columns of the edge pixels sheared by each of a list of
+    // skews, filled a pixel at a time so that parts of an image can be counted
+    // separately and merged. The skew check shears by 0 and by both signs of the
+    // probe skew, and estimateSkew by every skew it tries.
+    static final class SkewCheck {
+
+        private final int margin;
+        private final double[] tans;
+        private final int[][] rows;
+        private final int[][] columns;
+
+        SkewCheck(int width, int height, double... skews) {
+            tans = new double[skews.length];
+            double maxTan = 0;
+            for (int k = 0; k < skews.length; k++) {
+                tans[k] = Math.tan(skews[k]);
+                maxTan = Math.max(maxTan, Math.abs(tans[k]));
+            }
+            margin = (int) Math.ceil(maxTan * Math.max(width, height)) + 1;
+            rows = new int[tans.length][height + 2 * margin];
+            columns = new int[tans.length][width + 2 * margin];
+        }
+
+        void add(int x, int y) {
+            for (int k = 0; k < tans.length; k++) {
+                rows[k][margin + y - (int) Math.round(x * tans[k])]++;
+                columns[k][margin + x + (int) Math.round(y * tans[k])]++;
+            }
+        }
+
+        void merge(SkewCheck other) {
+            for (int k = 0; k < tans.length; k++) {
+                for (int i = 0; i < rows[k].length; i++) {
+                    rows[k][i] += other.rows[k][i];
+                }
+                for (int j = 0; j < columns[k].length; j++) {
+                    columns[k][j] += other.columns[k][j];
+                }
+            }
+        }
+
+        boolean isSkewed() {
+            long straight = sharpness(0);
+            return sharpness(1) > straight || sharpness(2) > straight;
+        }
+
+        // The sum of the squared row and column counts at one of the skews.
+        long sharpness(int k) {
+            long sharpness = 0;
+            for (int rowCount : rows[k]) {
+                sharpness += (long) rowCount * rowCount;
+            }
+            for (int columnCount : columns[k]) {
+                sharpness += (long) columnCount * columnCount;
+            }
+            return sharpness;
+        }
+    }
+
+    private static BufferedImage renderLines(GrayPlane image, int[] horizontalLines, int[] verticalLines) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage projectionImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                projectionImage.setRGB(j, i, image.get(j, i) * 0x010101);
+            }
+        }
+        for (int line : horizontalLines) {
+            for (int j = 0; j < width; j++) {
+                projectionImage.setRGB(j, line, COLOR_RED);
+            }
+        }
+        for (int line : verticalLines) {
+            for (int i = 0; i < height; i++) {
+                projectionImage.setRGB(line, i, COLOR_RED);
+            }
+        }
+        return projectionImage;
+    }
+}
@@ -0,0 +1,495 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResultCache {
+
+    /**
+     * The default number of results kept in memory.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    /**
+     * The default number of bytes the results kept in memory may take.
+     */
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    private static final String FILE_SUFFIX = ".lines";
+    private static final int FILE_MAGIC = 0x4C494E45;
+    private static final int FILE_VERSION = 1;
+    // An estimate of what a result takes besides its coordinates: the map entry,
+    // the key and the three arrays.
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, int[][]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private File directory;
+
+    /**
+     * Creates an in-memory cache with {@link #DEFAULT_MAX_ENTRIES} entries and
+     * {@link #DEFAULT_MAX_BYTES} bytes.
+     */
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates an in-memory cache of detection results.
+     *
+     * Results are stored under a 64-bit key, which {@link LineDetector} builds
+     * from a hash of the decoded pixels and every parameter that changes the
+     * result, so an identical image detected with the same configuration is
+     * answered without running any stage. When either limit is exceeded, the
+     * least recently used results are evicted. The cache can be shared by any
+     * number of detectors and threads.
+     *
+     * @param maxEntries The largest number of results kept.
+     * @param maxBytes   The largest number of bytes the kept results may take,
+     *                   estimated from the number of lines of every result.
+     */
+    public ResultCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive, were " + maxEntries + " entries and "
+                    + maxBytes + " bytes");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Persists the cache to a local directory.
+     *
+     * Every result is written to its own small binary file, named after its
+     * key, and the file is deleted when the result is evicted. The results
+     * already in the directory, for example from a previous run, are loaded
+     * right away, the most recently used ones last, and evicted down to the
+     * limits like any other result. Files that cannot be read are skipped, and
+     * results that cannot be written are only kept in memory.
+     *
+     * The files are read, written and deleted outside the lock of the cache, so
+     * a slow disk never holds up the lookups of other threads. The files can
+     * therefore lag behind the results in memory: a result that is evicted
+     * while it is being written may leave its file behind, which is loaded and
+     * evicted like any other the next time the directory is set.
+     *
+     * @param directory The directory {@code File}; it is created if needed.
+     * @return this cache.
+     * @throws IOException if the directory cannot be created.
+     */
+    public ResultCache setDirectory(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        synchronized (this) {
+            this.directory = directory;
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            throw new IOException("Cannot list cache directory " + directory);
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            long key;
+            try {
+                key = Long.parseUnsignedLong(name.substring(0, name.length() - FILE_SUFFIX.length()), 16);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            int[][] linesCoords = readFile(file);
+            if (linesCoords != null) {
+                List<Long> evicted;
+                synchronized (this) {
+                    evicted = store(key, linesCoords);
+                }
+                deleteFiles(directory, evicted);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Looks up a result and marks it as the most recently used.
+     *
+     * @param key The key of the result.
+     * @return a copy of the stored lines, or {@code null} if there is no result
+     *         for the key.
+     */
+    public int[][] get(long key) {
+        int[][] linesCoords;
+        File directory;
+        synchronized (this) {
+            linesCoords = entries.get(key);
+            if (linesCoords == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            directory = this.directory;
+        }
+        if (directory != null) {
+            // Keeps the order of the files in line with the order in memory.
+            fileFor(directory, key).setLastModified(System.currentTimeMillis());
+        }
+        // The stored arrays are never changed, so they can be copied outside
+        // the lock.
+        return copy(linesCoords);
+    }
+
+    /**
+     * Stores a result, evicting the least recently used results when a limit
+     * is exceeded.
+     *
+     * @param key         The key of the result.
+     * @param linesCoords The lines, in the format of
+     *                    {@link LineCalculator#calculateLines}. They are copied.
+     */
+    public void put(long key, int[][] linesCoords) {
+        int[][] stored = copy(linesCoords);
+        File directory;
+        List<Long> evicted;
+        synchronized (this) {
+            directory = this.directory;
+            evicted = store(key, stored);
+        }
+        if (directory != null) {
+            writeFile(directory, key, stored);
+            deleteFiles(directory, evicted);
+        }
+    }
+
+    /**
+     * Removes every result, including the persisted ones. The counters are
+     * kept.
+     */
+    public void clear() {
+        File directory;
+        List<Long> removed;
+        synchronized (this) {
+            directory = this.directory;
+            removed = new ArrayList<>(entries.keySet());
+            entries.clear();
+            bytes = 0;
+        }
+        deleteFiles(directory, removed);
+    }
+
+    // Puts a result into the map and returns the keys of the results evicted
+    // for it, whose files are left for the caller to delete outside the lock.
+    private List<Long> store(long key, int[][] linesCoords) {
+        int[][] previous = entries.put(key, linesCoords);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        bytes += sizeOf(linesCoords);
+        List<Long> evicted = Collections.emptyList();
+        Iterator<Map.Entry<Long, int[][]>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes && entries.size() > 1) {
+            Map.Entry<Long, int[][]> entry = eldest.next();
+            bytes -= sizeOf(entry.getValue());
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(entry.getKey());
+            eldest.remove();
+            evictions++;
+        }
+        return evicted;
+    }
+
+    private static long sizeOf(int[][] linesCoords) {
+        return ENTRY_OVERHEAD + 4L * (linesCoords[0].length + linesCoords[1].length);
+    }
+
+    private static int[][] copy(int[][] linesCoords) {
+        return new int[][] { linesCoords[0].clone(), linesCoords[1].clone() };
+    }
+
+    private static File fileFor(File directory, long key) {
+        return new File(directory, String.format("%016x", key) + FILE_SUFFIX);
+    }
+
+    // The file holds a magic number, the format version, and then the number
+    // of horizontal lines, their coordinates, the number of vertical lines and
+    // their coordinates, all as big-endian ints. Every write goes to its own
+    // temporary file, so concurrent writes of the same key never mix, and the
+    // last one to be renamed wins.
+    private static void writeFile(File directory, long key, int[][] linesCoords) {
+        File file = fileFor(directory, key);
+        File temporary;
+        try {
+            temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        } catch (IOException e) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            for (int[] lines : linesCoords) {
+                out.writeInt(lines.length);
+                for (int line : lines) {
+                    out.writeInt(line);
+                }
+            }
+        } catch (IOException e) {
+            temporary.delete();
+            return;
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temporary.delete();
+        }
+    }
+
+    private static int[][] readFile(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            int[][] linesCoords = new int[2][];
+            for (int orientation = 0; orientation < 2; orientation++) {
+                int count = in.readInt();
+                if (count < 0 || 4L * count > file.length()) {
+                    return null;
+                }
+                linesCoords[orientation] = new int[count];
+                for (int i = 0; i < count; i++) {
+                    linesCoords[orientation][i] = in.readInt();
+                }
+            }
+            return linesCoords;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void deleteFiles(File directory, List<Long> keys) {
+        if (directory != null) {
+            for (long key : keys) {
+                fileFor(directory, key).delete();
+            }
+        }
+    }
+
+    /**
+     * Hashes the pixels of an image into 64 bits.
+     *
+     * Images stored as packed {@code int} pixels or as interleaved BGR, ABGR or
+     * gray bytes are hashed straight from their data buffer, four independent
+     * lanes at a time; other images, such as indexed ones whose bytes only mean
+     * a color through their palette, are hashed from their RGB values row by
+     * row. The hash also covers the size and type of the image, so the same
+     * picture stored in two different formats has two different hashes.
+     *
+     * @param image The {@code BufferedImage} to be hashed.
+     * @return the 64-bit hash of the pixels.
+     */
+    public static long hash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long hash = mix(mix(mix(PRIME3, width), height), image.getType());
+        int[] packed = GrayScale.packedPixels(image);
+        if (packed != null) {
+            return mix(hash, hashInts(packed, width * height));
+        }
+        byte[] bytes = interleavedBytes(image);
+        if (bytes != null) {
+            return mix(hash, hashBytes(bytes, height * width * image.getRaster().getNumDataElements()));
+        }
+        int[] row = new int[width];
+        for (int i = 0; i < height; i++) {
+            image.getRGB(0, i, width, 1, row, 0, width);
+            hash = mix(hash, hashInts(row, width));
+        }
+        return hash;
+    }
+
+    // The bytes of an interleaved byte image whose rows follow each other
+    // without padding, or null. Only the types whose bytes are the color
+    // components themselves qualify.
+    private static byte[] interleavedBytes(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_4BYTE_ABGR
+                && type != BufferedImage.TYPE_BYTE_GRAY) {
+            return null;
+        }
+        Raster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof PixelInterleavedSampleModel)
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getOffset() != 0 || raster.getDataBuffer().getNumBanks() != 1) {
+            return null;
+        }
+        PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster.getSampleModel();
+        if (model.getScanlineStride() != image.getWidth() * model.getPixelStride()
+                || model.getPixelStride() != raster.getNumDataElements()) {
+            return null;
+        }
+        return ((DataBufferByte) raster.getDataBuffer()).getData();
+    }
+
+    private static long hashInts(int[] values, int length) {
+        long lane0 = PRIME1;
+        long lane1 = PRIME2;
+        long lane2 = PRIME3;
+        long lane3 = -PRIME1;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            lane0 = round(lane0, (long) values[i] << 32 | values[i + 1] & 0xFFFFFFFFL);
+            lane1 = round(lane1, (long) values[i + 2] << 32 | values[i + 3] & 0xFFFFFFFFL);
+            lane2 = round(lane2, (long) values[i + 4] << 32 | values[i + 5] & 0xFFFFFFFFL);
+            lane3 = round(lane3, (long) values[i + 6] << 32 | values[i + 7] & 0xFFFFFFFFL);
+        }
+        for (; i < length; i++) {
+            lane0 = round(lane0, values[i]);
+        }
+        return mix(mix(mix(mix(length, lane0), lane1), lane2), lane3);
+    }
+
+    private static long hashBytes(byte[] values, int length) {
+        long lane0 = PRIME1;
+        long lane1 = PRIME2;
+        long lane2 = PRIME3;
+        long lane3 = -PRIME1;
+        int i = 0;
+        for (; i + 32 <= length; i += 32) {
+            lane0 = round(lane0, (long) LONG_VIEW.get(values, i));
+            lane1 = round(lane1, (long) LONG_VIEW.get(values, i + 8));
+            lane2 = round(lane2, (long) LONG_VIEW.get(values, i + 16));
+            lane3 = round(lane3, (long) LONG_VIEW.get(values, i + 24));
+        }
+        for (; i < length; i++) {
+            lane0 = round(lane0, values[i]);
+        }
+        return mix(mix(mix(mix(length, lane0), lane1), lane2), lane3);
+    }
+
+    private static long round(long lane, long value) {
+        return Long.rotateLeft(lane + value * PRIME2, 31) * PRIME1;
+    }
+
+    /**
+     * Mixes a value into a hash, so that keys can be built from several values.
+     */
+    static long mix(long hash, long value) {
+        long mixed = (hash ^ round(0, value)) * PRIME1 + PRIME3;
+        return mixed ^ mixed >>> 29;
+    }
+
+    static long mix(long hash, double value) {
+        return mix(hash, Double.doubleToLongBits(value));
+    }
+
+    static long mix(long hash, int[][] kernel) {
+        hash = mix(hash, kernel.length);
+        for (int[] row : kernel) {
+            hash = mix(hash, hashInts(row, row.length));
+        }
+        return hash;
+    }
+
+    // Grayscale functions are lambdas, so they are told apart by their values
+    // on a fixed set of colors, which stays the same from run to run.
+    static long mix(long hash, GrayScaleFunction function) {
+        long colors = PRIME1;
+        for (int i = 0; i < 64; i++) {
+            colors = round(colors, PRIME2 * i);
+            int rgb = (int) (colors >>> 40);
+            hash = mix(hash, function.apply(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF));
+        }
+        return mix(mix(hash, function.apply(0, 0, 0)), function.apply(0xFF, 0xFF, 0xFF));
+    }
+
+    /**
+     * @return the number of lookups that found a result.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that found no result.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results evicted to stay within the limits.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results kept.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated number of bytes the kept results take.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the largest number of results kept.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the largest number of bytes the kept results may take.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the directory the cache is persisted to, or {@code null} if it is
+     *         only kept in memory.
+     */
+    public synchronized File getDirectory() {
+        return directory;
+    }
+}
@@ -1,19 +1,19 @@
 package imageLineExtractor;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
+import java.util.function.Supplier;
 
 public class SaveImage {
 
     /**
      * Saves a {@code BufferedImage} to the specified file if saving is enabled.
      *
-     * This method writes the provided image to a file in PNG format, storing it in
-     * the "output" directory with the specified file name. If the {@code saveImage}
-     * flag is set to {@code false}, the method will exit without saving the image.
+     * This method hands the provided image over to the default
+     * {@link DebugArtifactWriter}, which writes it in the background to the
+     * "output" directory with the specified file name, in PNG format unless
+     * configured otherwise. The image must not be changed after this call. If the
+     * {@code saveImage} flag is set to {@code false}, the method will exit without
+     * saving the image.
      *
      * @param image     The {@code BufferedImage} to be saved.
      * @param fileName  A {@code String} representing the name of the file
@@ -27,9 +27,36 @@ public class SaveImage {
         if (!saveImage) {
             return;
         }
-        try {
-            ImageIO.write(image, "png", new File("output/" + fileName + ".png"));
-        } catch (IOException e) {
+        DebugArtifactWriter.getDefault().write(fileName, image);
+    }
+
+    /**
+     * Saves a {@code GrayPlane} to the specified file if saving is enabled.
+     *
+     * The plane is copied, so the caller can reuse it right away, and converted
+     * to a grayscale {@code BufferedImage} on the writer thread. Disabled saving
+     * costs nothing.
+     *
+     * @param image     The {@code GrayPlane} to be saved.
+     * @param fileName  A {@code String} representing the name of the file
+     *                  (excluding the extension) under which the image will be
+     *                  saved.
+     * @param saveImage A {@code boolean} flag that determines whether the image
+     *                  should be saved. If {@code false}, the method performs no
+     *                  action.
+     */
+    public static void saveImage(GrayPlane image, String fileName, boolean saveImage) {
+        if (!saveImage) {
+            return;
+        }
+        DebugArtifactWriter.getDefault().write(fileName, image);
+    }
+
+    // Renders a visualization on the writer thread, only when saving is enabled.
+    static void saveImage(Supplier<BufferedImage> renderer, String fileName, boolean saveImage) {
+        if (!saveImage) {
+            return;
         }
+        DebugArtifactWriter.getDefault().render(fileName, renderer);
     }
 }
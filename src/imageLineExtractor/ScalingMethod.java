@@ -0,0 +1,29 @@
+package imageLineExtractor;
+
+/**
+ * The ways {@link LineDetector} can scale an image down by its scale factor.
+ */
+public enum ScalingMethod {
+
+    /**
+     * The image is decoded at full resolution and scaled down with bicubic
+     * interpolation, which gives the smoothest result.
+     */
+    BICUBIC,
+
+    /**
+     * When the image is read from a file or stream, only every
+     * {@code scale}-th pixel of every {@code scale}-th row is decoded, with
+     * {@link ImageInput}, so the full resolution image is never held in memory.
+     * Images that are already decoded are scaled down with {@link #BICUBIC}.
+     */
+    DECODE_SUBSAMPLING,
+
+    /**
+     * Every {@code scale} by {@code scale} block of pixels is averaged into one
+     * gray pixel, reading the image buffer directly and converting to grayscale
+     * in the same pass, so no scaled color image is created. Cheaper than
+     * {@link #BICUBIC} and still smooths noise, but slightly blurrier.
+     */
+    AREA_AVERAGE
+}
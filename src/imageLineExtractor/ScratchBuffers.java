@@ -0,0 +1,111 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Reusable working memory for one detection at a time. Instances are not
+ * thread-safe; {@link #get} hands out one instance per thread.
+ */
+final class ScratchBuffers {
+
+    static final int GRAY = 0;
+    static final int BLURRED = 1;
+    static final int GRADIENT = 2;
+    static final int THRESHOLD = 3;
+    static final int ERODED = 4;
+    static final int DILATED = 5;
+    private static final int PLANE_SLOTS = 6;
+    static final int BINARY_THRESHOLD = 0;
+    static final int BINARY_ERODED = 1;
+    static final int BINARY_DILATED = 2;
+    private static final int BINARY_PLANE_SLOTS = 3;
+
+    private static final ThreadLocal<ScratchBuffers> POOL = ThreadLocal.withInitial(ScratchBuffers::new);
+
+    private final GrayPlane[] planes = new GrayPlane[PLANE_SLOTS];
+    private final BinaryPlane[] binaryPlanes = new BinaryPlane[BINARY_PLANE_SLOTS];
+    private final EdgePoints edgePoints = new EdgePoints(0, 0);
+    private int[][] accumulators = new int[0][];
+    private BufferedImage scaledImage;
+
+    private ScratchBuffers() {
+    }
+
+    static ScratchBuffers get() {
+        return POOL.get();
+    }
+
+    /**
+     * Returns a plane of the requested size for the given slot, reusing the
+     * previous plane of that slot when it has the same size. The content of a
+     * reused plane is whatever the previous detection left in it.
+     */
+    GrayPlane plane(int slot, int width, int height) {
+        GrayPlane plane = planes[slot];
+        if (plane != null && plane.getWidth() == width && plane.getHeight() == height) {
+            return plane;
+        }
+        if (plane != null && plane.getData().length >= width * height) {
+            plane = new GrayPlane(plane.getData(), width, height, width);
+        } else {
+            plane = new GrayPlane(width, height);
+        }
+        planes[slot] = plane;
+        return plane;
+    }
+
+    /**
+     * Returns a binary plane of the requested size for the given slot, reusing
+     * the previous plane of that slot when it has the same size. The content of
+     * a reused plane is whatever the previous detection left in it.
+     */
+    BinaryPlane binaryPlane(int slot, int width, int height) {
+        BinaryPlane plane = binaryPlanes[slot];
+        if (plane == null || plane.getWidth() != width || plane.getHeight() != height) {
+            plane = new BinaryPlane(width, height);
+            binaryPlanes[slot] = plane;
+        }
+        return plane;
+    }
+
+    /**
+     * Returns the edge point list of this thread. Its content is whatever the
+     * previous detection left in it.
+     */
+    EdgePoints edgePoints() {
+        return edgePoints;
+    }
+
+    /**
+     * Returns {@code count} zeroed accumulators of at least {@code length} cells.
+     */
+    int[][] accumulators(int count, int length) {
+        if (accumulators.length < count) {
+            accumulators = Arrays.copyOf(accumulators, count);
+        }
+        int[][] result = new int[count][];
+        for (int i = 0; i < count; i++) {
+            if (accumulators[i] == null || accumulators[i].length < length) {
+                accumulators[i] = new int[length];
+            } else {
+                Arrays.fill(accumulators[i], 0, length, 0);
+            }
+            result[i] = accumulators[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cleared {@code TYPE_INT_ARGB} image of the requested size.
+     */
+    BufferedImage scaledImage(int width, int height) {
+        if (scaledImage == null || scaledImage.getWidth() != width || scaledImage.getHeight() != height) {
+            scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            Arrays.fill(((DataBufferInt) scaledImage.getRaster().getDataBuffer()).getData(), 0);
+        }
+        return scaledImage;
+    }
+}
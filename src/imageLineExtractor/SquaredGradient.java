@@ -0,0 +1,159 @@
+package imageLineExtractor;
+
+/**
+ * The 3x3 gradient of three rows of gray values in integer arithmetic.
+ *
+ * The gradient magnitude is kept squared ({@code Gx * Gx + Gy * Gy}), and
+ * {@link #magnitude} turns it into the stored gray level with a table lookup
+ * instead of a square root per pixel.
+ */
+final class SquaredGradient {
+
+    // Pixels brighter than this (and their neighbours) belong to symbols and
+    // get no gradient.
+    private static final int SYMBOL_BRIGHTNESS = 100;
+    private static final int GRAY_MASK = 0xFF;
+    // The stored level of round(sqrt(S)) for every S whose rounded root is at
+    // most 255.
+    private static final byte[] MAGNITUDES = new byte[65281];
+    // tan(22.5 degrees) in 15 bit fixed point, the edge between a straight and a
+    // diagonal gradient direction.
+    private static final long TAN_22_5 = 13573;
+
+    /**
+     * The gradient points along the row, so the pixels left and right are
+     * compared.
+     */
+    static final byte HORIZONTAL = 0;
+
+    /**
+     * The gradient points down and right (or up and left), so the top left and
+     * bottom right pixels are compared.
+     */
+    static final byte DIAGONAL_DOWN = 1;
+
+    /**
+     * The gradient points along the column, so the pixels above and below are
+     * compared.
+     */
+    static final byte VERTICAL = 2;
+
+    /**
+     * The gradient points up and right (or down and left), so the top right and
+     * bottom left pixels are compared.
+     */
+    static final byte DIAGONAL_UP = 3;
+
+    static {
+        for (int squared = 0; squared < MAGNITUDES.length; squared++) {
+            MAGNITUDES[squared] = (byte) GrayLevels.stored((int) Math.round(Math.sqrt(squared)));
+        }
+    }
+
+    private SquaredGradient() {
+    }
+
+    /**
+     * Returns the coefficients of a 3x3 filter in the order {@link #row} uses
+     * them: the nine {@code Gx} coefficients row by row, then the nine
+     * {@code Gy} coefficients. {@code Gx} is {@code filter[y][x]} applied to the
+     * pixel {@code x} rows and {@code y} columns from the top left, and
+     * {@code Gy} the transposed filter, as in {@link EdgeDetection}.
+     */
+    static int[] coefficients(int[][] filter) {
+        int[] coefficients = new int[18];
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                coefficients[x * 3 + y] = filter[y][x];
+                coefficients[9 + x * 3 + y] = filter[x][y];
+            }
+        }
+        return coefficients;
+    }
+
+    /**
+     * Computes the squared gradient of the middle row into {@code target}.
+     *
+     * Columns {@code 1} to {@code width - 2} are computed; a pixel with a gray
+     * value over {@code 100} anywhere in its 3x3 neighbourhood gets {@code 0}.
+     * The first and last column are left untouched. {@code bright} is a work
+     * array of at least {@code width} entries. When {@code directions} is not
+     * {@code null}, the gradient direction of every computed pixel is stored in
+     * it, quantized to one of the four directions above.
+     *
+     * @return the largest squared gradient of a pixel that was not skipped, or
+     *         {@code -1} if every pixel was skipped.
+     */
+    static int row(int[] above, int[] middle, int[] below, int width, int[] coefficients, boolean[] bright,
+            int[] target, byte[] directions) {
+        for (int j = 0; j < width; j++) {
+            bright[j] = above[j] > SYMBOL_BRIGHTNESS || middle[j] > SYMBOL_BRIGHTNESS
+                    || below[j] > SYMBOL_BRIGHTNESS;
+        }
+        int x0 = coefficients[0], x1 = coefficients[1], x2 = coefficients[2];
+        int x3 = coefficients[3], x4 = coefficients[4], x5 = coefficients[5];
+        int x6 = coefficients[6], x7 = coefficients[7], x8 = coefficients[8];
+        int y0 = coefficients[9], y1 = coefficients[10], y2 = coefficients[11];
+        int y3 = coefficients[12], y4 = coefficients[13], y5 = coefficients[14];
+        int y6 = coefficients[15], y7 = coefficients[16], y8 = coefficients[17];
+        int max = -1;
+        for (int j = 1; j < width - 1; j++) {
+            if (bright[j - 1] || bright[j] || bright[j + 1]) {
+                target[j] = 0;
+                if (directions != null) {
+                    directions[j] = HORIZONTAL;
+                }
+                continue;
+            }
+            int a0 = above[j - 1], a1 = above[j], a2 = above[j + 1];
+            int m0 = middle[j - 1], m1 = middle[j], m2 = middle[j + 1];
+            int b0 = below[j - 1], b1 = below[j], b2 = below[j + 1];
+            int gx = x0 * a0 + x1 * a1 + x2 * a2 + x3 * m0 + x4 * m1 + x5 * m2 + x6 * b0 + x7 * b1 + x8 * b2;
+            int gy = y0 * a0 + y1 * a1 + y2 * a2 + y3 * m0 + y4 * m1 + y5 * m2 + y6 * b0 + y7 * b1 + y8 * b2;
+            int squared = gx * gx + gy * gy;
+            target[j] = squared;
+            if (directions != null) {
+                directions[j] = direction(gx, gy);
+            }
+            if (squared > max) {
+                max = squared;
+            }
+        }
+        return max;
+    }
+
+    // Gx is the change from the row above to the row below and Gy the change
+    // from the left column to the right one.
+    private static byte direction(int gx, int gy) {
+        long rowChange = Math.abs((long) gx);
+        long columnChange = Math.abs((long) gy);
+        if ((rowChange << 15) <= columnChange * TAN_22_5) {
+            return HORIZONTAL;
+        }
+        if ((columnChange << 15) <= rowChange * TAN_22_5) {
+            return VERTICAL;
+        }
+        return (gx ^ gy) >= 0 ? DIAGONAL_DOWN : DIAGONAL_UP;
+    }
+
+    /**
+     * @return the gray level the rounded magnitude {@code round(sqrt(squared))}
+     *         is stored as, see {@link GrayLevels#stored}. Magnitudes over
+     *         {@code 255} are not clamped but stored like the original stages
+     *         stored them.
+     */
+    static int magnitude(int squared) {
+        if (squared < MAGNITUDES.length) {
+            return MAGNITUDES[squared] & GRAY_MASK;
+        }
+        return GrayLevels.stored((int) Math.round(Math.sqrt(squared)));
+    }
+
+    /**
+     * @return the rounded gradient magnitude of the largest squared gradient, or
+     *         {@code -1} if there was none.
+     */
+    static int maxGradient(int maxSquared) {
+        return maxSquared < 0 ? -1 : (int) Math.round(Math.sqrt(maxSquared));
+    }
+}
@@ -0,0 +1,63 @@
+package imageLineExtractor;
+
+/**
+ * The stages of a line detection, in the order {@link LineDetector} runs them.
+ */
+public enum Stage {
+
+    /**
+     * Scaling the input image down by the configured factor.
+     */
+    SCALE,
+
+    /**
+     * Converting the scaled image to grayscale with {@link GrayScale}.
+     */
+    GRAY_SCALE,
+
+    /**
+     * Blurring the grayscale image with {@link GaussianFilter}.
+     */
+    GAUSSIAN_FILTER,
+
+    /**
+     * Calculating and thresholding the gradient with {@link EdgeDetection}.
+     */
+    THRESHOLD_GRADIENT,
+
+    /**
+     * The grayscale, blur and gradient stages run together by
+     * {@link FusedEdgeDetection}, which replaces the three stages above.
+     */
+    FUSED_EDGE_DETECTION,
+
+    /**
+     * Finding single pixel wide edges with {@link EdgeDetection#getCannyEdge},
+     * which replaces the thresholded gradient and the erosion and dilation when
+     * {@link LineDetector#setCanny} is on.
+     */
+    CANNY_EDGE_DETECTION,
+
+    /**
+     * Cleaning the edges with {@link ErosionDilation}.
+     */
+    EROSION_DILATION,
+
+    /**
+     * Finding lines in the cleaned edges, with {@link HoughLineTransform} or the
+     * engine selected by {@link LineDetector#setMode}.
+     */
+    HOUGH_TRANSFORM,
+
+    /**
+     * Following the lines of the previous frame with {@link LineTracker}, which
+     * replaces the line search on frames where tracking succeeds.
+     */
+    TRACKING,
+
+    /**
+     * Moving the lines found on the scaled image to full resolution with
+     * {@link LineRefinement}, when {@link LineDetector#setRefinement} is on.
+     */
+    REFINEMENT
+}
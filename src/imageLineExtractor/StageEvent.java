@@ -0,0 +1,40 @@
+package imageLineExtractor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event committed for every stage of a line detection while a
+ * recording with this event enabled is running.
+ */
+@Name("imageLineExtractor.Stage")
+@Label("Line Detection Stage")
+@Description("One stage of a line detection")
+@Category("Image Line Extractor")
+@StackTrace(false)
+final class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Pixels")
+    long pixels;
+
+    @Label("Edge Pixels")
+    @Description("White pixels in the produced binary image, or -1")
+    long edgePixels;
+
+    @Label("Accumulator Cells")
+    @Description("Cells in the Hough accumulator, or -1")
+    long accumulatorCells;
+
+    @Label("Allocated")
+    @DataAmount
+    @Description("Bytes allocated by the detecting thread, or -1")
+    long allocatedBytes;
+}
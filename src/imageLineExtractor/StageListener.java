@@ -0,0 +1,28 @@
+package imageLineExtractor;
+
+/**
+ * Receives a notification before and after every stage of a line detection.
+ *
+ * Listeners are called on the thread running the detection, between stages, so
+ * a listener shared by detections on several threads must be thread-safe.
+ * Listeners should return quickly, since their time is spent inside the
+ * detection.
+ */
+@FunctionalInterface
+public interface StageListener {
+
+    /**
+     * Called when a stage starts.
+     *
+     * @param stage The {@code Stage} that is about to run.
+     */
+    default void stageStarted(Stage stage) {
+    }
+
+    /**
+     * Called when a stage has finished.
+     *
+     * @param metrics The {@code StageMetrics} measured for the stage.
+     */
+    void stageFinished(StageMetrics metrics);
+}
@@ -0,0 +1,85 @@
+package imageLineExtractor;
+
+public class StageMetrics {
+
+    /**
+     * The value reported for a metric that does not apply to a stage or cannot
+     * be measured on this JVM.
+     */
+    public static final long NOT_AVAILABLE = -1;
+
+    private final Stage stage;
+    private final long wallNanos;
+    private final long pixels;
+    private final long edgePixels;
+    private final long accumulatorCells;
+    private final long allocatedBytes;
+
+    StageMetrics(Stage stage, long wallNanos, long pixels, long edgePixels, long accumulatorCells,
+            long allocatedBytes) {
+        this.stage = stage;
+        this.wallNanos = wallNanos;
+        this.pixels = pixels;
+        this.edgePixels = edgePixels;
+        this.accumulatorCells = accumulatorCells;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * @return the stage these metrics were measured for.
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the wall-clock time the stage took, in nanoseconds.
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return the number of pixels the stage processed.
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return the number of white pixels in the binary image the stage produced,
+     *         or {@link #NOT_AVAILABLE} for stages that do not produce one.
+     */
+    public long getEdgePixels() {
+        return edgePixels;
+    }
+
+    /**
+     * @return the number of cells in the Hough accumulator, or
+     *         {@link #NOT_AVAILABLE} for stages other than
+     *         {@link Stage#HOUGH_TRANSFORM}.
+     */
+    public long getAccumulatorCells() {
+        return accumulatorCells;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the thread running the detection
+     * during the stage.
+     *
+     * Stages that run in parallel also allocate on pool threads, which is not
+     * included.
+     *
+     * @return the allocated bytes, or {@link #NOT_AVAILABLE} if the JVM does not
+     *         support measuring thread allocation.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return stage + ": " + wallNanos / 1000 + "us, " + pixels + " pixels, " + edgePixels + " edge pixels, "
+                + accumulatorCells + " accumulator cells, " + allocatedBytes + " bytes allocated";
+    }
+}
@@ -0,0 +1,113 @@
+package imageLineExtractor;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the stages of one detection for a {@link StageListener} and for
+ * Flight Recorder. When there is no listener and the {@link StageEvent} is not
+ * enabled, {@link #start} and {@link #finish} do nothing.
+ */
+final class StageRecorder {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final StageListener listener;
+    private Stage stage;
+    private StageEvent event;
+    private long startNanos;
+    private long startBytes;
+
+    StageRecorder(StageListener listener) {
+        this.listener = listener;
+    }
+
+    StageListener getListener() {
+        return listener;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                        .getThreadMXBean();
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    return threads;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+        }
+        return null;
+    }
+
+    void start(Stage stage) {
+        StageEvent event = new StageEvent();
+        if (listener == null && !event.isEnabled()) {
+            this.stage = null;
+            return;
+        }
+        this.stage = stage;
+        this.event = event;
+        if (listener != null) {
+            listener.stageStarted(stage);
+        }
+        startBytes = THREADS == null ? StageMetrics.NOT_AVAILABLE : THREADS.getCurrentThreadAllocatedBytes();
+        startNanos = System.nanoTime();
+        event.begin();
+    }
+
+    boolean isRecording() {
+        return stage != null;
+    }
+
+    /**
+     * Finishes the current stage. The edge pixels of {@code edges} are only
+     * counted when someone receives the result.
+     */
+    void finish(long pixels, GrayPlane edges, long accumulatorCells) {
+        if (stage == null) {
+            return;
+        }
+        finish(pixels, edges == null ? StageMetrics.NOT_AVAILABLE : countWhitePixels(edges), accumulatorCells);
+    }
+
+    /**
+     * Finishes the current stage with an edge pixel count the caller already
+     * has, or {@link StageMetrics#NOT_AVAILABLE}.
+     */
+    void finish(long pixels, long edgePixels, long accumulatorCells) {
+        if (stage == null) {
+            return;
+        }
+        event.end();
+        long wallNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = THREADS == null ? StageMetrics.NOT_AVAILABLE
+                : THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+        if (event.shouldCommit()) {
+            event.stage = stage.name();
+            event.pixels = pixels;
+            event.edgePixels = edgePixels;
+            event.accumulatorCells = accumulatorCells;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+        if (listener != null) {
+            listener.stageFinished(
+                    new StageMetrics(stage, wallNanos, pixels, edgePixels, accumulatorCells, allocatedBytes));
+        }
+        stage = null;
+        event = null;
+    }
+
+    private static long countWhitePixels(GrayPlane image) {
+        byte[] pixels = image.getData();
+        long count = 0;
+        for (int i = 0; i < image.getHeight(); i++) {
+            for (int j = i * image.getStride(); j < i * image.getStride() + image.getWidth(); j++) {
+                if (pixels[j] != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,27 @@
+package imageLineExtractor;
+
+/**
+ * The ways the gradient threshold of {@link EdgeDetection#getThresholdGradient}
+ * and {@link LineDetector} can be chosen from the gradient magnitudes.
+ */
+public enum ThresholdRule {
+
+    /**
+     * A pixel is an edge when its gradient is over {@code beta} times
+     * {@code alpha} times the largest gradient of the image.
+     */
+    ALPHA_BETA,
+
+    /**
+     * A pixel is an edge when its gradient is over the given percentile of the
+     * gradients of the image, so about a fixed share of the pixels are edges
+     * whatever the contrast of the image.
+     */
+    PERCENTILE,
+
+    /**
+     * The threshold splits the gradients into the two classes with the largest
+     * variance between them (Otsu's method), which needs no parameter at all.
+     */
+    OTSU
+}
@@ -0,0 +1,133 @@
+package imageLineExtractor;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An image that is read a tile at a time, so that {@link TiledLineDetector}
+ * never needs the whole image in memory.
+ *
+ * Tiles may be read by several threads at once, so implementations must be
+ * thread-safe.
+ */
+public interface TileSource {
+
+    /**
+     * @return the width of the whole image in pixels.
+     */
+    int getWidth();
+
+    /**
+     * @return the height of the whole image in pixels.
+     */
+    int getHeight();
+
+    /**
+     * Reads a tile of the image, keeping only every {@code subsampling}-th pixel
+     * of every {@code subsampling}-th row, as
+     * {@link ImageInput#read(File, Rectangle, int)} does.
+     *
+     * @param region      The {@code Rectangle} of the tile. It lies within the
+     *                    image and its size is a multiple of the subsampling.
+     * @param subsampling The factor by which the tile is scaled down, 1 or
+     *                    greater.
+     * @return the tile as a {@code BufferedImage} of
+     *         {@code region.width / subsampling} by
+     *         {@code region.height / subsampling} pixels.
+     * @throws IOException if the tile cannot be read.
+     */
+    BufferedImage readTile(Rectangle region, int subsampling) throws IOException;
+
+    /**
+     * Creates a tile source for an image that is already in memory.
+     *
+     * Tiles read without subsampling share the pixels of the image instead of
+     * copying them. Subsampled tiles keep the same pixels an image reader keeps
+     * when decoding with {@link ImageInput}, so the image gives the same tiles
+     * as the file it was read from.
+     *
+     * @param image The {@code BufferedImage} to read the tiles from.
+     * @return a {@code TileSource} for the image.
+     */
+    static TileSource of(BufferedImage image) {
+        return new TileSource() {
+
+            @Override
+            public int getWidth() {
+                return image.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return image.getHeight();
+            }
+
+            @Override
+            public BufferedImage readTile(Rectangle region, int subsampling) {
+                if (subsampling == 1) {
+                    return image.getSubimage(region.x, region.y, region.width, region.height);
+                }
+                int width = region.width / subsampling;
+                int height = region.height / subsampling;
+                int offset = (subsampling - 1) / 2;
+                Raster source = image.getRaster();
+                WritableRaster target = source.createCompatibleWritableRaster(width, height);
+                Object pixel = null;
+                for (int i = 0; i < height; i++) {
+                    int y = region.y + offset + i * subsampling;
+                    for (int j = 0; j < width; j++) {
+                        pixel = source.getDataElements(region.x + offset + j * subsampling, y, pixel);
+                        target.setDataElements(j, i, pixel);
+                    }
+                }
+                return new BufferedImage(image.getColorModel(), target, image.isAlphaPremultiplied(), null);
+            }
+        };
+    }
+
+    /**
+     * Creates a tile source that decodes every tile from an image file with
+     * {@link ImageInput}, so only the tiles being processed are ever in memory.
+     *
+     * Formats whose readers can decode a region directly, such as tiled TIFF,
+     * read only the tile. Others, such as PNG, have to decode the rows above it
+     * again for every tile.
+     *
+     * @param file The image {@code File} to read the tiles from.
+     * @return a {@code TileSource} for the file.
+     * @throws IOException if the file cannot be read or no image reader
+     *                     supports it.
+     */
+    static TileSource of(File file) throws IOException {
+        Dimension size = ImageInput.readSize(file);
+        if (size == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        return new TileSource() {
+
+            @Override
+            public int getWidth() {
+                return size.width;
+            }
+
+            @Override
+            public int getHeight() {
+                return size.height;
+            }
+
+            @Override
+            public BufferedImage readTile(Rectangle region, int subsampling) throws IOException {
+                BufferedImage tile = ImageInput.read(file, region, subsampling);
+                if (tile == null) {
+                    throw new IOException("Unsupported image format: " + file);
+                }
+                return tile;
+            }
+        };
+    }
+}
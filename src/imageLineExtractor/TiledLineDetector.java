@@ -0,0 +1,465 @@
+package imageLineExtractor;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+public class TiledLineDetector {
+
+    /**
+     * The default side of a tile in pixels at full image resolution, without
+     * the overlap it shares with its neighbours.
+     */
+    public static final int DEFAULT_TILE_SIZE = 2048;
+
+    /**
+     * The default number of bytes the tiles being processed and the vote
+     * accumulators may take together.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    // The gradient, the erosion and the dilation each read one pixel around the
+    // pixel they compute, so a tile needs this many blurred pixels of its
+    // neighbours on top of the radius of the blur kernel.
+    private static final int EDGE_HALO = 3;
+    // Tiles are halved down to this many scaled pixels to fit the budget.
+    private static final int MIN_TILE_SIZE = 64;
+    // A decoded pixel is counted as a packed int.
+    private static final int SOURCE_PIXEL_BYTES = 4;
+
+    private final LineDetector detector;
+    private int tileSize = DEFAULT_TILE_SIZE;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * Creates a detector that processes images too large to be held in memory
+     * one tile at a time.
+     *
+     * Every tile is read with an overlap as wide as the blur kernel, the
+     * gradient, the erosion and the dilation reach together, so the edges of
+     * the pixels it owns are exactly the edges the whole image would have. The
+     * gradient threshold depends on the whole image, so the tiles are read
+     * twice: the first pass merges the gradient histograms of all tiles and
+     * chooses the threshold, the second one finds the edges of every tile and
+     * votes them into an accumulator in the coordinates of the whole image,
+     * the Hough accumulator or the row and column profiles of
+     * {@link LineDetectionMode#PROJECTION}. Tiles are processed in parallel, as
+     * many at once as the memory budget allows, up to the parallelism of the
+     * detector.
+     *
+     * The lines are the same as those of {@link LineDetector#calculateLines}
+     * on the whole image. Tiles are scaled down by averaging, so with a scale
+     * above 1 {@link ScalingMethod#BICUBIC} is replaced by
+     * {@link ScalingMethod#AREA_AVERAGE}, while
+     * {@link ScalingMethod#DECODE_SUBSAMPLING} decodes every tile subsampled as
+     * a whole file would be. The Canny detector, the progressive Hough
+     * transform and line refinement need the whole image and are not
+     * supported, and neither is {@link BlurMethod#RECURSIVE}. The result cache
+     * of the detector is not used.
+     *
+     * @param detector The {@code LineDetector} whose configuration is used for
+     *                 every image.
+     */
+    public TiledLineDetector(LineDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Extracts the horizontal and vertical lines of an image file, decoding
+     * only the tiles being processed.
+     *
+     * @param file The image {@code File} to be processed.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     * @throws IOException if the file cannot be read or no image reader
+     *                     supports it.
+     */
+    public int[][] calculateLines(File file) throws IOException {
+        return calculateLines(TileSource.of(file));
+    }
+
+    /**
+     * Extracts the horizontal and vertical lines of an image that is already in
+     * memory, with only the working memory of the tiles being processed.
+     *
+     * @param image The {@code BufferedImage} to be processed.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     */
+    public int[][] calculateLines(BufferedImage image) {
+        try {
+            return calculateLines(TileSource.of(image));
+        } catch (IOException e) {
+            // Tiles of an image in memory are never read from a file.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Extracts the horizontal and vertical lines of an image read a tile at a
+     * time.
+     *
+     * @param source The {@code TileSource} the tiles are read from.
+     * @return a 2D {@code int} array where:
+     *         - The first sub-array contains the coordinates of horizontal lines.
+     *         - The second sub-array contains the coordinates of vertical lines.
+     * @throws IOException if a tile cannot be read.
+     */
+    public int[][] calculateLines(TileSource source) throws IOException {
+        if (detector.isCanny() || detector.isRefinement()
+                || detector.getMode() == LineDetectionMode.PROGRESSIVE_HOUGH
+                || detector.getBlurMethod() == BlurMethod.RECURSIVE) {
+            throw new IllegalStateException("Tiled detection does not support Canny edges, progressive Hough,"
+                    + " refinement or the recursive blur");
+        }
+        int scale = detector.getScale();
+        int offset = detector.getBlurKernel().length / 2;
+        int width = source.getWidth() / scale - 2 * offset;
+        int height = source.getHeight() / scale - 2 * offset;
+        if (width <= 0 || height <= 0) {
+            return new int[][] { new int[0], new int[0] };
+        }
+        int lineSpacing = detector.getLineSpacing() / scale;
+        int threshold = findThreshold(source, width, height);
+        int[][] linesCoords = null;
+        if (detector.getMode() == LineDetectionMode.PROJECTION) {
+            ProfileVotes profiles = (ProfileVotes) vote(source, width, height, threshold,
+                    ProfileVotes.bytes(width, height), () -> new ProfileVotes(width, height,
+                            detector.getSkewTolerance()));
+            if (!profiles.isSkewed()) {
+                linesCoords = ProjectionProfile.findLines(profiles.rowCounts, profiles.columnCounts, lineSpacing);
+            }
+        }
+        if (linesCoords == null) {
+            // The projection falls back to the Hough transform without
+            // suppression, as ProjectionProfile does.
+            boolean suppressNonMaxima = detector.getMode() == LineDetectionMode.HOUGH
+                    && detector.isPeakSuppression();
+            int thetaBand = detector.getThetaBand();
+            HoughVotes hough = (HoughVotes) vote(source, width, height, threshold,
+                    HoughVotes.bytes(width, height, thetaBand), () -> new HoughVotes(width, height, thetaBand));
+            linesCoords = HoughLineTransform.findLines(hough.accumulator, hough.rhoCount, hough.thetas, lineSpacing,
+                    suppressNonMaxima);
+        }
+        return detector.scaleLines(null, linesCoords, new StageRecorder(detector.getStageListener()));
+    }
+
+    // The first pass: merges the gradient histograms of the pixels every tile
+    // owns into the threshold of the whole image.
+    private int findThreshold(TileSource source, int width, int height) throws IOException {
+        TileGrid grid = new TileGrid(width, height, 0);
+        ThresholdRule rule = detector.getThresholdRule();
+        boolean counting = rule != ThresholdRule.ALPHA_BETA;
+        GradientHistogram[] histograms = new GradientHistogram[grid.workers];
+        runTiles(grid, (strip, tile, scratch) -> {
+            if (histograms[strip] == null) {
+                histograms[strip] = new GradientHistogram();
+            }
+            GrayPlane grayImage = readGray(source, tile, grid.innerParallelism, scratch);
+            FusedEdgeDetection.countGradients(grayImage, detector.getBlurKernel(), detector.getGradientFilter(),
+                    tile.window, counting, histograms[strip]);
+        });
+        GradientHistogram histogram = new GradientHistogram();
+        for (GradientHistogram stripHistogram : histograms) {
+            if (stripHistogram != null) {
+                histogram.merge(stripHistogram);
+            }
+        }
+        return histogram.threshold(rule, detector.getAlpha(), detector.getBeta(), detector.getPercentile());
+    }
+
+    // The second pass: finds the edges of every tile and votes the ones it owns
+    // into the votes of its strip, which are merged at the end.
+    private Votes vote(TileSource source, int width, int height, int threshold, long votesBytes,
+            Supplier<Votes> newVotes) throws IOException {
+        TileGrid grid = new TileGrid(width, height, votesBytes);
+        Votes[] stripVotes = new Votes[grid.workers];
+        runTiles(grid, (strip, tile, scratch) -> {
+            if (stripVotes[strip] == null) {
+                stripVotes[strip] = newVotes.get();
+            }
+            GrayPlane grayImage = readGray(source, tile, grid.innerParallelism, scratch);
+            int tileWidth = tile.edgeRegion.width;
+            int tileHeight = tile.edgeRegion.height;
+            BinaryPlane thresholdGradientImage = scratch.binaryPlane(ScratchBuffers.BINARY_THRESHOLD, tileWidth,
+                    tileHeight);
+            FusedEdgeDetection.streamThresholdGradient(grayImage, detector.getBlurKernel(),
+                    detector.getGradientFilter(), threshold,
+                    (row, edges, rowWidth) -> thresholdGradientImage.setRow(row, edges, 0));
+            BinaryPlane edges = ErosionDilation.erosionAndDilation(thresholdGradientImage,
+                    scratch.binaryPlane(ScratchBuffers.BINARY_ERODED, tileWidth, tileHeight),
+                    scratch.binaryPlane(ScratchBuffers.BINARY_DILATED, tileWidth, tileHeight),
+                    grid.innerParallelism, false);
+            addEdges(edges, tile, stripVotes[strip]);
+        });
+        Votes votes = stripVotes[0];
+        for (int strip = 1; strip < stripVotes.length; strip++) {
+            if (stripVotes[strip] != null) {
+                votes.merge(stripVotes[strip]);
+            }
+        }
+        return votes;
+    }
+
+    // Adds the edge pixels in the window of a tile, in image coordinates.
+    private static void addEdges(BinaryPlane edges, Tile tile, Votes votes) {
+        long[] words = edges.getWords();
+        int wordsPerRow = edges.getWordsPerRow();
+        Rectangle window = tile.window;
+        int fromWord = window.x / 64;
+        int toWord = (window.x + window.width + 63) / 64;
+        for (int i = window.y; i < window.y + window.height; i++) {
+            for (int k = fromWord; k < toWord; k++) {
+                for (long word = words[i * wordsPerRow + k]; word != 0; word &= word - 1) {
+                    int x = k * 64 + Long.numberOfTrailingZeros(word);
+                    if (x >= window.x && x < window.x + window.width) {
+                        votes.add(x + tile.edgeRegion.x, i + tile.edgeRegion.y);
+                    }
+                }
+            }
+        }
+    }
+
+    // Decodes a tile and converts it to gray at the scaled size.
+    private GrayPlane readGray(TileSource source, Tile tile, int parallelism, ScratchBuffers scratch)
+            throws IOException {
+        int subsampling = detector.getSubsampling();
+        int factor = detector.getScale() / subsampling;
+        BufferedImage image = source.readTile(tile.sourceRegion, subsampling);
+        GrayPlane target = scratch.plane(ScratchBuffers.GRAY, image.getWidth() / factor,
+                image.getHeight() / factor);
+        // Unscaled images are converted like the fused stage converts them,
+        // which reads gray images through getRGB.
+        if (factor == 1 && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return GrayScale.applyGrayScale(image, detector.getGrayScaleFunction(), target, false);
+        }
+        return GrayScale.applyGrayScale(image, detector.getGrayScaleFunction(), factor, parallelism, target,
+                false);
+    }
+
+    @FunctionalInterface
+    private interface TileTask {
+        void run(int strip, Tile tile, ScratchBuffers scratch) throws IOException;
+    }
+
+    // Splits the tiles into one strip per worker, each processed in order on
+    // its own thread with the scratch buffers of that thread.
+    private static void runTiles(TileGrid grid, TileTask task) throws IOException {
+        try {
+            ParallelStrips.run(grid.tileCount(), grid.workers, (strip, fromTile, toTile) -> {
+                ScratchBuffers scratch = ScratchBuffers.get();
+                for (int index = fromTile; index < toTile; index++) {
+                    try {
+                        task.run(strip, grid.tile(index), scratch);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // The tiles of the blurred image and how many of them are processed at
+    // once. Tiles are halved until at least one fits the budget.
+    private final class TileGrid {
+
+        private final int width;
+        private final int height;
+        private final int offset;
+        private final int side;
+        private final int columns;
+        private final int rows;
+        private final int workers;
+        private final int innerParallelism;
+
+        TileGrid(int width, int height, long votesBytes) {
+            this.width = width;
+            this.height = height;
+            offset = detector.getBlurKernel().length / 2;
+            int factor = detector.getScale() / detector.getSubsampling();
+            int tileSide = Math.max(1, tileSize / detector.getScale());
+            long fitting = memoryBudget / (tileBytes(tileSide, factor) + votesBytes);
+            while (fitting == 0 && tileSide > MIN_TILE_SIZE) {
+                tileSide = Math.max(MIN_TILE_SIZE, tileSide / 2);
+                fitting = memoryBudget / (tileBytes(tileSide, factor) + votesBytes);
+            }
+            if (fitting == 0) {
+                throw new IllegalStateException("A memory budget of " + memoryBudget
+                        + " bytes does not fit a single tile of " + tileSide + " pixels");
+            }
+            side = tileSide;
+            columns = (width + side - 1) / side;
+            rows = (height + side - 1) / side;
+            workers = ParallelStrips.stripCount(columns * rows,
+                    (int) Math.min(fitting, detector.getParallelism()));
+            innerParallelism = Math.max(1, detector.getParallelism() / workers);
+        }
+
+        // The decoded tile, its gray plane and the three binary planes of its
+        // edges, with the overlap.
+        private long tileBytes(int tileSide, int factor) {
+            long graySide = tileSide + 2L * (EDGE_HALO + offset);
+            long decodedSide = graySide * factor;
+            return SOURCE_PIXEL_BYTES * decodedSide * decodedSide + graySide * graySide
+                    + 3 * graySide * graySide / 8;
+        }
+
+        int tileCount() {
+            return columns * rows;
+        }
+
+        Tile tile(int index) {
+            int x = index % columns * side;
+            int y = index / columns * side;
+            Rectangle owned = new Rectangle(x, y, Math.min(side, width - x), Math.min(side, height - y));
+            Rectangle edgeRegion = new Rectangle(owned.x - EDGE_HALO, owned.y - EDGE_HALO,
+                    owned.width + 2 * EDGE_HALO, owned.height + 2 * EDGE_HALO)
+                    .intersection(new Rectangle(width, height));
+            return new Tile(owned, edgeRegion, offset, detector.getScale());
+        }
+    }
+
+    // A tile in the coordinates of the blurred image, which the edges share:
+    // the pixels it owns, and the larger region whose edges it computes. The
+    // blur reads offset more gray pixels on every side.
+    private static final class Tile {
+
+        private final Rectangle edgeRegion;
+        private final Rectangle window;
+        private final Rectangle sourceRegion;
+
+        Tile(Rectangle owned, Rectangle edgeRegion, int offset, int scale) {
+            this.edgeRegion = edgeRegion;
+            window = new Rectangle(owned.x - edgeRegion.x, owned.y - edgeRegion.y, owned.width, owned.height);
+            sourceRegion = new Rectangle(edgeRegion.x * scale, edgeRegion.y * scale,
+                    (edgeRegion.width + 2 * offset) * scale, (edgeRegion.height + 2 * offset) * scale);
+        }
+    }
+
+    // Votes of the edge pixels of some tiles, in image coordinates.
+    private interface Votes {
+
+        void add(int x, int y);
+
+        void merge(Votes other);
+    }
+
+    private static final class HoughVotes implements Votes {
+
+        private final int[] thetas;
+        private final int rhoCount;
+        private final int[] accumulator;
+
+        HoughVotes(int width, int height, int thetaBand) {
+            thetas = HoughLineTransform.thetas(thetaBand);
+            rhoCount = HoughLineTransform.findHighestPoint(width, height) + 1;
+            accumulator = new int[rhoCount * thetas.length];
+        }
+
+        static long bytes(int width, int height, int thetaBand) {
+            return 4 * HoughLineTransform.accumulatorCells(width, height, thetaBand);
+        }
+
+        @Override
+        public void add(int x, int y) {
+            HoughLineTransform.plotOnArray(x, y, thetas, accumulator);
+        }
+
+        @Override
+        public void merge(Votes other) {
+            int[] otherAccumulator = ((HoughVotes) other).accumulator;
+            for (int cell = 0; cell < accumulator.length; cell++) {
+                accumulator[cell] += otherAccumulator[cell];
+            }
+        }
+    }
+
+    private static final class ProfileVotes extends ProjectionProfile.Profiles implements Votes {
+
+        ProfileVotes(int width, int height, double skewTolerance) {
+            super(width, height, skewTolerance);
+        }
+
+        // The profiles and the three sheared copies of the skew check, whose
+        // margin stays far below the image size.
+        static long bytes(int width, int height) {
+            return 4 * 4 * ((long) width + height);
+        }
+
+        @Override
+        public void add(int x, int y) {
+            super.add(x, y);
+        }
+
+        @Override
+        public void merge(Votes other) {
+            merge((ProjectionProfile.Profiles) other);
+        }
+    }
+
+    /**
+     * Sets the side of the tiles.
+     *
+     * Larger tiles read less overlap twice, smaller ones take less memory and
+     * spread better over the threads. Tiles are made smaller when a single one
+     * does not fit the memory budget.
+     *
+     * @param tileSize The side in pixels at full image resolution, without the
+     *                 overlap. Must be 1 or greater.
+     * @return this detector.
+     */
+    public TiledLineDetector setTileSize(int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be 1 or greater, was " + tileSize);
+        }
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Sets how much memory the tiles being processed and the vote accumulators
+     * may take together, which limits how many tiles are processed at once.
+     *
+     * The estimate counts every decoded pixel as four bytes, and a vote
+     * accumulator for every tile processed at once.
+     *
+     * @param memoryBudget The budget in bytes. Must be greater than 0.
+     * @return this detector.
+     */
+    public TiledLineDetector setMemoryBudget(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be greater than 0, was " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * @return the detector whose configuration is used for every image.
+     */
+    public LineDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * @return the side of the tiles in pixels at full image resolution.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @return how much memory the tiles being processed and the vote
+     *         accumulators may take together, in bytes.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+}
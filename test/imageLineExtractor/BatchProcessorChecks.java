@@ -0,0 +1,72 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Checks that a batch reports one result per file when files between valid
+ * images fail to decode.
+ */
+final class BatchProcessorChecks {
+
+    private BatchProcessorChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("BatchProcessor reports every file of a batch with corrupt files", () -> {
+            File directory = Files.createTempDirectory("batch-checks").toFile();
+            try {
+                byte[] png = Files.readAllBytes(new File("input/input1.png").toPath());
+                File valid1 = new File("input/input1.png");
+                // Truncated image data makes the PNG reader throw an IOException.
+                File truncated = new File(directory, "truncated.png");
+                Files.write(truncated.toPath(), Arrays.copyOf(png, 2000));
+                // A 1x1 image has no 2x2 block to subsample, so decoding it throws an
+                // IllegalArgumentException.
+                File tiny = new File(directory, "tiny.png");
+                ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png", tiny);
+                File valid2 = new File("input/input2.png");
+                List<File> files = Arrays.asList(valid1, truncated, tiny, valid2);
+
+                LineDetector detector = new LineDetector().setScale(2)
+                        .setScalingMethod(ScalingMethod.DECODE_SUBSAMPLING);
+                Map<File, BatchResult> results = Collections.synchronizedMap(new HashMap<>());
+                List<File> reported = Collections.synchronizedList(new ArrayList<>());
+                new BatchProcessor(detector).setDecoderThreads(1).setDetectorThreads(2).setQueueCapacity(1)
+                        .setOverlayDirectory(directory).process(files, result -> {
+                            reported.add(result.getFile());
+                            results.put(result.getFile(), result);
+                        });
+
+                assertEquals(files.size(), reported.size(), "number of results");
+                for (File file : Arrays.asList(valid1, valid2)) {
+                    BatchResult result = results.get(file);
+                    assertTrue(result != null && result.getError() == null, file + " failed: "
+                            + (result == null ? "no result" : result.getError()));
+                    assertEquals(detector.calculateLines(file), result.getLinesCoords(), file + " lines");
+                }
+                for (File file : Arrays.asList(truncated, tiny)) {
+                    BatchResult result = results.get(file);
+                    assertTrue(result != null && result.getError() != null, file + " has no error result");
+                }
+            } finally {
+                for (File file : directory.listFiles()) {
+                    file.delete();
+                }
+                directory.delete();
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertSamePlane;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+
+/**
+ * Checks that the Canny edges, computed in parallel strips, are those of a
+ * straightforward implementation that processes the whole image at once.
+ */
+final class CannyEdgeChecks {
+
+    private static final int[] PARALLELISMS = { 1, 2, 3, 8 };
+    // Pixels brighter than this (and their neighbours) get no gradient.
+    private static final int SYMBOL_BRIGHTNESS = 100;
+
+    private CannyEdgeChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("EdgeDetection finds the Canny edges of the reference implementation", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                GrayPlane gray = GrayScale.applyGrayScale(image, GrayScale.AVERAGE, false);
+                GrayPlane blurred = GaussianFilter.applyGaussianFilter(gray, GaussianFilter.KERNEL3x3, false);
+                for (int[][] filter : new int[][][] { EdgeDetection.SOBEL, EdgeDetection.SCHARR }) {
+                    GrayPlane expected = referenceCanny(blurred, filter, EdgeDetection.PRESET_ALPHA,
+                            EdgeDetection.PRESET_BETA);
+                    for (int parallelism : PARALLELISMS) {
+                        assertSamePlane(expected, EdgeDetection.getCannyEdge(blurred, filter,
+                                EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, parallelism, null, null,
+                                false), "input" + k + " with parallelism " + parallelism);
+                    }
+                }
+            }
+        });
+        runner.check("EdgeDetection links a weak Canny edge to a strong one across strips", () -> {
+            // A vertical step that is weak down to row 51 and strong from there,
+            // ramping up over a few rows so that the edge stays connected. The
+            // weak rows are only edges by being linked to the strong ones
+            // across every strip boundary above row 51.
+            GrayPlane image = new GrayPlane(60, 90);
+            for (int y = 0; y < 90; y++) {
+                for (int x = 0; x < 60; x++) {
+                    image.set(x, y, x < 30 ? 10 : Math.min(70, Math.max(22, 22 + (y - 50) * 5)));
+                }
+            }
+            GrayPlane expected = referenceCanny(image, EdgeDetection.SOBEL, EdgeDetection.PRESET_ALPHA,
+                    EdgeDetection.PRESET_BETA);
+            int linked = 0;
+            for (int y = 1; y < 30; y++) {
+                linked += expected.get(29, y) | expected.get(30, y);
+            }
+            assertTrue(linked > 0, "the weak rows at the top are linked");
+            for (int parallelism : PARALLELISMS) {
+                assertSamePlane(expected, EdgeDetection.getCannyEdge(image, EdgeDetection.SOBEL,
+                        EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, parallelism, null, null, false),
+                        "parallelism " + parallelism);
+            }
+        });
+    }
+
+    // The Canny edges computed one step at a time over the whole image: the
+    // gradient of every pixel, the neighbours along its direction rounded to
+    // the nearest 45 degrees, and a breadth-first fill from the strong pixels.
+    private static GrayPlane referenceCanny(GrayPlane image, int[][] filter, double alpha, double beta) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[][] squared = new int[height][width];
+        double[][] angles = new double[height][width];
+        int maxSquared = -1;
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                boolean bright = false;
+                int gx = 0;
+                int gy = 0;
+                // Gx is the change down the column and Gy the change along the
+                // row, with the filter applied to row i - 1 + x and column
+                // j - 1 + y.
+                for (int x = 0; x < 3; x++) {
+                    for (int y = 0; y < 3; y++) {
+                        int pixel = image.get(j - 1 + y, i - 1 + x);
+                        bright |= pixel > SYMBOL_BRIGHTNESS;
+                        gx += filter[y][x] * pixel;
+                        gy += filter[x][y] * pixel;
+                    }
+                }
+                if (bright) {
+                    continue;
+                }
+                squared[i][j] = gx * gx + gy * gy;
+                angles[i][j] = Math.toDegrees(Math.atan2(gx, gy));
+                maxSquared = Math.max(maxSquared, squared[i][j]);
+            }
+        }
+        int[][] suppressed = new int[height][width];
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                double angle = angles[i][j] < 0 ? angles[i][j] + 180 : angles[i][j];
+                int before;
+                int after;
+                if (angle <= 22.5 || angle >= 157.5) {
+                    before = squared[i][j - 1];
+                    after = squared[i][j + 1];
+                } else if (angle >= 67.5 && angle <= 112.5) {
+                    before = squared[i - 1][j];
+                    after = squared[i + 1][j];
+                } else if (angle < 90) {
+                    before = squared[i - 1][j - 1];
+                    after = squared[i + 1][j + 1];
+                } else {
+                    before = squared[i - 1][j + 1];
+                    after = squared[i + 1][j - 1];
+                }
+                int value = squared[i][j];
+                if (value > before && value >= after) {
+                    suppressed[i][j] = GrayLevels.stored((int) Math.round(Math.sqrt(value))) & 0xFF;
+                }
+            }
+        }
+        int maxGradient = maxSquared < 0 ? -1 : (int) Math.round(Math.sqrt(maxSquared));
+        int maxThreshold = (int) Math.round(alpha * maxGradient);
+        int minThreshold = (int) Math.round(beta * maxThreshold);
+        GrayPlane edges = new GrayPlane(width, height);
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (suppressed[i][j] > minThreshold && suppressed[i][j] >= maxThreshold) {
+                    edges.set(j, i, 255);
+                    queue.add(new int[] { i, j });
+                }
+            }
+        }
+        while (!queue.isEmpty()) {
+            int[] pixel = queue.poll();
+            for (int i = Math.max(0, pixel[0] - 1); i <= Math.min(height - 1, pixel[0] + 1); i++) {
+                for (int j = Math.max(0, pixel[1] - 1); j <= Math.min(width - 1, pixel[1] + 1); j++) {
+                    if (edges.get(j, i) == 0 && suppressed[i][j] > minThreshold) {
+                        edges.set(j, i, 255);
+                        queue.add(new int[] { i, j });
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+}
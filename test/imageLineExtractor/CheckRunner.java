@@ -0,0 +1,121 @@
+package imageLineExtractor;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Runs the checks of the library and reports every one that fails.
+ *
+ * The project has no build tool, so the checks are plain classes in the
+ * library's package, run by this class instead of a test framework. They are
+ * compiled together with the sources and run from the project directory, so
+ * the images in {@code input} are found:
+ *
+ * <pre>
+ * javac -d checks src/Main.java src/imageLineExtractor/*.java test/imageLineExtractor/*.java
+ * java -cp checks imageLineExtractor.CheckRunner
+ * </pre>
+ *
+ * The exit status is {@code 1} when a check fails.
+ */
+public class CheckRunner {
+
+    /**
+     * A single check, failing by throwing.
+     */
+    interface Check {
+        void run() throws Exception;
+    }
+
+    private final List<String> failures = new ArrayList<>();
+    private int checks;
+
+    public static void main(String[] args) {
+        CheckRunner runner = new CheckRunner();
+        LineCalculatorChecks.register(runner);
+        FusedEdgeDetectionChecks.register(runner);
+        CannyEdgeChecks.register(runner);
+        ParallelStripsChecks.register(runner);
+        HoughLineTransformChecks.register(runner);
+        HoughPeaksChecks.register(runner);
+        ProgressiveHoughTransformChecks.register(runner);
+        GaussianFilterChecks.register(runner);
+        ProjectionProfileChecks.register(runner);
+        LineDetectorChecks.register(runner);
+        LineRefinementChecks.register(runner);
+        TiledLineDetectorChecks.register(runner);
+        LineTrackerChecks.register(runner);
+        BatchProcessorChecks.register(runner);
+        DetectionServerChecks.register(runner);
+        System.out.println(runner.checks + " checks, " + runner.failures.size() + " failed");
+        if (!runner.failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a check and records whether it passed.
+     *
+     * @param name  The name the check is reported under.
+     * @param check The {@code Check} to run.
+     */
+    void check(String name, Check check) {
+        checks++;
+        try {
+            check.run();
+            System.out.println("ok   " + name);
+        } catch (Throwable e) {
+            failures.add(name);
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+
+    static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.deepEquals(expected, actual)) {
+            throw new AssertionError(message + ": expected " + text(expected) + " but was " + text(actual));
+        }
+    }
+
+    static void assertSamePlane(GrayPlane expected, GrayPlane actual, String message) {
+        assertEquals(expected.getWidth() + "x" + expected.getHeight(), actual.getWidth() + "x" + actual.getHeight(),
+                message + ", size");
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.get(x, y) != actual.get(x, y)) {
+                    throw new AssertionError(message + ": pixel (" + x + ", " + y + ") is " + actual.get(x, y)
+                            + " instead of " + expected.get(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the bundled image {@code input/input<number>.png}.
+     */
+    static BufferedImage readInput(int number) throws IOException {
+        return ImageIO.read(new File("input/input" + number + ".png"));
+    }
+
+    private static String text(Object value) {
+        if (value instanceof Object[]) {
+            return Arrays.deepToString((Object[]) value);
+        }
+        if (value instanceof int[]) {
+            return Arrays.toString((int[]) value);
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,134 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Checks that the server tells bad uploads apart from detection failures, that
+ * it only reads as many uploads as it has room for, and that it rejects images
+ * above the pixel limit.
+ */
+final class DetectionServerChecks {
+
+    private DetectionServerChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("DetectionServer answers 400 to uploads it cannot decode", () -> {
+            LineDetector detector = new LineDetector().setScale(2)
+                    .setScalingMethod(ScalingMethod.DECODE_SUBSAMPLING);
+            DetectionServer server = new DetectionServer(detector).start(new InetSocketAddress("localhost", 0));
+            try {
+                URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/lines");
+                byte[] png = Files.readAllBytes(Paths.get("input/input1.png"));
+                assertEquals(200, post(url, png), "status for input1");
+                assertEquals(400, post(url, "not an image".getBytes()), "status for text");
+                // A 1x1 image has no 2x2 block to subsample, so decoding it throws an
+                // IllegalArgumentException.
+                ByteArrayOutputStream tiny = new ByteArrayOutputStream();
+                ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png", tiny);
+                assertEquals(400, post(url, tiny.toByteArray()), "status for a 1x1 image");
+            } finally {
+                server.stop(0);
+            }
+        });
+        runner.check("DetectionServer answers 413 to images with more pixels than the limit", () -> {
+            byte[] png = Files.readAllBytes(Paths.get("input/input1.png"));
+            Dimension size = ImageInput.readSize(new ByteArrayInputStream(png));
+            long pixels = (long) size.width * size.height;
+            for (long limit : new long[] { pixels, pixels - 1 }) {
+                DetectionServer server = new DetectionServer(new LineDetector()).setMaxImagePixels(limit)
+                        .start(new InetSocketAddress("localhost", 0));
+                try {
+                    URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/lines");
+                    assertEquals(limit < pixels ? 413 : 200, post(url, png), "status with a limit of " + limit);
+                    // A rejected image never reaches a worker.
+                    assertTrue(server.metricsJson().contains("\"accepted\":" + (limit < pixels ? 0 : 1)),
+                            "metrics " + server.metricsJson());
+                } finally {
+                    server.stop(0);
+                }
+            }
+        });
+        runner.check("DetectionServer admits no more uploads than it has workers and queue slots", () -> {
+            DetectionServer server = new DetectionServer(new LineDetector()).setWorkerThreads(1).setQueueCapacity(1)
+                    .setMaxUploadBytes(1 << 20).start(new InetSocketAddress("localhost", 0));
+            try {
+                int port = server.getAddress().getPort();
+                URL url = new URL("http://localhost:" + port + "/lines");
+                try (Socket huge = startUpload(port, 1L << 30)) {
+                    assertEquals(413, status(huge), "status for an upload announced over the limit");
+                }
+                // Two uploads that never send their body hold both permits.
+                try (Socket first = startUpload(port, 100); Socket second = startUpload(port, 100)) {
+                    assertEquals(503, postUntil(url, 503), "status with every permit taken");
+                }
+                // Closing them gives their permits back.
+                assertEquals(400, postUntil(url, 400), "status once the permits are back");
+            } finally {
+                server.stop(0);
+            }
+        });
+    }
+
+    // Posts text until the server answers with the given status, for at most
+    // ten seconds, and returns the last status.
+    private static int postUntil(URL url, int expected) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        int status;
+        do {
+            status = post(url, "not an image".getBytes());
+        } while (status != expected && System.nanoTime() < deadline);
+        return status;
+    }
+
+    // Sends the headers of an upload of the given length, but not its body,
+    // and gives the server ten seconds to answer.
+    private static Socket startUpload(int port, long length) throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(10_000);
+        OutputStream out = socket.getOutputStream();
+        out.write(("POST /lines HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + length + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    private static int status(Socket socket) throws IOException {
+        String line = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))
+                .readLine();
+        return Integer.parseInt(line.split(" ")[1]);
+    }
+
+    private static int post(URL url, byte[] body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
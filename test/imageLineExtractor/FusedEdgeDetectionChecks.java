@@ -0,0 +1,96 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertSamePlane;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that the fused row-streaming path gives the same edges and lines as
+ * running the stages one after another.
+ */
+final class FusedEdgeDetectionChecks {
+
+    private static final int[][][] KERNELS = { GaussianFilter.KERNEL3x3, GaussianFilter.KERNEL5x5,
+            GaussianFilter.KERNEL7x7 };
+    private static final int[][][] FILTERS = { EdgeDetection.SOBEL, EdgeDetection.SCHARR };
+    private static final int[] PARALLELISMS = { 2, 3, 8 };
+
+    private FusedEdgeDetectionChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("FusedEdgeDetection equals the separate stages", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                GrayPlane gray = GrayScale.applyGrayScale(image, GrayScale.AVERAGE, false);
+                for (int[][] kernel : KERNELS) {
+                    GrayPlane blurred = GaussianFilter.applyGaussianFilter(gray, kernel, false);
+                    for (int[][] filter : FILTERS) {
+                        GrayPlane expected = EdgeDetection.getThresholdGradient(blurred, filter,
+                                EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, false);
+                        GrayPlane fused = FusedEdgeDetection.getThresholdGradient(image, GrayScale.AVERAGE, kernel,
+                                filter, EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA);
+                        String filterName = filter == EdgeDetection.SOBEL ? "Sobel" : "Scharr";
+                        assertSamePlane(expected, fused, "input" + k + " with a " + kernel.length + "x"
+                                + kernel.length + " kernel and " + filterName);
+                    }
+                }
+            }
+        });
+        runner.check("FusedEdgeDetection streams the same edges in parallel strips", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                GrayPlane gray = GrayScale.applyGrayScale(image, GrayScale.AVERAGE, false);
+                for (ThresholdRule rule : ThresholdRule.values()) {
+                    for (int[][] kernel : KERNELS) {
+                        GrayPlane expected = stream(image, null, kernel, rule, HoughLineTransform.SEQUENTIAL);
+                        for (int parallelism : PARALLELISMS) {
+                            String message = "input" + k + " with " + rule + ", a " + kernel.length + "x"
+                                    + kernel.length + " kernel and parallelism " + parallelism;
+                            assertSamePlane(expected, stream(image, null, kernel, rule, parallelism), message);
+                            assertSamePlane(expected, stream(null, gray, kernel, rule, parallelism),
+                                    message + " from a gray plane");
+                        }
+                    }
+                }
+            }
+        });
+        runner.check("LineDetector finds the same lines fused and unfused", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                for (ThresholdRule rule : ThresholdRule.values()) {
+                    for (int scale = 1; scale <= 2; scale++) {
+                        LineDetector detector = new LineDetector().setScale(scale).setThresholdRule(rule)
+                                .setParallelism(3);
+                        assertEquals(detector.setFused(false).calculateLines(image),
+                                detector.setFused(true).calculateLines(image),
+                                "input" + k + " with " + rule + " at scale " + scale);
+                    }
+                }
+            }
+        });
+    }
+
+    // Streams the edges of the image, or of the gray plane when there is no
+    // image, into a plane. Strips write their rows concurrently.
+    private static GrayPlane stream(BufferedImage image, GrayPlane gray, int[][] kernel, ThresholdRule rule,
+            int parallelism) {
+        int offset = kernel.length / 2;
+        int width = (image != null ? image.getWidth() : gray.getWidth()) - 2 * offset;
+        int height = (image != null ? image.getHeight() : gray.getHeight()) - 2 * offset;
+        GrayPlane edges = new GrayPlane(width, height);
+        EdgeRowConsumer consumer = (row, pixels, rowWidth) -> System.arraycopy(pixels, 0, edges.getData(),
+                row * edges.getStride(), rowWidth);
+        if (image != null) {
+            FusedEdgeDetection.streamThresholdGradient(image, GrayScale.AVERAGE, kernel, EdgeDetection.SOBEL, rule,
+                    EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, EdgeDetection.PRESET_PERCENTILE,
+                    parallelism, consumer);
+        } else {
+            FusedEdgeDetection.streamThresholdGradient(gray, kernel, EdgeDetection.SOBEL, rule,
+                    EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, EdgeDetection.PRESET_PERCENTILE,
+                    parallelism, consumer);
+        }
+        return edges;
+    }
+}
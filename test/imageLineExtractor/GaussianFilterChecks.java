@@ -0,0 +1,101 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertSamePlane;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.util.Random;
+
+/**
+ * Checks that the separable Gaussian filter blurs exactly like the direct
+ * convolution, and that the recursive filter is close to a true Gaussian, on
+ * binary noise where every tap of the kernel matters.
+ */
+final class GaussianFilterChecks {
+
+    private static final int[][][] KERNELS = { GaussianFilter.KERNEL5x5, GaussianFilter.KERNEL3x3,
+            GaussianFilter.KERNEL7x7 };
+    private static final int[] PARALLELISMS = { 1, 3 };
+    // The box filters approximate the Gaussian well from a sigma of about 2.
+    private static final double[] SIGMAS = { 2.0, 3.5, 5.0 };
+    private static final double MAX_MEAN_ERROR = 2.0;
+
+    private GaussianFilterChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("GaussianFilter blurs separably like the direct convolution", () -> {
+            GrayPlane noise = binaryNoise(300, 200, 1);
+            for (int[][] kernel : KERNELS) {
+                GrayPlane expected = GaussianFilter.applyGaussianFilter(noise, kernel, false);
+                for (int parallelism : PARALLELISMS) {
+                    assertSamePlane(expected, GaussianFilter.applySeparableGaussianFilter(noise, kernel, parallelism,
+                            false), kernel.length + "x" + kernel.length + " kernel with parallelism " + parallelism);
+                }
+            }
+        });
+        runner.check("GaussianFilter blurs recursively like a Gaussian, cropped by its offset", () -> {
+            GrayPlane noise = binaryNoise(300, 200, 1);
+            for (double sigma : SIGMAS) {
+                int offset = GaussianFilter.getRecursiveFilterOffset(sigma);
+                GrayPlane blurred = GaussianFilter.applyRecursiveGaussianFilter(noise, sigma, 1, false);
+                String message = "sigma " + sigma;
+                assertEquals((300 - 2 * offset) + "x" + (200 - 2 * offset),
+                        blurred.getWidth() + "x" + blurred.getHeight(), message + ", size");
+                // A wrong offset shifts the blur against the Gaussian, which the
+                // noise turns into a larger error.
+                double error = meanError(noise, blurred, sigma, offset);
+                assertTrue(error <= MAX_MEAN_ERROR, message + ": mean error " + error);
+                for (int shift = -1; shift <= 1; shift += 2) {
+                    double shiftedError = meanError(noise, blurred, sigma, offset + shift);
+                    assertTrue(error < shiftedError, message + ": offset " + (offset + shift) + " fits better than "
+                            + offset);
+                }
+                GrayPlane target = new GrayPlane(blurred.getWidth(), blurred.getHeight());
+                assertSamePlane(blurred, GaussianFilter.applyRecursiveGaussianFilter(noise, sigma, 3, target, false),
+                        message + " with parallelism 3 into a target plane");
+            }
+        });
+    }
+
+    // The mean difference between the blurred plane and a true Gaussian of the
+    // noise centred offset pixels further, renormalized at the borders.
+    private static double meanError(GrayPlane noise, GrayPlane blurred, double sigma, int offset) {
+        int radius = (int) Math.ceil(4 * sigma);
+        double[] weights = new double[2 * radius + 1];
+        for (int k = -radius; k <= radius; k++) {
+            weights[k + radius] = Math.exp(-k * k / (2 * sigma * sigma));
+        }
+        double total = 0;
+        for (int y = 0; y < blurred.getHeight(); y++) {
+            for (int x = 0; x < blurred.getWidth(); x++) {
+                double sum = 0;
+                double weight = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    int row = y + offset + dy;
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int column = x + offset + dx;
+                        if (row >= 0 && row < noise.getHeight() && column >= 0 && column < noise.getWidth()) {
+                            double w = weights[dy + radius] * weights[dx + radius];
+                            sum += w * noise.get(column, row);
+                            weight += w;
+                        }
+                    }
+                }
+                total += Math.abs(sum / weight - blurred.get(x, y));
+            }
+        }
+        return total / ((double) blurred.getWidth() * blurred.getHeight());
+    }
+
+    private static GrayPlane binaryNoise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        GrayPlane noise = new GrayPlane(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                noise.set(x, y, random.nextBoolean() ? 255 : 0);
+            }
+        }
+        return noise;
+    }
+}
@@ -0,0 +1,51 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+
+/**
+ * Checks that voting the Hough accumulator in parallel finds exactly the lines
+ * of voting it sequentially.
+ */
+final class HoughLineTransformChecks {
+
+    private static final int[] PARALLELISMS = { 2, 3, 8 };
+    private static final int[] THETA_BANDS = { HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.FULL_SWEEP };
+
+    private HoughLineTransformChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("HoughLineTransform merges parallel votes deterministically", () -> {
+            for (int k = 1; k <= 7; k++) {
+                GrayPlane edges = edges(k);
+                BinaryPlane binaryEdges = BinaryPlane.fromGrayPlane(edges);
+                EdgePoints points = EdgePoints.fromGrayPlane(edges);
+                int lineSpacing = HoughLineTransform.DEFAULT_LINE_SPACING;
+                for (int thetaBand : THETA_BANDS) {
+                    int[][] expected = HoughLineTransform.getLines(edges, 1, thetaBand, HoughLineTransform.SEQUENTIAL,
+                            false);
+                    for (int parallelism : PARALLELISMS) {
+                        String message = "input" + k + " with theta band " + thetaBand + " and parallelism "
+                                + parallelism;
+                        for (int run = 0; run < 3; run++) {
+                            assertEquals(expected, HoughLineTransform.getLines(edges, 1, thetaBand, parallelism,
+                                    false), message);
+                        }
+                        assertEquals(expected, HoughLineTransform.findLines(binaryEdges, lineSpacing, thetaBand,
+                                parallelism, false, null, false), message + " from a BinaryPlane");
+                        assertEquals(expected, HoughLineTransform.findLines(points, lineSpacing, thetaBand,
+                                parallelism, false, null, false), message + " from EdgePoints");
+                    }
+                }
+            }
+        });
+    }
+
+    private static GrayPlane edges(int number) throws Exception {
+        GrayPlane gray = GrayScale.applyGrayScale(CheckRunner.readInput(number), GrayScale.AVERAGE, false);
+        GrayPlane blurred = GaussianFilter.applyGaussianFilter(gray, GaussianFilter.KERNEL3x3, false);
+        GrayPlane thresholdGradient = EdgeDetection.getThresholdGradient(blurred, EdgeDetection.SOBEL,
+                EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, false);
+        return ErosionDilation.erosionAndDilation(thresholdGradient, false);
+    }
+}
@@ -0,0 +1,165 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that the peak heap, with and without non-maximum suppression, finds
+ * the lines of sorting every accumulator cell by votes, and that suppression
+ * drops exactly the cells with a stronger neighbour.
+ */
+final class HoughPeaksChecks {
+
+    private static final int[] THETA_BANDS = { HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.FULL_SWEEP };
+
+    private HoughPeaksChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("HoughPeaks finds the lines of the sorted extraction, with and without suppression", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                for (int scale = 1; scale <= 2; scale++) {
+                    EdgePoints points = new LineDetector().setScale(scale).findEdgePoints(image,
+                            ScratchBuffers.get(), new StageRecorder(null));
+                    int lineSpacing = HoughLineTransform.DEFAULT_LINE_SPACING / scale;
+                    for (int thetaBand : THETA_BANDS) {
+                        int[] thetas = HoughLineTransform.thetas(thetaBand);
+                        int rhoCount = HoughLineTransform.findHighestPoint(points.getWidth(), points.getHeight())
+                                + 1;
+                        int[] accumulator = vote(points, thetas, rhoCount);
+                        String message = "input" + k + " at scale " + scale + " with theta band " + thetaBand;
+                        int[][] expected = sortedLines(accumulator, rhoCount, thetas, lineSpacing);
+                        assertEquals(expected, HoughLineTransform.findLines(accumulator, rhoCount, thetas,
+                                lineSpacing, false), message);
+                        assertEquals(expected, HoughLineTransform.findLines(accumulator, rhoCount, thetas,
+                                lineSpacing, true), message + " with suppression");
+                    }
+                }
+            }
+        });
+        runner.check("HoughPeaks suppresses exactly the cells with a stronger neighbour", () -> {
+            // One column at theta 0 next to one at theta 1: the 9 beats the 5
+            // and 7 above and below it and the 8 beside it, the 6 at rho 5 has
+            // no stronger neighbour, and the two 4 are tied, so the lower cell
+            // index wins.
+            int[] thetas = { 0, 1 };
+            int[] candidates = { 0, 1 };
+            int[] accumulator = new int[8 * thetas.length];
+            int[][] votes = { { 1, 0, 5 }, { 2, 0, 9 }, { 3, 0, 7 }, { 2, 1, 8 }, { 5, 0, 6 }, { 7, 0, 4 },
+                    { 7, 1, 4 } };
+            for (int[] cell : votes) {
+                accumulator[cell[0] * thetas.length + cell[1]] = cell[2];
+            }
+            assertEquals(new int[] { 2 * 2, 5 * 2, 7 * 2 }, HoughPeaks.findPeaks(accumulator, 8, thetas,
+                    candidates, 1, Integer.MAX_VALUE, true), "suppressed peaks");
+            assertEquals(new int[] { 2 * 2, 2 * 2 + 1, 3 * 2, 5 * 2, 1 * 2, 7 * 2, 7 * 2 + 1 },
+                    HoughPeaks.findPeaks(accumulator, 8, thetas, candidates, 1, Integer.MAX_VALUE, false),
+                    "all peaks");
+            assertEquals(new int[] { 2 * 2, 2 * 2 + 1 }, HoughPeaks.findPeaks(accumulator, 8, thetas, candidates,
+                    1, 2, false), "two strongest peaks");
+
+            for (int k = 1; k <= 7; k++) {
+                EdgePoints points = new LineDetector().findEdgePoints(CheckRunner.readInput(k),
+                        ScratchBuffers.get(), new StageRecorder(null));
+                int[] fullThetas = HoughLineTransform.thetas(HoughLineTransform.FULL_SWEEP);
+                int[] columns = HoughLineTransform.candidateColumns(fullThetas);
+                int rhoCount = HoughLineTransform.findHighestPoint(points.getWidth(), points.getHeight()) + 1;
+                int[] fullAccumulator = vote(points, fullThetas, rhoCount);
+                int[] all = HoughPeaks.findPeaks(fullAccumulator, rhoCount, fullThetas, columns, 1,
+                        Integer.MAX_VALUE, false);
+                int[] kept = HoughPeaks.findPeaks(fullAccumulator, rhoCount, fullThetas, columns, 1,
+                        Integer.MAX_VALUE, true);
+                List<Integer> expected = new ArrayList<>();
+                for (int cell : all) {
+                    if (!isBeaten(fullAccumulator, rhoCount, fullThetas, columns, cell)) {
+                        expected.add(cell);
+                    }
+                }
+                assertTrue(expected.size() < all.length, "input" + k + " has no cell to suppress");
+                assertEquals(expected.stream().mapToInt(Integer::intValue).toArray(), kept,
+                        "input" + k + " suppressed peaks");
+                assertEquals(Arrays.copyOf(kept, 10), HoughPeaks.findPeaks(fullAccumulator, rhoCount, fullThetas,
+                        columns, 1, 10, true), "input" + k + " ten strongest suppressed peaks");
+            }
+        });
+    }
+
+    private static int[] vote(EdgePoints points, int[] thetas, int rhoCount) {
+        int[] accumulator = new int[rhoCount * thetas.length];
+        for (int i = 0; i < points.size(); i++) {
+            HoughLineTransform.plotOnArray(points.getX(i), points.getY(i), thetas, accumulator);
+        }
+        return accumulator;
+    }
+
+    // The original extraction: every voted cell, stably sorted by descending
+    // votes down to an eighth of the strongest, becomes a line unless a line of
+    // the same orientation lies closer than the spacing.
+    private static int[][] sortedLines(int[] accumulator, int rhoCount, int[] thetas, int lineSpacing) {
+        List<int[]> cells = new ArrayList<>();
+        for (int r = 0; r < rhoCount; r++) {
+            for (int column = 0; column < thetas.length; column++) {
+                int votes = accumulator[r * thetas.length + column];
+                if (votes > 0) {
+                    cells.add(new int[] { votes, r, thetas[column] });
+                }
+            }
+        }
+        cells.sort((cell1, cell2) -> Integer.compare(cell2[0], cell1[0]));
+        List<Integer> verticalLines = new ArrayList<>();
+        List<Integer> horizontalLines = new ArrayList<>();
+        for (int[] cell : cells) {
+            if (cell[0] < cells.get(0)[0] / 8) {
+                break;
+            }
+            double rho = (double) cell[2] / 100;
+            int r = cell[1];
+            double m = -Math.cos(rho) / Math.sin(rho);
+            if (rho != 0 && !(m < 0.01 && m > -0.01)) {
+                continue;
+            }
+            List<Integer> lines = rho == 0 ? verticalLines : horizontalLines;
+            boolean isTooClose = false;
+            for (int line : lines) {
+                isTooClose |= line - lineSpacing < r && line + lineSpacing > r;
+            }
+            if (!isTooClose) {
+                lines.add(rho == 0 ? r : (int) (r / Math.sin(rho)));
+            }
+        }
+        return new int[][] { sorted(horizontalLines), sorted(verticalLines) };
+    }
+
+    private static int[] sorted(List<Integer> lines) {
+        return lines.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    // Whether a neighbour of the cell, with the next or previous rho, or with
+    // the same or an adjacent rho in a candidate column one theta step away,
+    // has more votes, or as many and a lower index.
+    private static boolean isBeaten(int[] accumulator, int rhoCount, int[] thetas, int[] columns, int cell) {
+        int r = cell / thetas.length;
+        int column = cell % thetas.length;
+        for (int neighbourRho = r - 1; neighbourRho <= r + 1; neighbourRho++) {
+            if (neighbourRho < 0 || neighbourRho >= rhoCount) {
+                continue;
+            }
+            for (int neighbourColumn : columns) {
+                int step = Math.abs(thetas[neighbourColumn] - thetas[column]);
+                int neighbour = neighbourRho * thetas.length + neighbourColumn;
+                boolean adjacent = step == 1 || step == 0 && neighbourRho != r;
+                if (adjacent && (accumulator[neighbour] > accumulator[cell]
+                        || accumulator[neighbour] == accumulator[cell] && neighbour < cell)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
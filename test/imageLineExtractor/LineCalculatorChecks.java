@@ -0,0 +1,60 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that {@link LineCalculator} still finds the lines the original
+ * per-image stages found on the bundled images.
+ */
+final class LineCalculatorChecks {
+
+    // The lines the original stages found for input1 to input7, at scale 1 and
+    // then at scale 2, each in a fresh JVM.
+    private static final int[][][][] ORIGINAL_LINES = {
+            {
+                    { { 251, 419, 487, 581, 661, 742, 820 }, { 142, 222, 306, 378, 464, 551, 627 } },
+                    { { 330, 416, 496, 580, 656, 732, 816 }, { 140, 220, 306, 388, 468, 546, 620 } }
+            },
+            {
+                    { { 419, 537, 658, 770 }, { 21, 138, 255, 366, 482, 598, 715 } },
+                    { { 412, 542, 648, 762 }, { 24, 138, 254, 360, 486, 604, 710 } }
+            },
+            {
+                    { { 16, 216, 327, 429, 520, 627, 733, 830 }, { 218, 320, 425, 527, 621, 724 } },
+                    { { 110, 424, 528, 630, 730, 826 }, { 220, 322, 424, 518, 626, 722 } }
+            },
+            {
+                    { { 424, 523, 624, 728, 825 }, { 168, 272, 374, 470, 570 } },
+                    { { 420, 530, 618, 718, 822 }, { 166, 260, 372, 466, 566 } }
+            },
+            {
+                    { { 11, 114, 203, 313, 411, 520, 623, 723, 819 }, { 119, 222, 324, 426, 519 } },
+                    { { 8, 110, 206, 312, 414, 512, 616, 716, 814 }, { 118, 218, 322, 416, 518 } }
+            },
+            {
+                    { { 462, 559, 647, 735, 825 }, { 65, 154, 244, 329, 519, 604 } },
+                    { { 280, 462, 554, 642, 734, 822 }, { 64, 156, 242, 326, 432, 518, 598 } }
+            },
+            {
+                    { { 125, 249, 365, 482, 592, 713, 826 }, { 250, 367, 481, 597, 714, 830 } },
+                    { { 362, 482, 586, 700, 824 }, { 248, 370, 486, 602, 718, 826 } }
+            }
+    };
+
+    private LineCalculatorChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("LineCalculator finds the original lines", () -> {
+            for (int k = 0; k < ORIGINAL_LINES.length; k++) {
+                BufferedImage image = CheckRunner.readInput(k + 1);
+                for (int scale = 1; scale <= 2; scale++) {
+                    assertEquals(ORIGINAL_LINES[k][scale - 1], LineCalculator.calculateLines(image, scale, false),
+                            "input" + (k + 1) + " at scale " + scale);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that the result cache key of a {@link LineDetector} changes with
+ * every setting that changes the lines, including settings added later, and
+ * with the palette of indexed images, that the persisted results follow the
+ * ones kept in memory, and that the blur methods are applied where they
+ * should be.
+ */
+final class LineDetectorChecks {
+
+    // The settings that give the same lines, which the key leaves out.
+    private static final List<String> SAME_LINES = Arrays.asList("parallelism", "fused", "stageListener",
+            "resultCache");
+    private static final GrayScaleFunction[] FUNCTIONS = { GrayScale.AVERAGE, GrayScale.LUMINOSITY,
+            GrayScale.LIGHTNESS, GrayScale.RED_CHANNEL_ONLY, GrayScale.GREEN_CHANNEL_ONLY,
+            GrayScale.BLUE_CHANNEL_ONLY };
+
+    private LineDetectorChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("LineDetector cache key covers every setting", () -> {
+            BufferedImage image = CheckRunner.readInput(1);
+            long defaultKey = new LineDetector().cacheKey(image, 1);
+            assertTrue(new LineDetector().cacheKey(image, 2) != defaultKey, "decoded scale is not in the key");
+            for (Field field : LineDetector.class.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || SAME_LINES.contains(field.getName())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                LineDetector detector = new LineDetector();
+                field.set(detector, changed(field, field.get(detector)));
+                assertTrue(detector.cacheKey(image, 1) != defaultKey, field.getName() + " is not in the key");
+            }
+            Set<Long> keys = new HashSet<>();
+            for (GrayScaleFunction function : FUNCTIONS) {
+                keys.add(new LineDetector().setGrayScaleFunction(function).cacheKey(image, 1));
+            }
+            assertTrue(keys.size() == FUNCTIONS.length, "grayscale functions share keys");
+        });
+        runner.check("LineDetector cache key tells indexed images apart by their palette", () -> {
+            // The same index bytes under a black and white and under a
+            // white and black palette.
+            byte[] levels = { 0, (byte) 0xFF };
+            byte[] inverted = { (byte) 0xFF, 0 };
+            BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_INDEXED,
+                    new IndexColorModel(1, 2, levels, levels, levels));
+            BufferedImage invertedImage = new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_INDEXED,
+                    new IndexColorModel(1, 2, inverted, inverted, inverted));
+            for (int y = 0; y < 64; y++) {
+                for (int x = y % 2; x < 64; x += 2) {
+                    image.getRaster().setSample(x, y, 0, 1);
+                    invertedImage.getRaster().setSample(x, y, 0, 1);
+                }
+            }
+            assertTrue(ResultCache.hash(image) != ResultCache.hash(invertedImage), "palettes share a hash");
+            assertTrue(new LineDetector().cacheKey(image, 1) != new LineDetector().cacheKey(invertedImage, 1),
+                    "palettes share a key");
+        });
+        runner.check("ResultCache keeps a file for every result it keeps", () -> {
+            File directory = Files.createTempDirectory("lines").toFile();
+            try {
+                ResultCache cache = new ResultCache(2, ResultCache.DEFAULT_MAX_BYTES).setDirectory(directory);
+                for (long key = 1; key <= 3; key++) {
+                    cache.put(key, new int[][] { { (int) key }, { 10, 20 } });
+                }
+                assertEquals(1L, cache.getEvictions(), "evictions");
+                assertEquals(2, directory.list().length, "files in the directory");
+                ResultCache reloaded = new ResultCache().setDirectory(directory);
+                assertEquals(2, reloaded.size(), "results loaded back");
+                assertTrue(reloaded.get(1) == null, "the evicted result was loaded back");
+                assertEquals(new int[][] { { 3 }, { 10, 20 } }, reloaded.get(3), "loaded result");
+                cache.clear();
+                assertEquals(0, new ResultCache().setDirectory(directory).size(), "results left after clearing");
+            } finally {
+                for (File file : directory.listFiles()) {
+                    file.delete();
+                }
+                directory.delete();
+            }
+        });
+        runner.check("LineDetector blurs separably and recursively", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                LineDetector detector = new LineDetector().setFused(false).setParallelism(3);
+                assertEquals(detector.setBlurMethod(BlurMethod.DIRECT).calculateLines(image),
+                        detector.setBlurMethod(BlurMethod.SEPARABLE).calculateLines(image),
+                        "input" + k + " blurred separably");
+                // The fused path has no recursive blur, so it runs the stages.
+                detector.setBlurMethod(BlurMethod.RECURSIVE).setBlurSigma(3.0);
+                assertEquals(detector.calculateLines(image), detector.setFused(true).calculateLines(image),
+                        "input" + k + " blurred recursively, fused");
+            }
+        });
+    }
+
+    // A value of the field's type other than the given one.
+    private static Object changed(Field field, Object value) {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            return (int) value + 1;
+        }
+        if (type == long.class) {
+            return (long) value + 1;
+        }
+        if (type == double.class) {
+            return (double) value + 0.01;
+        }
+        if (type == boolean.class) {
+            return !(boolean) value;
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants[(((Enum<?>) value).ordinal() + 1) % constants.length];
+        }
+        if (type == int[][].class) {
+            // Only one tap changes, so the key has to hash every tap.
+            int[][] kernel = ((int[][]) value).clone();
+            int last = kernel.length - 1;
+            kernel[last] = kernel[last].clone();
+            kernel[last][kernel[last].length - 1]++;
+            return kernel;
+        }
+        if (type == GrayScaleFunction.class) {
+            return value == GrayScale.LUMINOSITY ? GrayScale.AVERAGE : GrayScale.LUMINOSITY;
+        }
+        throw new AssertionError("no other value for setting " + field.getName() + " of type " + type.getName());
+    }
+}
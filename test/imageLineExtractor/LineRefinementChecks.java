@@ -0,0 +1,70 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Checks that refined lines are closer to the lines found at full resolution
+ * than the scaled lines they come from, and that lines refined to the same row
+ * are kept once.
+ */
+final class LineRefinementChecks {
+
+    private static final int[] SCALES = { 2, 3, 4 };
+
+    private LineRefinementChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("LineRefinement moves scaled lines closer to the full resolution lines", () -> {
+            BufferedImage[] images = new BufferedImage[7];
+            int[][][] expected = new int[images.length][][];
+            for (int k = 1; k <= images.length; k++) {
+                images[k - 1] = CheckRunner.readInput(k);
+                expected[k - 1] = new LineDetector().calculateLines(images[k - 1]);
+            }
+            for (int scale : SCALES) {
+                int scaledError = 0;
+                int refinedError = 0;
+                for (int k = 0; k < images.length; k++) {
+                    int[][] scaled = new LineDetector().setScale(scale).calculateLines(images[k]);
+                    int[][] refined = new LineDetector().setScale(scale).setRefinement(true)
+                            .calculateLines(images[k]);
+                    for (int orientation = 0; orientation < 2; orientation++) {
+                        // Only the lines found at both resolutions are compared,
+                        // the others are not moved into place by the refinement.
+                        for (int line : expected[k][orientation]) {
+                            int distance = distance(scaled[orientation], line);
+                            if (distance <= scale + 2) {
+                                scaledError += distance;
+                                refinedError += distance(refined[orientation], line);
+                            }
+                        }
+                    }
+                }
+                assertTrue(refinedError < scaledError, "refined lines are " + refinedError
+                        + " pixels off against " + scaledError + " for the scaled ones at scale " + scale);
+            }
+        });
+        runner.check("LineRefinement keeps lines refined to the same row once", () -> {
+            // Two scaled lines two rows apart around the first horizontal line of
+            // input4, whose search bands both find its strongest row.
+            BufferedImage image = CheckRunner.readInput(4);
+            int line = new LineDetector().calculateLines(image)[0][0];
+            int[][] refined = LineRefinement.refineLines(image, new int[][] { { line - 2, line }, {} }, 2);
+            assertEquals(1, refined[0].length, "refined lines " + Arrays.toString(refined[0]));
+        });
+    }
+
+    // The distance from a line to the closest of the given lines.
+    private static int distance(int[] lines, int line) {
+        int distance = Integer.MAX_VALUE;
+        for (int other : lines) {
+            distance = Math.min(distance, Math.abs(other - line));
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,44 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that tracking a still frame keeps its lines and that the tracking
+ * stage allocates nothing once the tracker has its buffers.
+ */
+final class LineTrackerChecks {
+
+    private static final int FRAMES = 20;
+
+    private LineTrackerChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("LineTracker tracks a still frame without allocating", () -> {
+            BufferedImage frame = CheckRunner.readInput(1);
+            long[] trackingBytes = { 0 };
+            int[] trackedStages = { 0 };
+            // The recorder measures the stage with
+            // ThreadMXBean.getCurrentThreadAllocatedBytes.
+            StageListener listener = metrics -> {
+                if (metrics.getStage() == Stage.TRACKING
+                        && metrics.getAllocatedBytes() != StageMetrics.NOT_AVAILABLE) {
+                    trackingBytes[0] += metrics.getAllocatedBytes();
+                    trackedStages[0]++;
+                }
+            };
+            LineDetector detector = new LineDetector().setScale(2).setStageListener(listener);
+            LineTracker tracker = new LineTracker(detector).setRedetectInterval(Integer.MAX_VALUE);
+            int[][] detected = tracker.nextFrame(frame);
+            for (int i = 0; i < FRAMES; i++) {
+                assertEquals(detected, tracker.nextFrame(frame), "frame " + (i + 1));
+                assertTrue(tracker.isTracked(), "frame " + (i + 1) + " was detected from scratch");
+            }
+            assertTrue(trackedStages[0] == 0 || trackingBytes[0] == 0,
+                    "tracking allocated " + trackingBytes[0] + " bytes in " + trackedStages[0] + " frames");
+        });
+    }
+}
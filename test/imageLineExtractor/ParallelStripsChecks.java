@@ -0,0 +1,37 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that the parallel stages share one pool of threads, whatever
+ * parallelism they are run with.
+ */
+final class ParallelStripsChecks {
+
+    private ParallelStripsChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("ParallelStrips runs every parallelism on one pool", () -> {
+            BufferedImage image = CheckRunner.readInput(1);
+            for (int parallelism = 2; parallelism <= 64; parallelism *= 2) {
+                new LineDetector().setFused(false).setParallelism(parallelism).calculateLines(image);
+            }
+            int processors = Runtime.getRuntime().availableProcessors();
+            long pools = Thread.getAllStackTraces().keySet().stream()
+                    .map(Thread::getName)
+                    .filter(name -> name.matches("ForkJoinPool-\\d+-worker-\\d+"))
+                    .map(name -> name.substring(0, name.indexOf("-worker")))
+                    .distinct()
+                    .count();
+            long threads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().matches("ForkJoinPool-\\d+-worker-\\d+"))
+                    .count();
+            assertTrue(pools <= 1, pools + " fork-join pools were started");
+            assertTrue(threads <= processors, threads + " pool threads for " + processors + " processors");
+            assertTrue(ParallelStrips.stripCount(1000, 1000) <= 4 * processors, "strips are not capped");
+        });
+    }
+}
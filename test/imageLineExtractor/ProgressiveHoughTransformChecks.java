@@ -0,0 +1,84 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+import static imageLineExtractor.CheckRunner.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that the progressive Hough transform finds the lines of voting every
+ * edge pixel, with fewer votes.
+ */
+final class ProgressiveHoughTransformChecks {
+
+    private static final int[] THETA_BANDS = { HoughLineTransform.DEFAULT_THETA_BAND, HoughLineTransform.FULL_SWEEP };
+    private static final int SEEDS = 3;
+
+    private ProgressiveHoughTransformChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("ProgressiveHoughTransform finds the lines of the full transform with fewer votes", () -> {
+            long votesCast = 0;
+            long fullVotes = 0;
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                for (int scale = 1; scale <= 2; scale++) {
+                    EdgePoints points = new LineDetector().setScale(scale).findEdgePoints(image,
+                            ScratchBuffers.get(), new StageRecorder(null));
+                    int lineSpacing = HoughLineTransform.DEFAULT_LINE_SPACING / scale;
+                    for (int thetaBand : THETA_BANDS) {
+                        int[][] expected = HoughLineTransform.findLines(points, lineSpacing, thetaBand,
+                                HoughLineTransform.SEQUENTIAL, false, null, false);
+                        for (int seed = 0; seed < SEEDS; seed++) {
+                            String message = "input" + k + " at scale " + scale + " with theta band " + thetaBand
+                                    + " and seed " + seed;
+                            assertEquals(expected, ProgressiveHoughTransform.findLines(points, lineSpacing,
+                                    thetaBand, seed, ProgressiveHoughTransform.FULL_BUDGET, false), message);
+                            votesCast += ProgressiveHoughTransform.votesCast(points, lineSpacing, thetaBand, seed,
+                                    ProgressiveHoughTransform.FULL_BUDGET);
+                            fullVotes += (long) points.size() * HoughLineTransform.thetas(thetaBand).length;
+                        }
+                    }
+                }
+            }
+            assertTrue(4 * votesCast < 3 * fullVotes,
+                    "cast " + votesCast + " of the " + fullVotes + " votes of the full transform");
+        });
+        runner.check("ProgressiveHoughTransform takes the threshold from a stronger slanted line", () -> {
+            // All 400 pixels of the line at rho 300 and theta 1 vote in the same
+            // cell, which raises the threshold to 50 votes and drops the 30 pixel
+            // vertical line that the 200 pixel horizontal line alone would keep.
+            GrayPlane image = new GrayPlane(400, 400);
+            for (int x = 0; x < 400; x++) {
+                image.set(x, (int) Math.round((300 - x * Math.cos(1.0)) / Math.sin(1.0)), 255);
+            }
+            for (int x = 0; x < 200; x++) {
+                image.set(x, 100, 255);
+            }
+            for (int y = 200; y < 230; y++) {
+                image.set(300, y, 255);
+            }
+            EdgePoints points = EdgePoints.fromGrayPlane(image);
+            int[][] expected = HoughLineTransform.findLines(points, HoughLineTransform.DEFAULT_LINE_SPACING,
+                    HoughLineTransform.FULL_SWEEP, HoughLineTransform.SEQUENTIAL, false, null, false);
+            assertEquals(0, expected[1].length, "vertical lines of the full transform");
+            for (int seed = 0; seed < SEEDS; seed++) {
+                assertEquals(expected, ProgressiveHoughTransform.findLines(points,
+                        HoughLineTransform.DEFAULT_LINE_SPACING, HoughLineTransform.FULL_SWEEP, seed,
+                        ProgressiveHoughTransform.FULL_BUDGET, false), "seed " + seed);
+            }
+        });
+        runner.check("ProgressiveHoughTransform only votes the extracted columns without a budget", () -> {
+            EdgePoints points = new LineDetector().findEdgePoints(CheckRunner.readInput(1), ScratchBuffers.get(),
+                    new StageRecorder(null));
+            for (int thetaBand : THETA_BANDS) {
+                int[] thetas = HoughLineTransform.thetas(thetaBand);
+                assertEquals((long) points.size() * HoughLineTransform.candidateColumns(thetas).length,
+                        ProgressiveHoughTransform.votesCast(points, HoughLineTransform.DEFAULT_LINE_SPACING,
+                                thetaBand, ProgressiveHoughTransform.DEFAULT_SEED, 0),
+                        "votes with theta band " + thetaBand);
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Checks that the projection profiles find the same lines in every form of the
+ * edges, on straight images and on rotated ones that fall back to the Hough
+ * transform, and that the skew of sheared lines is estimated.
+ */
+final class ProjectionProfileChecks {
+
+    private static final int[] PARALLELISMS = { 1, 3 };
+    private static final double ROTATION = 0.03;
+    private static final double SKEW_STEP = 0.0025;
+    private static final int SKEW_STEPS = 8;
+
+    private ProjectionProfileChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("ProjectionProfile finds the same lines in a GrayPlane, BinaryPlane and EdgePoints", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                for (BufferedImage input : new BufferedImage[] { image, rotate(image, ROTATION) }) {
+                    GrayPlane edges = edges(input);
+                    BinaryPlane binaryEdges = BinaryPlane.fromGrayPlane(edges);
+                    EdgePoints points = EdgePoints.fromGrayPlane(edges);
+                    int lineSpacing = HoughLineTransform.DEFAULT_LINE_SPACING;
+                    double skewTolerance = ProjectionProfile.DEFAULT_SKEW_TOLERANCE;
+                    int thetaBand = HoughLineTransform.DEFAULT_THETA_BAND;
+                    int[][] expected = ProjectionProfile.findLines(edges, lineSpacing, skewTolerance, thetaBand,
+                            HoughLineTransform.SEQUENTIAL, null, false);
+                    for (int parallelism : PARALLELISMS) {
+                        String message = "input" + k + (input == image ? "" : " rotated") + " with parallelism "
+                                + parallelism;
+                        assertEquals(expected, ProjectionProfile.findLines(edges, lineSpacing, skewTolerance,
+                                thetaBand, parallelism, null, false), message);
+                        assertEquals(expected, ProjectionProfile.findLines(binaryEdges, lineSpacing, skewTolerance,
+                                thetaBand, parallelism, null, false), message + " from a BinaryPlane");
+                        assertEquals(expected, ProjectionProfile.findLines(points, lineSpacing, skewTolerance,
+                                thetaBand, parallelism, null, false), message + " from EdgePoints");
+                    }
+                }
+            }
+        });
+        runner.check("ProjectionProfile estimates the skew of sheared lines", () -> {
+            // Horizontal and vertical lines sheared by every skew that is
+            // tried, the horizontal ones downwards to the right for a positive
+            // skew.
+            for (int step = -SKEW_STEPS; step <= SKEW_STEPS; step++) {
+                double skew = step * SKEW_STEP;
+                double tan = Math.tan(skew);
+                GrayPlane edges = new GrayPlane(400, 300);
+                for (int line = 30; line < 300; line += 60) {
+                    for (int x = 0; x < 400; x++) {
+                        edges.set(x, line + (int) Math.round(x * tan), 255);
+                    }
+                }
+                for (int line = 40; line < 400; line += 80) {
+                    for (int y = 0; y < 300; y++) {
+                        edges.set(line - (int) Math.round(y * tan), y, 255);
+                    }
+                }
+                assertEquals(skew, ProjectionProfile.estimateSkew(edges), "skew of step " + step);
+            }
+        });
+    }
+
+    private static BufferedImage rotate(BufferedImage image, double angle) {
+        BufferedImage rotated = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rotated.createGraphics();
+        graphics.setTransform(AffineTransform.getRotateInstance(angle, image.getWidth() / 2.0,
+                image.getHeight() / 2.0));
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rotated;
+    }
+
+    private static GrayPlane edges(BufferedImage image) {
+        GrayPlane gray = GrayScale.applyGrayScale(image, GrayScale.AVERAGE, false);
+        GrayPlane blurred = GaussianFilter.applyGaussianFilter(gray, GaussianFilter.KERNEL3x3, false);
+        GrayPlane thresholdGradient = EdgeDetection.getThresholdGradient(blurred, EdgeDetection.SOBEL,
+                EdgeDetection.PRESET_ALPHA, EdgeDetection.PRESET_BETA, false);
+        return ErosionDilation.erosionAndDilation(thresholdGradient, false);
+    }
+}
@@ -0,0 +1,52 @@
+package imageLineExtractor;
+
+import static imageLineExtractor.CheckRunner.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+/**
+ * Checks that detecting the lines a tile at a time finds exactly the lines of
+ * detecting them in the whole image.
+ */
+final class TiledLineDetectorChecks {
+
+    private static final LineDetectionMode[] MODES = { LineDetectionMode.HOUGH, LineDetectionMode.PROJECTION };
+    // Tiles that do not divide the images, and a budget small enough to halve
+    // them.
+    private static final int[] TILE_SIZES = { 150, 333 };
+    private static final long SMALL_BUDGET = 1L << 20;
+
+    private TiledLineDetectorChecks() {
+    }
+
+    static void register(CheckRunner runner) {
+        runner.check("TiledLineDetector finds the same lines as the whole image", () -> {
+            for (int k = 1; k <= 7; k++) {
+                BufferedImage image = CheckRunner.readInput(k);
+                File file = new File("input/input" + k + ".png");
+                for (LineDetectionMode mode : MODES) {
+                    for (int scale = 1; scale <= 2; scale++) {
+                        LineDetector detector = new LineDetector().setMode(mode).setScale(scale)
+                                .setScalingMethod(ScalingMethod.AREA_AVERAGE);
+                        LineDetector subsampled = new LineDetector().setMode(mode).setScale(scale)
+                                .setScalingMethod(ScalingMethod.DECODE_SUBSAMPLING);
+                        int[][] expected = detector.calculateLines(image);
+                        int[][] expectedSubsampled = subsampled.calculateLines(file);
+                        for (int tileSize : TILE_SIZES) {
+                            String message = "input" + k + " with " + mode + " at scale " + scale + " in "
+                                    + tileSize + " pixel tiles";
+                            assertEquals(expected, new TiledLineDetector(detector.setParallelism(3))
+                                    .setTileSize(tileSize).calculateLines(image), message);
+                            assertEquals(expected, new TiledLineDetector(detector.setParallelism(1))
+                                    .setTileSize(tileSize).setMemoryBudget(SMALL_BUDGET).calculateLines(image),
+                                    message + " within a small budget");
+                            assertEquals(expectedSubsampled, new TiledLineDetector(subsampled)
+                                    .setTileSize(tileSize).calculateLines(file), message + " decoded from a file");
+                        }
+                    }
+                }
+            }
+        });
+    }
+}